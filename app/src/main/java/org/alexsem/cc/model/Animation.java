@@ -4,7 +4,16 @@ import android.graphics.Canvas;
 
 public interface Animation {
 
-    public void tick();
+    /**
+     * Duration of a single frame at 60 fps (in nanoseconds), used as the unit of animation length
+     */
+    public static final long FRAME = 1000000000L / 60;
+
+    /**
+     * Advance animation
+     * @param elapsed Time passed since the previous update (in nanoseconds)
+     */
+    public void update(long elapsed);
     public void draw(Canvas c);
     public boolean isFinished();
     public void finish();
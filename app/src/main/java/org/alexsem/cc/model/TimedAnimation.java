@@ -0,0 +1,53 @@
+package org.alexsem.cc.model;
+
+/**
+ * Base class for animations of fixed duration.
+ * State of the animation is derived from the elapsed time, so it runs at the same speed
+ * regardless of the display refresh rate
+ */
+public abstract class TimedAnimation implements Animation {
+
+    private long duration = FRAME;
+    private long elapsed = 0;
+
+    /**
+     * Set duration of the animation
+     * @param frames Duration in frames at 60 fps (at least one frame is used)
+     */
+    protected void setFrames(int frames) {
+        this.duration = Math.max(1, frames) * FRAME;
+    }
+
+    /**
+     * Get current progress of the animation
+     * @return Value between 0 (just started) and 1 (finished)
+     */
+    protected float getProgress() {
+        return (float) elapsed / duration;
+    }
+
+    /**
+     * Get value from the list of per-frame key values (linearly interpolated between frames)
+     * @param values Key values (one per frame)
+     * @return Current value
+     */
+    protected float interpolate(float[] values) {
+        float position = (float) elapsed / FRAME;
+        int index = (int) position;
+        if (index >= values.length - 1) {
+            return values[values.length - 1];
+        }
+        return values[index] + (values[index + 1] - values[index]) * (position - index);
+    }
+
+    @Override
+    public void update(long elapsed) {
+        this.elapsed = Math.min(duration, this.elapsed + elapsed);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return elapsed >= duration;
+    }
+
+}
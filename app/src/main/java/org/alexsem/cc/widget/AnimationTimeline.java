@@ -0,0 +1,301 @@
+package org.alexsem.cc.widget;
+
+import android.graphics.Canvas;
+
+import org.alexsem.cc.model.Animation;
+
+/**
+ * Scheduler of board animations.
+ * Every animation belongs to a group and to a lane within that group. Animations of the same lane
+ * are played one after another (in the order of their keys), while lanes and groups are played concurrently.
+ * Group (or single animation) may be blocked until some other groups are over, and listener is notified
+ * as soon as the last animation of a group is finished. Animation may also be delayed, so that animations
+ * of different lanes start one after another but overlap.
+ * Only groups which have animations are visited on every frame
+ */
+class AnimationTimeline {
+
+    /**
+     * Interface for receiving group completion events
+     */
+    public interface Listener {
+        /**
+         * Called when the last animation of the group is finished
+         * @param group Group index
+         */
+        public void onGroupFinished(int group);
+    }
+
+    /**
+     * Scheduled animation
+     */
+    private static class Entry {
+        Animation animation;
+        int key;
+        int blockers;
+        long delay;
+        boolean isStarted;
+        Entry next;
+    }
+
+    private final Listener mListener;
+    private final Entry[][] mLanes;
+    private final int[] mQueuedLanes;
+    private final int[] mCounts;
+    private final int[] mBlockers;
+    private final int[] mPausedLanes;
+    private final int[] mUpdateOrder;
+    private final int[] mDrawOrder;
+    private int mActiveGroups = 0;
+    private int mGeneration = 0; //Incremented on every clear()
+
+    /**
+     * @param listener    Listener which is notified about finished groups
+     * @param lanes       Number of lanes of every group
+     * @param updateOrder Order in which groups are advanced
+     * @param drawOrder   Order in which groups are drawn
+     */
+    public AnimationTimeline(Listener listener, int[] lanes, int[] updateOrder, int[] drawOrder) {
+        this.mListener = listener;
+        this.mLanes = new Entry[lanes.length][];
+        for (int i = 0; i < lanes.length; i++) {
+            mLanes[i] = new Entry[lanes[i]];
+        }
+        this.mCounts = new int[lanes.length];
+        this.mBlockers = new int[lanes.length];
+        this.mQueuedLanes = new int[lanes.length];
+        this.mPausedLanes = new int[lanes.length];
+        this.mUpdateOrder = updateOrder;
+        this.mDrawOrder = drawOrder;
+    }
+
+    /**
+     * Make group wait until other groups are over
+     * @param group    Group index
+     * @param blockers Bit mask of groups to wait for
+     */
+    public void setBlockers(int group, int blockers) {
+        mBlockers[group] = blockers;
+    }
+
+    /**
+     * Make some lanes of the group draw all their animations, not only the ones being played
+     * (used when queued cards should stay visible at their initial place)
+     * @param group Group index
+     * @param lanes Bit mask of lanes
+     */
+    public void setQueuedLanes(int group, int lanes) {
+        mQueuedLanes[group] = lanes;
+    }
+
+    /**
+     * Stop advancing and drawing some lanes of the group
+     * @param group Group index
+     * @param lanes Bit mask of paused lanes
+     */
+    public void setPausedLanes(int group, int lanes) {
+        mPausedLanes[group] = lanes;
+    }
+
+    /**
+     * Schedule animation
+     * @param group     Group index
+     * @param lane      Lane index within the group
+     * @param key       Order of the animation within the lane (animation which is already played is never preempted)
+     * @param animation Animation to schedule
+     */
+    public void add(int group, int lane, int key, Animation animation) {
+        add(group, lane, key, animation, 0);
+    }
+
+    /**
+     * Schedule animation which waits until other groups are over
+     * @param group     Group index
+     * @param lane      Lane index within the group
+     * @param key       Order of the animation within the lane (animation which is already played is never preempted)
+     * @param animation Animation to schedule
+     * @param blockers  Bit mask of groups to wait for
+     */
+    public void add(int group, int lane, int key, Animation animation, int blockers) {
+        add(group, lane, key, animation, blockers, 0);
+    }
+
+    /**
+     * Schedule animation which waits until other groups are over and then some more time
+     * @param group     Group index
+     * @param lane      Lane index within the group
+     * @param key       Order of the animation within the lane (animation which is already played is never preempted)
+     * @param animation Animation to schedule
+     * @param blockers  Bit mask of groups to wait for
+     * @param delay     Time to wait after the animation is no longer blocked (in nanoseconds)
+     */
+    public void add(int group, int lane, int key, Animation animation, int blockers, long delay) {
+        Entry entry = new Entry();
+        entry.animation = animation;
+        entry.key = key;
+        entry.blockers = blockers;
+        entry.delay = delay;
+        Entry[] lanes = mLanes[group];
+        Entry head = lanes[lane];
+        if (head == null || (!head.isStarted && head.key > key)) {
+            entry.next = head;
+            lanes[lane] = entry;
+        } else {
+            Entry previous = head;
+            while (previous.next != null && previous.next.key <= key) {
+                previous = previous.next;
+            }
+            entry.next = previous.next;
+            previous.next = entry;
+        }
+        mCounts[group]++;
+        mActiveGroups |= 1 << group;
+    }
+
+    /**
+     * Drop all animations (they are not finished)
+     */
+    public void clear() {
+        for (Entry[] lanes : mLanes) {
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = null;
+            }
+        }
+        for (int i = 0; i < mCounts.length; i++) {
+            mCounts[i] = 0;
+            mPausedLanes[i] = 0;
+        }
+        mActiveGroups = 0;
+        mGeneration++;
+    }
+
+    /**
+     * Defines whether any of the groups has animations
+     * @param groups Bit mask of groups
+     * @return true if at least one of the groups is not over
+     */
+    public boolean isActive(int groups) {
+        return (mActiveGroups & groups) != 0;
+    }
+
+    /**
+     * Get number of animations in the group
+     * @param group Group index
+     * @return Number of played and queued animations
+     */
+    public int getCount(int group) {
+        return mCounts[group];
+    }
+
+    /**
+     * Defines whether lane has animation with specific key
+     * @param group Group index
+     * @param lane  Lane index
+     * @param key   Animation key
+     * @return true if such animation is played or queued
+     */
+    public boolean isQueued(int group, int lane, int key) {
+        for (Entry entry = mLanes[group][lane]; entry != null; entry = entry.next) {
+            if (entry.key == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get animation which is played (or is about to be played) in the lane
+     * @param group Group index
+     * @param lane  Lane index
+     * @return Animation or null if lane is empty
+     */
+    public Animation getHead(int group, int lane) {
+        Entry head = mLanes[group][lane];
+        return head != null ? head.animation : null;
+    }
+
+    /**
+     * Get key of the animation which is played (or is about to be played) in the lane
+     * @param group Group index
+     * @param lane  Lane index
+     * @return Key or -1 if lane is empty
+     */
+    public int getHeadKey(int group, int lane) {
+        Entry head = mLanes[group][lane];
+        return head != null ? head.key : -1;
+    }
+
+    /**
+     * Advance all animations which are not blocked.
+     * If animation or listener clears the timeline, the rest of the update is skipped
+     * @param elapsed Time passed since the previous update (in nanoseconds)
+     */
+    public void update(long elapsed) {
+        int generation = mGeneration;
+        for (int group : mUpdateOrder) {
+            if ((mActiveGroups & (1 << group)) == 0 || isActive(mBlockers[group])) {
+                continue;
+            }
+            Entry[] lanes = mLanes[group];
+            for (int i = 0; i < lanes.length; i++) {
+                Entry head = lanes[i];
+                if (head == null || (mPausedLanes[group] & (1 << i)) != 0 || isActive(head.blockers)) {
+                    continue;
+                }
+                long time = elapsed;
+                if (head.delay > 0) { //Still waiting, remaining time goes to the animation
+                    head.delay -= elapsed;
+                    if (head.delay > 0) {
+                        continue;
+                    }
+                    time = -head.delay;
+                    head.delay = 0;
+                }
+                head.isStarted = true;
+                head.animation.update(time);
+                if (head.animation.isFinished()) {
+                    lanes[i] = head.next;
+                    head.animation.finish();
+                    if (generation != mGeneration) { //Counts are already reset
+                        return;
+                    }
+                    if (--mCounts[group] == 0) {
+                        mActiveGroups &= ~(1 << group);
+                        mListener.onGroupFinished(group);
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Draw all animations which are not blocked
+     * @param canvas Canvas to draw to
+     */
+    public void draw(Canvas canvas) {
+        for (int group : mDrawOrder) {
+            if ((mActiveGroups & (1 << group)) == 0 || isActive(mBlockers[group])) {
+                continue;
+            }
+            Entry[] lanes = mLanes[group];
+            for (int i = 0; i < lanes.length; i++) {
+                Entry head = lanes[i];
+                if (head == null || (mPausedLanes[group] & (1 << i)) != 0) {
+                    continue;
+                }
+                if (!isActive(head.blockers) && head.delay <= 0) {
+                    head.animation.draw(canvas);
+                }
+                if ((mQueuedLanes[group] & (1 << i)) != 0) {
+                    for (Entry entry = head.next; entry != null; entry = entry.next) {
+                        entry.animation.draw(canvas);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.alexsem.cc.widget;
+
+import android.graphics.Bitmap;
+
+/**
+ * Cache of bitmaps with long keys bounded by total size of bitmaps
+ * (least recently used bitmaps are dropped first). Lookups do not create any objects
+ */
+class BitmapCache {
+
+    private final long mMaxBytes;
+    private long[] mKeys = new long[32];
+    private Bitmap[] mBitmaps = new Bitmap[32];
+    private long[] mLastUsed = new long[32];
+    private int mCount = 0;
+    private long mBytes = 0;
+    private long mClock = 0;
+
+    /**
+     * @param maxBytes Maximum total size of cached bitmaps (in bytes)
+     */
+    public BitmapCache(long maxBytes) {
+        this.mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Find cached bitmap
+     * @param key Bitmap key
+     * @return Bitmap or null if there is no bitmap with such key
+     */
+    public Bitmap get(long key) {
+        for (int i = 0; i < mCount; i++) {
+            if (mKeys[i] == key) {
+                mLastUsed[i] = ++mClock;
+                return mBitmaps[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add bitmap to the cache (least recently used bitmaps are dropped if cache gets too large)
+     * @param key    Bitmap key
+     * @param bitmap Bitmap to add
+     */
+    public void put(long key, Bitmap bitmap) {
+        mBytes += bitmap.getByteCount();
+        while (mBytes > mMaxBytes && mCount > 0) {
+            evict();
+        }
+        if (mCount == mKeys.length) {
+            int capacity = mCount * 2;
+            long[] keys = new long[capacity];
+            Bitmap[] bitmaps = new Bitmap[capacity];
+            long[] lastUsed = new long[capacity];
+            System.arraycopy(mKeys, 0, keys, 0, mCount);
+            System.arraycopy(mBitmaps, 0, bitmaps, 0, mCount);
+            System.arraycopy(mLastUsed, 0, lastUsed, 0, mCount);
+            mKeys = keys;
+            mBitmaps = bitmaps;
+            mLastUsed = lastUsed;
+        }
+        mKeys[mCount] = key;
+        mBitmaps[mCount] = bitmap;
+        mLastUsed[mCount] = ++mClock;
+        mCount++;
+    }
+
+    /**
+     * Drop all bitmaps
+     */
+    public void clear() {
+        for (int i = 0; i < mCount; i++) {
+            mBitmaps[i] = null;
+        }
+        mCount = 0;
+        mBytes = 0;
+    }
+
+    /**
+     * Drop least recently used bitmap
+     * (bitmaps are not recycled, as they may still be referenced by the frame being rendered)
+     */
+    private void evict() {
+        int oldest = 0;
+        for (int i = 1; i < mCount; i++) {
+            if (mLastUsed[i] < mLastUsed[oldest]) {
+                oldest = i;
+            }
+        }
+        mBytes -= mBitmaps[oldest].getByteCount();
+        mCount--;
+        mKeys[oldest] = mKeys[mCount];
+        mBitmaps[oldest] = mBitmaps[mCount];
+        mLastUsed[oldest] = mLastUsed[mCount];
+        mBitmaps[mCount] = null;
+    }
+
+}
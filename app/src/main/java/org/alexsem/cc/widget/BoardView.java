@@ -2,6 +2,7 @@ package org.alexsem.cc.widget;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -11,19 +12,22 @@ import android.graphics.Region;
 import android.graphics.Typeface;
 import android.os.Build;
 import android.text.TextPaint;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.Toast;
 
+import java.util.ArrayList;
+
+import org.alexsem.cc.engine.EventBuffer;
+import org.alexsem.cc.engine.GameEngine;
+import org.alexsem.cc.engine.Move;
+import org.alexsem.cc.engine.search.HintSearch;
+import org.alexsem.cc.engine.search.WinEstimator;
 import org.alexsem.cc.model.Animation;
 import org.alexsem.cc.model.Card;
-import org.alexsem.cc.model.Deck;
-
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Deque;
-import java.util.List;
+import org.alexsem.cc.model.PackedCard;
+import org.alexsem.cc.model.TimedAnimation;
 
 public class BoardView extends View {
 
@@ -34,10 +38,7 @@ public class BoardView extends View {
     private final int COLOR_EMPH = 0xff922b22;
     private final int COLOR_SPECIAL = 0xff2cc5c6;
 
-    private final int LOC_LEFT_HAND = 10;
-    private final int LOC_HERO = 11;
-    private final int LOC_RIGHT_HAND = 12;
-    private final int LOC_BACKPACK = 13;
+    private final long MAX_FRAME_TIME = 100000000L; //Longer pauses (in nanoseconds) do not skip animations
 
     private float STROKE_WIDTH = 2;
 
@@ -47,67 +48,112 @@ public class BoardView extends View {
     private int mCanvasWidth;
     private int mCanvasHeight;
     private int mEpsDrag;
-    private int mDragReturnSpeed;
+    private int mDragReturnSpeed; //Pixels per frame at 60 fps
 
     private Paint mPaint;
     private TextPaint mTextPaint;
+    private final TextBuffer mText = new TextBuffer();
+    private final RectF mArcRect = new RectF();
+
+    private BitmapCache mFaceCache;
+    private final Canvas mFaceCanvas = new Canvas();
+    private final RectF mFaceRect = new RectF();
+    private Paint mFacePaint;
+    private int mFacePadding;
+    private int mFaceCardWidth;
+    private final Path[] mShardPaths = new Path[4];
+    private final ArrayList<Bitmap[]> mShardPool = new ArrayList<>();
 
     private int mTouchedLocation = -1;
     private float mTouchedX;
     private float mTouchedY;
     private float mDragRelX = 0;
     private float mDragRelY = 0;
-    private float mDragSpeedX = 0;
-    private float mDragSpeedY = 0;
+    private float mDragReturnX = 0;
+    private float mDragReturnY = 0;
     private boolean isDragging = false;
-    private int mDragReturnTicks = 0;
-    private boolean isDiscarding = false;
-    private Animation mDiscardAnimation;
+    private long mDragReturnTime = 0; //Time left until dragged card is returned (in nanoseconds)
+    private long mDragReturnDuration = 0;
     private int mLongTouchedLocation = -1;
     private Runnable mLongTouchRunnable;
     private boolean isRestartTouched = false;
+    private boolean isHintTouched = false;
+    private boolean isFastForwardArmed = false; //Touch started while animations were played
+
+    private final int[] mMoveQueue = new int[4]; //Moves made before the board was settled
+    private final int[] mMoveQueueCards = new int[4]; //Packed cards which were moved
+    private int mMoveQueueSize = 0;
 
-    private Deck mDeck;
+    private GameEngine mEngine;
     private Box mDiscardBox;
     private Position[] mRowTop = new Position[4];
     private Position[] mRowBottom = new Position[4];
-    private List<Card> mGraveyard = new ArrayList<>();
-    private List<Card> mShop = new ArrayList<>();
     private int mCoins;
-    private int mHealthAddition;
-    private int mDamageTakenDuringTurn;
-    private int mBountyTargetsDelivered;
-    private int mFaithCardsAwaiting;
-    private boolean isFreshDeal;
-    private boolean isDamageTakenDuringTurn;
-    private boolean isNeedToReviveHero;
-    private boolean isNeedToReflectDamage;
     private RectF mDeckPosition;
     private RectF mRestartButton;
+    private RectF mHintButton;
+
+    private HintSearch mHintSearch;
+    private int mHintGeneration = 0;
+    private int mHintMove = Move.NONE;
+    private boolean isHintSearching = false;
+
+    private WinEstimator mWinEstimator;
+    private int mEstimateGeneration = 0;
+    private int mEstimateMoveCount = -1;
+    private float mWinProbability = -1;
+    private boolean isEstimating = false;
+
+    private static final int GROUP_DEAL = 0; //Lane for every position (see getCardLane)
+    private static final int GROUP_RECEIVE = 1; //Lane 0 for top row, lane 1 for bottom row
+    private static final int GROUP_DROP = 2;
+    private static final int GROUP_CARD = 3; //Lane for every position (see getCardLane)
+    private static final int GROUP_HERO = 4;
+    private static final int GROUP_COIN = 5;
+    private static final int GROUP_DISCARD = 6;
+    private static final int ANY_GROUP = (1 << 7) - 1;
+    private static final int BUSY_GROUPS = ANY_GROUP & ~(1 << GROUP_COIN); //Moves are queued while these are played
+    private static final int KEY_CARD_EFFECT = 0; //Effects replace the card drawing
+    private static final int KEY_CARD_DISABLE = 1; //Disabling is shown after effects and deals are over
+
+    private final AnimationTimeline mTimeline = new AnimationTimeline(new AnimationTimeline.Listener() {
+        @Override
+        public void onGroupFinished(int group) {
+            switch (group) {
+                case GROUP_DISCARD:
+                    resetTouchFeedback();
+                    mEngine.processMove();
+                    break;
+                case GROUP_RECEIVE:
+                case GROUP_DROP:
+                case GROUP_CARD:
+                case GROUP_COIN:
+                    mEngine.processMove();
+                    break;
+            }
+        }
+    }, new int[]{8, 2, 1, 8, 1, 1, 1},
+            new int[]{GROUP_HERO, GROUP_DISCARD, GROUP_CARD, GROUP_COIN, GROUP_RECEIVE, GROUP_DROP, GROUP_DEAL},
+            new int[]{GROUP_RECEIVE, GROUP_DROP, GROUP_DEAL, GROUP_CARD, GROUP_HERO, GROUP_DISCARD, GROUP_COIN});
 
-    private int mDealAnimationCount = 0;
-    private Animation[] mDealAnimationTop = new Animation[4];
-    private Animation[] mDealAnimationBottom = new Animation[4];
-    private int mReceiveAnimationCount = 0;
-    private Animation[] mReceiveAnimationTop = new Animation[4];
-    private Animation[] mReceiveAnimationBottom = new Animation[4];
-    private int mDropAnimationCount = 0;
-    private Animation[] mDropAnimationBottom = new Animation[4];
-    private boolean isHeroAnimated = false;
-    private Animation mHeroAnimation = null;
-    private int mCardAnimationCount = 0;
-    private Animation[] mCardAnimationTop = new Animation[4];
-    private Animation[] mCardAnimationBottom = new Animation[4];
-    private Animation[] mDisableAnimationTop = new Animation[4];
-    private Animation[] mDisableAnimationBottom = new Animation[4];
-    private boolean isCoinAnimated = false;
-    private Animation mCoinAnimation = null;
+    {
+        mTimeline.setBlockers(GROUP_DEAL, 1 << GROUP_HERO);
+        mTimeline.setBlockers(GROUP_HERO, 1 << GROUP_COIN);
+        mTimeline.setQueuedLanes(GROUP_RECEIVE, 1); //Top row only
+        mTimeline.setQueuedLanes(GROUP_DROP, 1);
+    }
+
+    private final long FAST_FORWARD_STEP = 1000000000L;
+    private final int MAX_FAST_FORWARD_STEPS = 100;
+
+    private long mDealStagger = 6 * Animation.FRAME; //Delay between starts of cards dealt together (in nanoseconds)
+
+    private Choreographer mChoreographer;
+    private boolean isFrameScheduled = false;
+    private long mLastFrameTime = 0;
 
     private boolean isBeginning = false;
-    private boolean isRestarting = false;
     private boolean isMeasurementChanged = false;
-    private boolean isGameOver = false;
-    private boolean isHeroWon = false;
 
 
     //----------------------------------------------------------------------------------------------
@@ -128,109 +174,80 @@ public class BoardView extends View {
         mTextPaint = new TextPaint(new Paint());
         mTextPaint.setAntiAlias(true);
         mTextPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
+        mFacePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        mFaceCache = new BitmapCache(Runtime.getRuntime().maxMemory() / 8);
         int dpi = context.getResources().getDisplayMetrics().densityDpi;
         STROKE_WIDTH = STROKE_WIDTH * dpi / 160f;
+        mChoreographer = Choreographer.getInstance();
+        mEngine = new GameEngine();
+        mEngine.setListener(mEngineListener);
         begin(); //Start
     }
 
     public void begin() {
         this.isBeginning = true;
-        this.isRestarting = false;
-        mDeck = Deck.generateFixed();
+        cancelHint();
+        cancelEstimate();
+        mEstimateMoveCount = -1;
+        mWinProbability = -1;
+        mEngine.begin();
         for (int i = 0; i < 4; i++) {
-            mRowTop[i] = new Position();
-            mRowBottom[i] = new Position();
-            mCardAnimationTop[i] = null;
-            mCardAnimationBottom[i] = null;
-            mDealAnimationTop[i] = null;
-            mDealAnimationBottom[i] = null;
-            mReceiveAnimationTop[i] = null;
-            mReceiveAnimationBottom[i] = null;
-            mDropAnimationBottom[i] = null;
-            mDisableAnimationTop[i] = null;
-            mDisableAnimationBottom[i] = null;
-        }
-        mGraveyard.clear();
-        mShop.clear();
-        mHeroAnimation = null;
-        mDiscardAnimation = null;
+            mRowTop[i] = new Position(i);
+            mRowBottom[i] = new Position(i + 10);
+        }
+        mTimeline.clear();
+        mMoveQueueSize = 0;
         mDiscardBox = new Box();
         mCoins = 0;
-        mHealthAddition = 0;
-        mDamageTakenDuringTurn = 0;
-        mBountyTargetsDelivered = 0;
-        mFaithCardsAwaiting = 0;
-        mDealAnimationCount = 0;
-        mReceiveAnimationCount = 0;
-        mDropAnimationCount = 0;
-        mCardAnimationCount = 0;
-        isCoinAnimated = false;
-        isNeedToReflectDamage = false;
-        isNeedToReviveHero = false;
-        isHeroAnimated = false;
         isDragging = false;
         isRestartTouched = false;
-        isDiscarding = false;
-        isGameOver = false;
-        isHeroWon = false;
+        isHintTouched = false;
         isMeasurementChanged = true;
         invalidate();
+    }
 
-//        Card card = Card.getSpecial(); //TODO
-//        card.setAbility(Card.Ability.HEIST);
-//        mRowTop[0].setCard(card);
-//        mRowTop[1].setCard(Card.getOther(Card.Type.MONSTER, 7));
-//        mRowTop[2].setCard(Card.getOther(Card.Type.MONSTER, 7));
-//        while (mDeck.size() > 0) {
-//            mDeck.deal();
-//        }
-//        isNeedToReviveHero = true;
+    /**
+     * Set delay between cards dealt together (cards fly in overlapping waves)
+     * @param millis Delay in milliseconds (0 to deal all cards at once)
+     */
+    public void setDealStagger(int millis) {
+        this.mDealStagger = Math.max(0, millis) * 1000000L;
     }
 
     /**
-     * Deal cards to missing positions of top row
-     * All inactive cards from bottom row will be removed in process
+     * Turn instant mode on or off (board jumps straight to the result of every move)
+     * @param instant true to skip animations
      */
-    private void dealTopRow() {
-        for (int i = 0; i < 4; i++) {
-            Card card = mRowBottom[i].getCard();
-            if (card != null && !card.isActive()) {
-                animateDropCard(card, i + 10);
-                destroyCard(mRowBottom[i]);
-            }
-            if (mRowTop[i].getCard() == null) {
-                Card deal = mDeck.deal();
-                if (mFaithCardsAwaiting > 0 && deal.getValue() > 0) {
-                    deal.setValue(deal.getValue() * 2);
-                    mFaithCardsAwaiting--;
-                }
-                animateDealCard(deal, i);
-            }
-        }
-        isFreshDeal = true;
-        if (!isDamageTakenDuringTurn) {
-            mDamageTakenDuringTurn = 0;
-        }
-        isDamageTakenDuringTurn = false;
+    public void setInstant(boolean instant) {
+        fastForward();
+        mEngine.setInstant(instant);
+        applyQueuedMoves();
+        estimateWhenSettled();
+        invalidate();
     }
 
     //--------------------------------------------------------------------------------------------------------------------
 
     @Override
     public boolean onTouchEvent(MotionEvent e) {
-        if (mDragReturnTicks > 0 || mDealAnimationCount > 0 || mReceiveAnimationCount > 0 || mDropAnimationCount > 0 || isHeroAnimated || mCardAnimationCount > 0 || isDiscarding) {
-            return true;
+        if (e.getAction() == MotionEvent.ACTION_DOWN && mDragReturnTime > 0) { //Previous card is put back at once
+            mDragReturnTime = 0;
+            mDragRelX = 0;
+            mDragRelY = 0;
+            resetTouchFeedback();
         }
+        boolean isBusy = mTimeline.isActive(BUSY_GROUPS);
         float x = e.getX();
         float y = e.getY();
         Position pos;
         switch (e.getAction()) {
             case MotionEvent.ACTION_DOWN:
-                if (!isGameOver && !isHeroWon) {
+                isFastForwardArmed = isBusy;
+                if (!mEngine.isGameOver() && !mEngine.isHeroWon()) {
                     boolean longTouch = false;
                     for (int i = 0; i < 4; i++) {
                         pos = mRowTop[i];
-                        if (pos != null && pos.contains(x, y) && canTouchThis(i)) {
+                        if (pos != null && pos.contains(x, y) && (!isBusy || isSettled(i)) && mEngine.canTouchThis(i)) {
                             if (pos.getCard() != null && pos.getCard().getType() == Card.Type.ABILITY) {
                                 longTouch = true;
                             }
@@ -241,7 +258,7 @@ public class BoardView extends View {
                             break;
                         }
                         pos = mRowBottom[i];
-                        if (pos != null && pos.contains(x, y) && canTouchThis(10 + i)) {
+                        if (pos != null && pos.contains(x, y) && (!isBusy || isSettled(10 + i)) && mEngine.canTouchThis(10 + i)) {
                             if (pos.getCard() != null && pos.getCard().getType() == Card.Type.ABILITY) {
                                 longTouch = true;
                             }
@@ -264,7 +281,7 @@ public class BoardView extends View {
                                     longTouchedCard = mRowTop[mLongTouchedLocation].getCard();
                                 }
                                 if (longTouchedCard != null && longTouchedCard.getType() == Card.Type.ABILITY) {
-                                    Toast.makeText(getContext(), longTouchedCard.getAbility().getDescription(), Toast.LENGTH_LONG).show();
+                                    Toast.makeText(getContext(), longTouchedCard.getDefinition().getDescription(), Toast.LENGTH_LONG).show();
                                 }
                                 mLongTouchedLocation = -1;
                             }
@@ -272,19 +289,25 @@ public class BoardView extends View {
                         BoardView.this.postDelayed(mLongTouchRunnable, 1500);
                     }
                 }
-                if (mRestartButton != null && mRestartButton.contains(x, y)) { //Restart touched
+                if (!isBusy && mRestartButton != null && mRestartButton.contains(x, y)) { //Restart touched
                     isRestartTouched = true;
                     invalidate();
                 }
+                if (!isBusy && mHintButton != null && mHintButton.contains(x, y)) { //Hint touched
+                    isHintTouched = true;
+                    invalidate();
+                }
                 break;
 
             case MotionEvent.ACTION_MOVE:
-                if (!isGameOver && !isHeroWon) {
+                if (!mEngine.isGameOver() && !mEngine.isHeroWon()) {
                     if (!isDragging && mTouchedLocation > -1) {
                         float dx = x - mTouchedX;
                         float dy = y - mTouchedY;
                         if (Math.sqrt(dx * dx + dy * dy) > mEpsDrag) {
                             isDragging = true;
+                            cancelHint();
+                            cancelEstimate();
                             mLongTouchedLocation = -1;
                             BoardView.this.removeCallbacks(mLongTouchRunnable);
                         }
@@ -299,64 +322,90 @@ public class BoardView extends View {
                     isRestartTouched = false;
                     invalidate();
                 }
+                if (isHintTouched && !mHintButton.contains(x, y)) {
+                    isHintTouched = false;
+                    invalidate();
+                }
                 break;
 
             case MotionEvent.ACTION_UP:
-                if (!isGameOver && !isHeroWon) {
-                    if (isDragging) {
+                boolean isTap = isFastForwardArmed && !isDragging;
+                if (!mEngine.isGameOver() && !mEngine.isHeroWon()) {
+                    if (isDragging && isBusy) { //Board is not settled yet, move will be made later
+                        int move = Move.NONE;
+                        for (int i = 0; i < 4; i++) {
+                            if (mRowTop[i] != null && mRowTop[i].contains(x, y) && i != mTouchedLocation) {
+                                move = Move.of(mTouchedLocation, i);
+                                break;
+                            }
+                            if (mRowBottom[i] != null && mRowBottom[i].contains(x, y) && 10 + i != mTouchedLocation) {
+                                move = Move.of(mTouchedLocation, 10 + i);
+                                break;
+                            }
+                        }
+                        if (mDiscardBox != null && mDiscardBox.contains(x, y)) {
+                            move = Move.discard(mTouchedLocation);
+                        }
+                        if (move != Move.NONE) {
+                            queueMove(move);
+                        }
+                        animateDragReturn();
+                    } else if (isDragging) {
                         boolean received = false;
                         for (int i = 0; i < 4; i++) {
                             pos = mRowTop[i];
-                            if (pos != null && pos.contains(x, y) && canReceiveThis(mTouchedLocation, i)) {
-                                doReceive(mTouchedLocation, i);
+                            if (pos != null && pos.contains(x, y) && mEngine.canReceiveThis(mTouchedLocation, i)) {
+                                mEngine.doReceive(mTouchedLocation, i);
                                 received = true;
                                 break;
                             }
                             pos = mRowBottom[i];
-                            if (pos != null && pos.contains(x, y) && canReceiveThis(mTouchedLocation, i + 10)) {
-                                doReceive(mTouchedLocation, i + 10);
+                            if (pos != null && pos.contains(x, y) && mEngine.canReceiveThis(mTouchedLocation, i + 10)) {
+                                mEngine.doReceive(mTouchedLocation, i + 10);
                                 received = true;
                                 break;
                             }
                         }
-                        if (mDiscardBox != null && mDiscardBox.contains(x, y) && canDiscardThis(mTouchedLocation)) {
-                            doDiscard(mTouchedLocation);
+                        if (mDiscardBox != null && mDiscardBox.contains(x, y) && mEngine.canDiscardThis(mTouchedLocation)) {
+                            mEngine.doDiscard(mTouchedLocation);
                             received = true;
                         }
                         if (!received) {
-                            float distance = (float) Math.sqrt(mDragRelX * mDragRelX + mDragRelY * mDragRelY);
-                            mDragReturnTicks = (int) (distance / mDragReturnSpeed);
-                            mDragSpeedX = mDragRelX / mDragReturnTicks;
-                            mDragSpeedY = mDragRelY / mDragReturnTicks;
+                            animateDragReturn();
                         }
                     }
                 }
                 if (isRestartTouched && mRestartButton.contains(x, y)) {
-                    if (isGameOver || isHeroWon) {
+                    if (mEngine.isGameOver() || mEngine.isHeroWon()) {
                         begin();
                     } else {
-                        for (int i = 0; i < 4; i++) {
-                            while (mDeck.size() > 0) {
-                                mDeck.deal();
-                            }
-                            animateReceiveCard(mRowTop[i].getCard(), i, false);
-                            destroyCard(mRowTop[i]);
-                            if (i != 1) {
-                                animateDropCard(mRowBottom[i].getCard(), i + 10);
-                                destroyCard(mRowBottom[i]);
-                            }
-                        }
-                        animateHeroVanish();
+                        cancelHint();
+                        cancelEstimate();
+                        mEngine.abandon();
                         isRestartTouched = false;
-                        isRestarting = true;
+                        if (mEngine.isInstant()) { //Hero is already gone
+                            begin();
+                        }
                     }
                 }
+                if (isHintTouched && mHintButton.contains(x, y) && !mEngine.isGameOver() && !mEngine.isHeroWon()) {
+                    requestHint();
+                }
                 resetTouchFeedback();
+                if (isTap) { //Tap skips the animations
+                    fastForward();
+                }
+                isFastForwardArmed = false;
+                applyQueuedMoves();
+                estimateWhenSettled();
                 invalidate();
                 break;
             case MotionEvent.ACTION_CANCEL:
                 BoardView.this.removeCallbacks(mLongTouchRunnable);
                 resetTouchFeedback();
+                isFastForwardArmed = false;
+                applyQueuedMoves();
+                estimateWhenSettled();
                 invalidate();
                 break;
         }
@@ -369,873 +418,224 @@ public class BoardView extends View {
     private void resetTouchFeedback() {
         isDragging = false;
         isRestartTouched = false;
-        if (mDragReturnTicks <= 0 && mTouchedLocation > -1 && !isDiscarding) {
+        isHintTouched = false;
+        if (mDragReturnTime <= 0 && mTouchedLocation > -1 && !isDiscarding()) {
             mTouchedLocation = -1;
             invalidate();
         }
     }
 
-    //----------------------------------------------------------------------------------------------
-
     /**
-     * Defines whether specific position can be touched
-     * @param location Coordinate number of position
-     * @return true if can be touched, false otherwise
+     * Defines whether card at location can be touched while animations are played
+     * (its animations are over, so it will stay where it is)
+     * @param location Coordinate number of card position
+     * @return true if card is settled
      */
-    private boolean canTouchThis(int location) {
-        Card card = location >= 10 ? mRowBottom[location - 10].getCard() : mRowTop[location].getCard();
-        if (card != null) {
-            switch (card.getType()) {
-                case HERO:
-                    return false;
-                case MONSTER:
-                case MONSTER_TAMED:
-                case WEAPON:
-                case ABILITY:
-                    return true;
-                case SHIELD:
-                    return (location != LOC_LEFT_HAND && location != LOC_RIGHT_HAND) || card.getAbility() == Card.Ability.BASH;
-                case POTION:
-                case COIN:
-                    return card.isActive();
-            }
+    private boolean isSettled(int location) {
+        int lane = getCardLane(location);
+        if (isDiscarding() || isQueuedSource(location)) {
+            return false;
         }
-        return false;
+        if (mTimeline.getHead(GROUP_CARD, lane) != null || mTimeline.getHead(GROUP_DEAL, lane) != null) {
+            return false;
+        }
+        if (mTimeline.isQueued(GROUP_RECEIVE, location < 10 ? 0 : 1, location % 10)) {
+            return false;
+        }
+        if (location >= 10 && mTimeline.isQueued(GROUP_DROP, 0, location - 10)) {
+            return false;
+        }
+        return location != GameEngine.LOC_HERO || !mTimeline.isActive(1 << GROUP_HERO);
     }
 
     /**
-     * Defines whether card can be received by specific position
-     * @param source      Coordinate number of source card position
-     * @param destination Coordinate number of dest card position
-     * @return true or false
+     * Remember move to make it as soon as the board is settled
+     * @param move Packed move
      */
-    private boolean canReceiveThis(int source, int destination) {
-        if (source == destination) {
-            return false;
-        }
-        Card srcCard = source >= 10 ? mRowBottom[source - 10].getCard() : mRowTop[source].getCard();
-        Card dstCard = destination >= 10 ? mRowBottom[destination - 10].getCard() : mRowTop[destination].getCard();
-        switch (srcCard.getType()) {
-            case MONSTER:
-                if (dstCard != null) {
-                    return (dstCard.getType() == Card.Type.HERO || ((dstCard.getType() == Card.Type.SHIELD || dstCard.getType() == Card.Type.MONSTER_TAMED) && (destination == LOC_LEFT_HAND || destination == LOC_RIGHT_HAND)));
-                } else {
-                    return false;
-                }
-            case MONSTER_TAMED:
-                if (dstCard != null) {
-                    return (dstCard.getType() == Card.Type.MONSTER && destination < 10 && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                } else {
-                    return (source < 10 && destination == LOC_BACKPACK) || ((source < 10 || source == LOC_BACKPACK) && (destination == LOC_LEFT_HAND || destination == LOC_RIGHT_HAND));
-                }
-            case WEAPON:
-                if (dstCard != null) {
-                    return (dstCard.getType() == Card.Type.MONSTER && destination < 10 && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                } else {
-                    return (source < 10 && destination == LOC_BACKPACK) || ((source < 10 || source == LOC_BACKPACK) && (destination == LOC_LEFT_HAND || destination == LOC_RIGHT_HAND));
-                }
-            case SHIELD:
-                if (dstCard != null) {
-                    return (srcCard.getAbility() == Card.Ability.BASH && dstCard.getType() == Card.Type.MONSTER && destination < 10 && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                } else {
-                    return (source < 10 && destination == LOC_BACKPACK) || ((source < 10 || source == LOC_BACKPACK) && (destination == LOC_LEFT_HAND || destination == LOC_RIGHT_HAND));
-                }
-            case POTION:
-                if (dstCard != null) {
-                    return (srcCard.getAbility() == Card.Ability.POISON && dstCard.getType() == Card.Type.MONSTER && destination < 10 && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                } else {
-                    return (source < 10 && destination == LOC_BACKPACK) || ((source < 10 || source == LOC_BACKPACK) && (destination == LOC_LEFT_HAND || destination == LOC_RIGHT_HAND));
-                }
-            case COIN:
-                if (dstCard != null) {
-                    return false;
-                } else {
-                    return (destination == LOC_LEFT_HAND || destination == LOC_RIGHT_HAND || destination == LOC_BACKPACK);
-                }
-            case ABILITY:
-                if (dstCard != null) {
-                    switch (srcCard.getAbility()) {
-                        case SAP:
-                        case EXCHANGE:
-                        case TRAP:
-                        case BRIBE:
-                            return (destination < 10 && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case VANISH:
-                        case LASH:
-                        case BASH:
-                        case REFLECT:
-                        case REVIVE:
-                        case FRENZY:
-                        case LUCKY:
-                        case LIFE:
-                        case BLEED:
-//TODO                        case WORSHIP:
-                        case BOUNTY:
-                        case DIGGER:
-                        case DOOM:
-                        case STAB:
-                        case HEIST:
-                        case CHAOS:
-                        case FAITH:
-                        case CHAMPION:
-                            return (dstCard.getType() == Card.Type.HERO && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case LEECH:
-                        case SACRIFICE:
-                        case KILLER:
-                            return (dstCard.getType() == Card.Type.MONSTER && destination < 10 && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case POTIONIZE:
-                            return ((dstCard.getType() == Card.Type.COIN || dstCard.getType() == Card.Type.POTION || dstCard.getType() == Card.Type.WEAPON || dstCard.getType() == Card.Type.SHIELD) && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case STEAL:
-                            return (dstCard.getType() == Card.Type.HERO && mDeck.size() > 0 && mRowBottom[3].getCard() == null && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case BETRAYAL:
-                            return (dstCard.getType() == Card.Type.MONSTER && destination < 10 && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case TRADE:
-                            return (dstCard.getType() != Card.Type.MONSTER && dstCard.getType() != Card.Type.HERO && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case SWAP:
-                        case EQUALIZE:
-                        case FEAST:
-                            return (destination < 10 && dstCard.getValue() > 0 && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case MORPH:
-                        case DEVOUR:
-                        case MIRROR:
-                            return (dstCard.getType() != Card.Type.HERO && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case FORTIFY:
-                        case MIDAS:
-                            return (dstCard.getType() != Card.Type.HERO && dstCard.getValue() > 0 && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case BLOODPACT:
-                        case TAME:
-                            return (dstCard.getType() == Card.Type.MONSTER && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        case POISON:
-                            return (dstCard.getType() == Card.Type.POTION && dstCard.getAbility() == null && (source == LOC_LEFT_HAND || source == LOC_RIGHT_HAND));
-                        default:
-                            return false;
-                    }
-                } else {
-                    return (source < 10 && destination == LOC_BACKPACK) || ((source < 10 || source == LOC_BACKPACK) && (destination == LOC_LEFT_HAND || destination == LOC_RIGHT_HAND));
-                }
+    private void queueMove(int move) {
+        if (mMoveQueueSize < mMoveQueue.length) {
+            mMoveQueue[mMoveQueueSize] = move;
+            mMoveQueueCards[mMoveQueueSize] = mEngine.getPackedCard(Move.getSource(move));
+            mMoveQueueSize++;
         }
-        return false;
     }
 
     /**
-     * Defines whether card can be discarded
+     * Defines whether card at location is waiting to be moved
      * @param location Coordinate number of card position
-     * @return true or false
+     * @return true if location is a source of some queued move
      */
-    private boolean canDiscardThis(int location) {
-        Card card = location >= 10 ? mRowBottom[location - 10].getCard() : mRowTop[location].getCard();
-        switch (card.getType()) {
-            case MONSTER:
-            case MONSTER_TAMED:
-                return false;
-            case WEAPON:
-            case SHIELD:
-            case POTION:
-            case ABILITY:
-                return (location < 10 || location == LOC_BACKPACK);
-            case COIN:
-                return (location < 10);
+    private boolean isQueuedSource(int location) {
+        for (int i = 0; i < mMoveQueueSize; i++) {
+            if (Move.getSource(mMoveQueue[i]) == location) {
+                return true;
+            }
         }
         return false;
     }
 
     /**
-     * Performs card movement
-     * @param source      Coordinate number of source card position
-     * @param destination Coordinate number of dest card position
+     * Make queued moves (one after another, as long as the board stays settled).
+     * Moves which became illegal in the meantime are dropped
      */
-    private void doReceive(int source, int destination) {
-        Position srcPosition = source >= 10 ? mRowBottom[source - 10] : mRowTop[source];
-        Position dstPosition = destination >= 10 ? mRowBottom[destination - 10] : mRowTop[destination];
-        Card srcCard = srcPosition.getCard();
-        Card dstCard = dstPosition.getCard();
-        Card hero = mRowBottom[1].getCard();
-
-        switch (srcCard.getType()) {
-            case MONSTER:
-                if (dstCard != null && dstCard.getType() == Card.Type.HERO) { //Endure attack
-                    if (isNeedToReflectDamage) { //Damage reflected
-                        int randomTarget;
-                        Card randomCard;
-                        do {
-                            randomTarget = (int) (Math.random() * 4);
-                            randomCard = mRowTop[(randomTarget)].getCard();
-                        } while (randomCard == null || randomCard.getType() == Card.Type.ABILITY);
-                        if (randomCard.getValue() > srcCard.getValue()) { //Target card can take damage
-                            randomCard.setValue(randomCard.getValue() - srcCard.getValue());
-                            animateCardSuffer(randomTarget);
-                        } else { //Card is too weak
-                            animateCardCrack(randomCard, randomTarget);
-                        }
-                        float distance = (float) Math.sqrt(mDragRelX * mDragRelX + mDragRelY * mDragRelY);
-                        mDragReturnTicks = (int) (distance / mDragReturnSpeed);
-                        mDragSpeedX = mDragRelX / mDragReturnTicks;
-                        mDragSpeedY = mDragRelY / mDragReturnTicks;
-                        isNeedToReflectDamage = false;
-                    } else { //Damage taken
-                        takeDamage(srcCard.getValue());
-                        destroyCard(srcPosition);
-                    }
-                } else if (dstCard != null && (dstCard.getType() == Card.Type.SHIELD || dstCard.getType() == Card.Type.MONSTER_TAMED)) { //Block attack
-                    if (dstCard.getValue() > srcCard.getValue()) { //Shield can take damage (and more)
-                        dstCard.setValue(dstCard.getValue() - srcCard.getValue());
-                        animateCardSuffer(destination);
-                    } else if (dstCard.getValue() == srcCard.getValue()) { //Shield can take exact damage
-                        animateCardCrack(dstCard, destination);
-                    } else { //Shield is too weak
-                        takeDamage((srcCard.getValue() - dstCard.getValue()));
-                        animateCardCrack(dstCard, destination);
-                    }
-                    destroyCard(srcPosition);
-                }
-                break;
-            case WEAPON:
-            case MONSTER_TAMED:
-                if (dstCard != null && dstCard.getType() == Card.Type.MONSTER) { //Attack
-                    if (dstCard.getValue() > srcCard.getValue()) { //Mob can take damage (and more)
-                        dstCard.setValue(dstCard.getValue() - srcCard.getValue());
-                        animateCardSuffer(destination);
-                    } else { //Mob will be defeated
-                        animateCardCrack(dstCard, destination);
-                    }
-                    if (srcCard.getAbility() == Card.Ability.FRENZY) {
-                        srcCard.setAbility(null);
-                        animateCardSuffer(source);
-                        float distance = (float) Math.sqrt(mDragRelX * mDragRelX + mDragRelY * mDragRelY);
-                        mDragReturnTicks = (int) (distance / mDragReturnSpeed);
-                        mDragSpeedX = mDragRelX / mDragReturnTicks;
-                        mDragSpeedY = mDragRelY / mDragReturnTicks;
-                    } else {
-                        destroyCard(srcPosition);
-                    }
-                } else { //Pack/Equip
-                    dstPosition.setCard(srcCard);
-                    destroyCard(srcPosition);
-                }
-                break;
-            case SHIELD:
-                if (dstCard != null) {
-                    if (srcCard.getAbility() == Card.Ability.BASH && dstCard.getType() == Card.Type.MONSTER) { //Bash
-                        if (dstCard.getValue() > srcCard.getValue()) { //Mob can take damage (and more)
-                            dstCard.setValue(dstCard.getValue() - srcCard.getValue());
-                            animateCardSuffer(destination);
-                        } else { //Mob will be defeated
-                            animateCardCrack(dstCard, destination);
-                        }
-                        if (srcCard.getValue() > 1) {
-                            srcCard.setValue(srcCard.getValue() - 1);
-                            animateCardSuffer(source);
-                            float distance = (float) Math.sqrt(mDragRelX * mDragRelX + mDragRelY * mDragRelY);
-                            mDragReturnTicks = (int) (distance / mDragReturnSpeed);
-                            mDragSpeedX = mDragRelX / mDragReturnTicks;
-                            mDragSpeedY = mDragRelY / mDragReturnTicks;
-                        } else {
-                            destroyCard(srcPosition);
-                        }
-                    }
-                } else { //Pack/Equip
-                    dstPosition.setCard(srcCard);
-                    destroyCard(srcPosition);
-                }
-                break;
-            case POTION:
-                if (srcCard.getAbility() == Card.Ability.POISON) { //Poison
-                    if (dstCard != null && dstCard.getType() == Card.Type.MONSTER) { //Attack
-                        if (srcCard.getValue() > 0) {
-                            if (dstCard.getValue() > srcCard.getValue()) { //Mob can take damage (and more)
-                                dstCard.setValue(dstCard.getValue() - srcCard.getValue());
-                                animateCardSuffer(destination);
-                            } else { //Mob will be defeated
-                                animateCardCrack(dstCard, destination);
-                            }
-                            for (int i = 0; i < 4; i++) {
-                                Card card = mRowTop[i].getCard();
-                                if (Math.abs(i - destination) == 1 && card != null && card.getValue() > 0) {
-                                    if (card.getValue() > srcCard.getValue() / 2) { //Card can take damage (and more)
-                                        card.setValue(card.getValue() - srcCard.getValue() / 2);
-                                        animateCardSuffer(i);
-                                    } else { //Card will be defeated
-                                        animateCardCrack(card, i);
-                                    }
-                                }
-                            }
-                        } //TODO miss
-                        destroyCard(srcPosition);
-                    } else { //Pack/Equip
-                        dstPosition.setCard(srcCard);
-                        destroyCard(srcPosition);
-                    }
-                } else { //Regular potion
-                    dstPosition.setCard(srcCard);
-                    if (destination == LOC_LEFT_HAND || destination == LOC_RIGHT_HAND) { //Actually use
-                        animateCardDisable(destination);
-                        hero.setValue(Math.min(Card.HERO_MAX + mHealthAddition, hero.getValue() + srcCard.getValue()));
-                        animateCardImprove(LOC_HERO);
-                        srcCard.setValue(0);
-                    }
-                    destroyCard(srcPosition);
-                }
-                break;
-            case COIN:
-                animateCardDisable(destination);
-                dstPosition.setCard(srcCard);
-                addCoins(srcCard.getValue());
-                srcCard.setValue(0);
-                destroyCard(srcPosition);
-                break;
-            case ABILITY:
-                if ((destination == LOC_RIGHT_HAND || destination == LOC_LEFT_HAND || destination == LOC_BACKPACK) && source != LOC_LEFT_HAND && source != LOC_RIGHT_HAND) { //Pack/Equip
-                    dstPosition.setCard(srcCard);
-                    destroyCard(srcPosition);
-                } else { //Actually use
-                    switch (srcCard.getAbility()) {
-                        case SAP:
-                            animateReceiveCard(dstCard, destination, true);
-                            destroyCard(dstPosition);
-                            destroyCard(srcPosition);
-                            break;
-                        case VANISH:
-                            for (int i = 0; i < 4; i++) {
-                                if (mRowTop[i].getCard() != null) {
-                                    animateReceiveCard(mRowTop[i].getCard(), i, true);
-                                    destroyCard(mRowTop[i]);
-                                }
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case LEECH:
-                            hero.setValue(Math.min(Card.HERO_MAX + mHealthAddition, hero.getValue() + dstCard.getValue()));
-                            animateCardImprove(LOC_HERO);
-                            destroyCard(srcPosition);
-                            break;
-                        case SACRIFICE:
-                            int sacrificed = Card.HERO_MAX + mHealthAddition - hero.getValue();
-                            if (sacrificed > 0) {
-                                if (dstCard.getValue() > sacrificed) { //Mob can take damage (and more)
-                                    dstCard.setValue(dstCard.getValue() - sacrificed);
-                                    animateCardSuffer(destination);
-                                } else { //Mob will be defeated
-                                    animateCardCrack(dstCard, destination);
-                                }
-                            } //TODO miss
-                            destroyCard(srcPosition);
-                            break;
-                        case POTIONIZE:
-                            Card potionCard = Card.clone(dstCard);
-                            potionCard.setType(Card.Type.POTION);
-                            potionCard.setValue((int) (Math.random() * 9 + 2));
-                            potionCard.setInitialValue(potionCard.getValue());
-                            potionCard.setAbility(null);
-                            if (destination >= 10) { //Bottom row
-                                potionCard.setActive(true);
-                            }
-                            animateCardTransform(destination, potionCard);
-                            destroyCard(srcPosition);
-                            break;
-                        case KILLER:
-                            if (dstCard.getValue() < dstCard.getInitialValue()) {
-                                animateCardCrack(dstCard, destination);
-                            } //TODO miss
-                            destroyCard(srcPosition);
-                            break;
-                        case EXCHANGE:
-                            animateReceiveCard(dstCard, destination, true);
-                            destroyCard(dstPosition);
-                            Card exchangedCard = mDeck.deal(mDeck.find(Card.Type.ABILITY));
-                            if (exchangedCard != null) {
-                                if (mFaithCardsAwaiting > 0 && exchangedCard.getValue() > 0) {
-                                    exchangedCard.setValue(exchangedCard.getValue() * 2);
-                                }
-                                animateDealCard(exchangedCard, destination);
-                            } //TODO miss
-                            destroyCard(srcPosition);
-                            break;
-                        case STEAL:
-                            Card stolenCard = mDeck.deal();
-                            if (mFaithCardsAwaiting > 0 && stolenCard.getValue() > 0) {
-                                stolenCard.setValue(stolenCard.getValue() * 2);
-                                mFaithCardsAwaiting--;
-                            }
-                            if (stolenCard.getType() == Card.Type.COIN) { //Coins
-                                animateCardDisable(LOC_BACKPACK);
-                                addCoins(stolenCard.getValue());
-                                stolenCard.setValue(0);
-                            }
-                            animateDealCard(stolenCard, LOC_BACKPACK);
-                            destroyCard(srcPosition);
-                            break;
-                        case LASH:
-                            boolean leftToRight = (Math.random() < 0.5f);
-                            int maxLash = (int) (Math.random() * 3) + 1;
-                            for (int lashedCount = 0, lashIndex = leftToRight ? 0 : 3; lashIndex >= 0 && lashIndex <= 3 && lashedCount < maxLash; lashIndex += (leftToRight ? 1 : -1)) {
-                                Card card = mRowTop[lashIndex].getCard();
-                                if (card != null && (card.getType() == Card.Type.MONSTER)) {
-                                    if (card.getValue() > srcCard.getValue()) { //Card can take damage (and more)
-                                        card.setValue(card.getValue() - srcCard.getValue());
-                                        animateCardSuffer(lashIndex);
-                                    } else { //Card will be defeated
-                                        animateCardCrack(mRowTop[lashIndex].getCard(), lashIndex);
-                                    }
-                                    lashedCount++;
-                                }
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case BASH:
-                            int shieldLocation = source == LOC_LEFT_HAND ? LOC_RIGHT_HAND : LOC_LEFT_HAND;
-                            Card shieldCard = mRowBottom[shieldLocation - 10].getCard();
-                            if (shieldCard != null && shieldCard.getType() == Card.Type.SHIELD) {
-                                shieldCard.setAbility(Card.Ability.BASH);
-                                animateCardImprove(shieldLocation);
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case REFLECT:
-                            isNeedToReflectDamage = true;
-                            animateCardImprove(LOC_HERO);
-                            destroyCard(srcPosition);
-                            break;
-                        case BETRAYAL:
-                            for (int i = 0; i < 4; i++) {
-                                Card card = mRowTop[i].getCard();
-                                if (Math.abs(i - destination) == 1 && card != null && card.getType() != Card.Type.ABILITY) {
-                                    if (card.getValue() > dstCard.getValue()) { //Card can take damage (and more)
-                                        card.setValue(card.getValue() - dstCard.getValue());
-                                        animateCardSuffer(i);
-                                    } else { //Card will be defeated
-                                        animateCardCrack(mRowTop[i].getCard(), i);
-                                    }
-                                }
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case REVIVE:
-                            isNeedToReviveHero = true;
-                            animateCardImprove(LOC_HERO);
-                            destroyCard(srcPosition);
-                            break;
-                        case FRENZY:
-                            int swordLocation = source == LOC_LEFT_HAND ? LOC_RIGHT_HAND : LOC_LEFT_HAND;
-                            Card swordCard = mRowBottom[swordLocation - 10].getCard();
-                            if (swordCard != null && swordCard.getType() == Card.Type.WEAPON) {
-                                swordCard.setAbility(Card.Ability.FRENZY);
-                                animateCardImprove(swordLocation);
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case LUCKY:
-                            int randomCount = 2 - (int) (Math.random() * 3) / 2;
-                            int previousTarget;
-                            for (int i = 0; i < randomCount; i++) {
-                                int randomTarget;
-                                Card randomCard;
-                                do {
-                                    randomTarget = (int) (Math.random() * 4);
-                                    randomCard = mRowTop[(randomTarget)].getCard();
-                                } while (randomCard == null);
-                                previousTarget = randomTarget;
-                                animateCardCrack(randomCard, randomTarget);
-                                boolean cardsLeft = false;
-                                for (int j = 0; j < mRowTop.length; j++) {
-                                    if (mRowTop[j].getCard() != null && j != previousTarget) {
-                                        cardsLeft = true;
-                                        break;
-                                    }
-                                }
-                                if (!cardsLeft) { //No more cards left
-                                    break;
-                                }
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case TRADE:
-                            addCoins(dstCard.getValue() * 2);
-                            mDragRelX = 0;
-                            mDragRelY = 0;
-                            mTouchedLocation = destination;
-                            animateCardDiscard(destination);
-                            destroyCard(srcPosition);
-                            break;
-                        case SWAP:
-                            boolean left2Right = (Math.random() < 0.5f);
-                            for (int swapIndex = left2Right ? 0 : 3; swapIndex >= 0 && swapIndex <= 3; swapIndex += (left2Right ? 1 : -1)) {
-                                Card card = mRowTop[swapIndex].getCard();
-                                if (Math.abs(swapIndex - destination) != 1 || card == null) {
-                                    continue;
-                                }
-                                if (card.getValue() > 0) {
-                                    int tempValue = dstCard.getValue();
-                                    dstCard.setValue(card.getValue());
-                                    card.setValue(tempValue);
-                                    if (tempValue > dstCard.getValue()) { //Adjacent card improved
-                                        animateCardImprove(swapIndex);
-                                        animateCardSuffer(destination);
-                                    } else if (tempValue < dstCard.getValue()) { //Adjacent card value decreased
-                                        animateCardSuffer(swapIndex);
-                                        animateCardImprove(destination);
-                                    } else { //Equality
-                                        animateCardImprove(swapIndex);
-                                        animateCardImprove(destination);
-                                    }
-                                    break;
-                                }
-                            } //TODO miss
-                            destroyCard(srcPosition);
-                            break;
-                        case MORPH:
-                            Card randomCard = Card.random();
-                            if (destination < 10 && randomCard.getType() == Card.Type.MONSTER) {
-                                randomCard.setActive(mRowTop[destination].getCard().isActive());
-                            }
-                            animateCardTransform(destination, randomCard);
-                            destroyCard(srcPosition);
-                            break;
-                        case FORTIFY:
-                            dstCard.setValue(dstCard.getValue() + srcCard.getValue());
-                            animateCardImprove(destination);
-                            destroyCard(srcPosition);
-                            break;
-                        case MIDAS:
-                            Card coinCard = Card.clone(dstCard);
-                            switch (dstCard.getType()) {
-                                case MONSTER:
-                                    coinCard.setValue(dstCard.getValue() / 2);
-                                    break;
-                                case ABILITY:
-                                    coinCard.setValue(dstCard.getValue() * 2);
-                                    break;
-                            }
-                            coinCard.setInitialValue(coinCard.getValue());
-                            coinCard.setType(Card.Type.COIN);
-                            coinCard.setActive(true);
-                            animateCardTransform(destination, coinCard);
-                            destroyCard(srcPosition);
-                            break;
-                        case DEVOUR:
-                            Card specialCard = Card.getSpecial();
-                            animateCardTransform(destination, specialCard);
-                            destroyCard(srcPosition);
-                            break;
-                        case TRAP:
-                            animateCardDisable(destination);
-                            destroyCard(srcPosition);
-                            break;
-                        case LIFE:
-                            hero.setValue(hero.getValue() + srcCard.getValue());
-                            if (hero.getValue() > Card.HERO_MAX + mHealthAddition) {
-                                mHealthAddition = hero.getValue() - Card.HERO_MAX;
-                            }
-                            animateCardImprove(LOC_HERO);
-                            destroyCard(srcPosition);
-                            break;
-                        case BLEED:
-                            if (mDamageTakenDuringTurn > 0) {
-                                addCoins(mDamageTakenDuringTurn);
-                            } //TODO miss
-                            destroyCard(srcPosition);
-                            break;
-//TODO                        case WORSHIP:
-//                            destroyCard(srcPosition);
-//                            break;
-                        case BLOODPACT:
-                            Card heroCard = mRowBottom[1].getCard();
-                            int tempHp = dstCard.getValue();
-                            dstCard.setValue(heroCard.getValue());
-                            if (tempHp > dstCard.getValue()) { //Hero health increased
-                                heroCard.setValue(tempHp);
-                                animateCardImprove(LOC_HERO);
-                                animateCardSuffer(destination);
-                            } else { //Mob health increased\
-                                takeDamage(dstCard.getValue() - tempHp);
-                                animateCardImprove(destination);
-                            } //TODO miss
-                            destroyCard(srcPosition);
-                            break;
-                        case BOUNTY:
-                            if (mBountyTargetsDelivered > 0) {
-                                addCoins(mBountyTargetsDelivered * srcCard.getValue());
-                            } //TODO miss
-                            destroyCard(srcPosition);
-                            break;
-                        case EQUALIZE:
-                            for (int i = 0; i < 4; i++) {
-                                Card card = mRowTop[i].getCard();
-                                if (Math.abs(i - destination) == 1 && card != null && card.getValue() > 0) {
-                                    if (card.getValue() <= dstCard.getValue()) { //Card increased value
-                                        animateCardImprove(i);
-                                    } else { //Value decreased
-                                        animateCardSuffer(i);
-                                    }
-                                    card.setValue(dstCard.getValue());
-                                }
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case DIGGER:
-                            destroyCard(srcPosition);
-                            for (int count = 0; count < 3 && mGraveyard.size() > 0; count++) {
-                                int random = (int) (Math.random() * mGraveyard.size());
-                                Card resedCard = Card.clone(mGraveyard.get(random));
-                                resedCard.restoreState();
-                                animateReceiveCard(resedCard, count + 10, true);
-                                mGraveyard.remove(random);
-                            }
-                            break;
-                        case MIRROR:
-                            Card mirroredCard = Card.clone(dstCard);
-                            mirroredCard.restoreState();
-                            animateReceiveCard(mirroredCard, destination, true);
-                            destroyCard(srcPosition);
-                            break;
-                        case POISON:
-                            dstCard.setAbility(Card.Ability.POISON);
-                            dstCard.setActive(true);
-                            animateCardImprove(destination);
-                            destroyCard(srcPosition);
-                            break;
-                        case DOOM:
-                            destroyCard(srcPosition);
-                            for (int i = 0; i < 4; i++) {
-                                if (mRowTop[i].getCard() != null) {
-                                    animateCardCrack(mRowTop[i].getCard(), i);
-                                }
-                                if (i == 1) { //Hero card
-                                    takeDamage(mRowBottom[i].getCard().getValue() - 1);
-                                    continue;
-                                }
-                                if (mRowBottom[i].getCard() != null) {
-                                    animateCardCrack(mRowBottom[i].getCard(), i + 10);
-                                }
-                            }
-                            break;
-                        case BRIBE:
-                            addCoins(-Math.min(mCoins, dstCard.getValue()));
-                            animateReceiveCard(dstCard, destination, false);
-                            destroyCard(dstPosition);
-                            destroyCard(srcPosition);
-                            break;
-                        case STAB:
-                            int stabTarget;
-                            do {
-                                stabTarget = (int) (Math.random() * 4);
-                            } while (mRowTop[stabTarget].getCard() == null);
-                            for (int i = 0; i < 4; i++) {
-                                Card card = mRowTop[i].getCard();
-                                if (i == stabTarget) {
-                                    animateCardCrack(card, stabTarget);
-                                } else {
-                                    if (card != null) {
-                                        animateReceiveCard(card, i, true);
-                                        destroyCard(mRowTop[i]);
-                                    }
-                                }
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case HEIST:
-                            for (int count = 0; count < 3 && mShop.size() > 0; count++) {
-                                int random = (int) (Math.random() * mShop.size());
-                                Card resedCard = Card.clone(mShop.get(random));
-                                resedCard.restoreState();
-                                animateReceiveCard(resedCard, count + 10, true);
-                                mShop.remove(random);
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case TAME:
-                            dstCard.setType(Card.Type.MONSTER_TAMED);
-                            animateCardSuffer(destination);
-                            destroyCard(srcPosition);
-                            break;
-                        case FEAST:
-                            int feastedValue = 0;
-                            for (int i = 0; i < 4; i++) {
-                                Card card = mRowTop[i].getCard();
-                                if (Math.abs(i - destination) == 1 && card != null && card.getValue() > 0) {
-                                    feastedValue += card.getValue();
-                                }
-                            }
-                            if (feastedValue > 0) {
-                                animateCardImprove(destination);
-                                dstCard.setValue(dstCard.getValue() + feastedValue);
-                            } //TODO miss
-                            destroyCard(srcPosition);
-                            break;
-                        case CHAOS:
-                            ArrayList<Integer> valuedPositions = new ArrayList<>();
-                            ArrayList<Integer> valuedValues = new ArrayList<>();
-                            for (int i = 0; i < 4; i++) {
-                                Card card = mRowTop[i].getCard();
-                                if (card != null && card.getValue() > 0) {
-                                    valuedPositions.add(i);
-                                    valuedValues.add(card.getValue());
-                                }
-                                card = mRowBottom[i].getCard();
-                                if (card != null && card.getValue() > 0) {
-                                    valuedPositions.add(i + 10);
-                                    valuedValues.add(card.getValue());
-                                }
-                            }
-                            Collections.shuffle(valuedValues);
-                            for (int i = 0; i < valuedPositions.size(); i++) {
-                                int position = valuedPositions.get(i);
-                                int value = valuedValues.get(i);
-                                Card card = position < 10 ? mRowTop[position].getCard() : mRowBottom[position - 10].getCard();
-                                if (position == LOC_HERO && card.getValue() > value) { //Damage to Hero card
-                                    takeDamage(card.getValue() - value);
-                                    continue;
-                                }
-                                if (card.getValue() > value) {
-                                    animateCardSuffer(position);
-                                } else {
-                                    animateCardImprove(position);
-                                }
-                                card.setValue(value);
-                            }
-                            destroyCard(srcPosition);
-                            break;
-                        case FAITH:
-                            mFaithCardsAwaiting += srcCard.getValue();
-                            animateCardImprove(destination);
-                            destroyCard(srcPosition);
-                            break;
-                        case CHAMPION:
-                            destroyCard(srcPosition);
-                            while (mDeck.size() > 0) {
-                                mDeck.deal();
-                            }
-                            for (int i = 0; i < 4; i++) {
-                                if (mRowTop[i].getCard() != null) {
-                                    animateReceiveCard(mRowTop[i].getCard(), i, false);
-                                    destroyCard(mRowTop[i]);
-                                }
-                                if (i != 1 && mRowBottom[i].getCard() != null) {
-                                    animateDropCard(mRowBottom[i].getCard(), i + 10);
-                                    destroyCard(mRowBottom[i]);
-                                }
-                            }
-                            break;
-                    }
+    private void applyQueuedMoves() {
+        while (mMoveQueueSize > 0 && !isDragging && mDragReturnTime <= 0 && !mTimeline.isActive(BUSY_GROUPS)) {
+            int move = mMoveQueue[0];
+            int card = mMoveQueueCards[0];
+            mMoveQueueSize--;
+            System.arraycopy(mMoveQueue, 1, mMoveQueue, 0, mMoveQueueSize);
+            System.arraycopy(mMoveQueueCards, 1, mMoveQueueCards, 0, mMoveQueueSize);
+            int source = Move.getSource(move);
+            if (mEngine.isGameOver() || mEngine.isHeroWon() || mEngine.getPackedCard(source) != card || !mEngine.canTouchThis(source)) {
+                continue;
+            }
+            if (Move.isDiscard(move)) {
+                if (mEngine.canDiscardThis(source)) {
+                    mEngine.doDiscard(source);
                 }
-                break;
+            } else if (mEngine.canReceiveThis(source, Move.getDestination(move))) {
+                mEngine.doReceive(source, Move.getDestination(move));
+            }
+            invalidate();
         }
-        processMove();
     }
 
     /**
-     * Apply damage to Hero card
-     * @param amount Damage to inflict
+     * Play all current animations to the end at once
      */
-    private void takeDamage(int amount) {
-        if (!isDamageTakenDuringTurn) {
-            mDamageTakenDuringTurn = 0;
-            isDamageTakenDuringTurn = true;
-        }
-        mDamageTakenDuringTurn += amount;
-        mRowBottom[1].getCard().setValue(Math.max(0, mRowBottom[1].getCard().getValue() - amount));
-        animateCardSuffer(LOC_HERO);
+    private void fastForward() {
+        mTimeline.setPausedLanes(GROUP_CARD, 0);
+        for (int i = 0; i < MAX_FAST_FORWARD_STEPS && mTimeline.isActive(ANY_GROUP); i++) {
+            mTimeline.update(FAST_FORWARD_STEP);
+        }
     }
 
+    //----------------------------------------------------------------------------------------------
+
     /**
-     * Destroy card at specified position, moving it to the graveyard
-     * @param position Card position
+     * Start searching for the best move in the current position
      */
-    private void destroyCard(Position position) {
-        Card card = position.getCard();
-        if (card != null) {
-            mGraveyard.add(card);
-            if (card.getType() == Card.Type.MONSTER && card.getAbility() == Card.Ability.BOUNTY) {
-                mBountyTargetsDelivered++;
-            }
-            position.setCard(null);
+    private void requestHint() {
+        if (mHintSearch == null) {
+            mHintSearch = new HintSearch(mHintListener);
         }
+        mHintMove = Move.NONE;
+        isHintSearching = true;
+        mHintGeneration = mHintSearch.start(mEngine);
+        invalidate();
     }
 
     /**
-     * Adds coins to hero bank
-     * @param amount Number of coins to add
+     * Stop searching for the best move and hide the hint
      */
-    private void addCoins(int amount) {
-        if (isCoinAnimated && mCoinAnimation != null) {
-            ((CoinAddAnimation) mCoinAnimation).addAmount(amount);
-        } else {
-            isCoinAnimated = true;
-            mCoinAnimation = new CoinAddAnimation(amount);
+    private void cancelHint() {
+        if (mHintSearch != null && isHintSearching) {
+            mHintSearch.cancel();
         }
-        invalidate();
+        mHintGeneration = 0;
+        mHintMove = Move.NONE;
+        isHintSearching = false;
     }
 
     /**
-     * Discards card
-     * @param location Card location
+     * Defines whether location is a part of the hinted move
+     * @param location Coordinate number of card position
+     * @return true if hint involves location
      */
-    private void doDiscard(int location) {
-        Position position = location >= 10 ? mRowBottom[location - 10] : mRowTop[location];
-        Card card = position.getCard();
+    private boolean isHinted(int location) {
+        return mHintMove != Move.NONE && (Move.getSource(mHintMove) == location || Move.getDestination(mHintMove) == location);
+    }
 
-        switch (card.getType()) {
-            case ABILITY:
-                animateCardDiscard(location);
-                break;
-            case WEAPON:
-            case SHIELD:
-            case POTION:
-                addCoins(card.getValue());
-                mShop.add(card);
-                animateCardDiscard(location);
-                break;
-            case COIN:
-                animateCardDiscard(location);
-                break;
+    /**
+     * Listener which receives best moves from the search thread
+     */
+    private HintSearch.Listener mHintListener = new HintSearch.Listener() {
+        @Override
+        public void onHint(final int generation, final int move, final boolean isFinal) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation == mHintGeneration) { //Hint is still relevant
+                        mHintMove = move;
+                        isHintSearching = !isFinal;
+                        invalidate();
+                    }
+                }
+            });
         }
-    }
+    };
 
     /**
-     * Perform necessary calculations after each move
+     * Start estimating win probability if the position has changed since the last estimate
+     * (should be called only when no effects are running)
      */
-    private void processMove() {
-        if (mCardAnimationCount > 0 || mDealAnimationCount > 0 || mReceiveAnimationCount > 0 || isHeroAnimated) { //Animations in progress
+    private void requestEstimate() {
+        if (isDragging || mEngine.isGameOver() || mEngine.isHeroWon() || mEngine.getMoveCount() == mEstimateMoveCount) {
             return;
         }
-        if (isRestarting) { //Need to restart
-            return;
+        if (mWinEstimator == null) {
+            mWinEstimator = new WinEstimator(mEstimateListener);
         }
-        isFreshDeal = false;
-        Card hero = mRowBottom[1].getCard();
-        if (hero.getValue() <= 0) { //Check hero health
-            if (isNeedToReviveHero) { //Can be revived
-                hero.setValue(1);
-                animateCardImprove(LOC_HERO);
-                isNeedToReviveHero = false;
-                return;
-            } else { //Actual death
-                animateHeroVanish();
-                return;
-            }
+        mEstimateMoveCount = mEngine.getMoveCount();
+        isEstimating = true;
+        mEstimateGeneration = mWinEstimator.start(mEngine);
+    }
+
+    /**
+     * Start estimating win probability if no effects are running (board is settled)
+     */
+    private void estimateWhenSettled() {
+        if (mDragReturnTime <= 0 && !mTimeline.isActive(ANY_GROUP)) {
+            requestEstimate();
         }
-        if (mDeck.size() == 0) { //Check deck size
-            boolean win = true;
-            for (int i = 0; i < 4; i++) {
-                if (mRowTop[i].getCard() != null && mRowTop[i].getCard().isActive()) {
-                    win = false;
-                    break;
-                }
-            }
-            if (win) {
-                animateHeroWin();
-                return;
-            }
+    }
+
+    /**
+     * Stop estimating win probability (last estimate stays visible)
+     */
+    private void cancelEstimate() {
+        if (mWinEstimator != null && isEstimating) {
+            mWinEstimator.cancel();
         }
+        mEstimateGeneration = 0;
+        isEstimating = false;
+    }
 
-        int emptyTop = 0;
-        for (int i = 0; i < 4; i++) {
-            if (mRowTop[i] != null && (mRowTop[i].getCard() == null || !mRowTop[i].getCard().isActive())) {
-                emptyTop++;
-                if (emptyTop >= 3) {
-                    dealTopRow();
-                    break;
+    /**
+     * Listener which receives win probability estimates from the search thread
+     */
+    private WinEstimator.Listener mEstimateListener = new WinEstimator.Listener() {
+        @Override
+        public void onEstimate(final int generation, final float probability, final boolean isFinal) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation == mEstimateGeneration) { //Estimate is still relevant
+                        mWinProbability = probability;
+                        isEstimating = !isFinal;
+                        invalidate();
+                    }
                 }
-            }
+            });
+        }
+    };
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mChoreographer.removeFrameCallback(mFrameCallback);
+        isFrameScheduled = false;
+        mLastFrameTime = 0;
+        cancelHint();
+        cancelEstimate();
+        mEstimateMoveCount = -1;
+        if (mHintSearch != null) {
+            mHintSearch.shutdown();
+            mHintSearch = null;
+        }
+        if (mWinEstimator != null) {
+            mWinEstimator.shutdown();
+            mWinEstimator = null;
         }
     }
 
@@ -1303,11 +703,29 @@ public class BoardView extends View {
 
         int res = cw * 4 / 15;
         mRestartButton = new RectF(width - pHorz - res, pVert, width - pHorz, pVert + res);
+        mHintButton = new RectF(pHorz, pVert, pHorz + res, pVert + res);
+
+        mFacePadding = (int) Math.ceil(STROKE_WIDTH);
+        if (cw != mFaceCardWidth) { //Cached faces do not fit anymore
+            mFaceCardWidth = cw;
+            mFaceCache.clear();
+            mShardPool.clear();
+            buildShardPaths(cw + mFacePadding * 2, ch + mFacePadding * 2);
+        }
+        for (int i = 0; i < 4; i++) { //Render faces of the cards on board in advance
+            getCardFace(mRowTop[i].getCard(), mRowTop[i].getRect(), CardState.REGULAR);
+            getCardFace(mRowBottom[i].getCard(), mRowBottom[i].getRect(), CardState.REGULAR);
+        }
 
         if (isBeginning) { //Beginning of the game
-            animateHeroAppear();
-            dealTopRow();
             isBeginning = false;
+            mEngine.start();
+            post(new Runnable() { //Cards are dealt at once in instant mode
+                @Override
+                public void run() {
+                    estimateWhenSettled();
+                }
+            });
         }
     }
 
@@ -1318,12 +736,118 @@ public class BoardView extends View {
     }
 
     /**
-     * Draw single card
+     * Draw single card (using cached face bitmap whenever possible)
      * @param canvas Canvas to draw to
+     * @param card   Card to draw (null for empty position)
      * @param rect   Rectangle to draw in
      * @param state  Current card state
      */
     private void drawCard(Canvas canvas, Card card, RectF rect, CardState state) {
+        Bitmap face = getCardFace(card, rect, state);
+        if (face != null) {
+            canvas.drawBitmap(face, rect.left - mFacePadding, rect.top - mFacePadding, mFacePaint);
+        } else {
+            renderCard(canvas, card, rect, state);
+        }
+    }
+
+    /**
+     * Get bitmap with rendered card face (rendered and cached on first request)
+     * @param card  Card to draw
+     * @param rect  Rectangle of the card
+     * @param state Current card state
+     * @return Bitmap (with padding for the border stroke) or null if card should be drawn directly
+     */
+    private Bitmap getCardFace(Card card, RectF rect, CardState state) {
+        if (card == null || rect == null || state == CardState.MOVED || card.getType() == Card.Type.HERO) { //Nothing to cache or face depends on game state
+            return null;
+        }
+        int width = (int) Math.ceil(rect.width());
+        int height = (int) Math.ceil(rect.height());
+        long key = ((long) width << 40) | ((long) state.ordinal() << 32) | (card.getBits() & 0xFFFFFFFFL);
+        Bitmap face = mFaceCache.get(key);
+        if (face == null) {
+            try {
+                face = Bitmap.createBitmap(width + mFacePadding * 2, height + mFacePadding * 2, Bitmap.Config.ARGB_8888);
+            } catch (OutOfMemoryError e) {
+                return null;
+            }
+            mFaceRect.set(mFacePadding, mFacePadding, mFacePadding + rect.width(), mFacePadding + rect.height());
+            mFaceCanvas.setBitmap(face);
+            renderCard(mFaceCanvas, card, mFaceRect, state);
+            mFaceCanvas.setBitmap(null);
+            mFaceCache.put(key, face);
+        }
+        return face;
+    }
+
+    /**
+     * Build paths of four triangular card shards (from each side to the center of the card)
+     * @param width  Width of the card face bitmap
+     * @param height Height of the card face bitmap
+     */
+    private void buildShardPaths(float width, float height) {
+        float[] xs = {0, width, width, 0};
+        float[] ys = {0, 0, height, height};
+        for (int i = 0; i < 4; i++) { //Left, top, right, bottom
+            Path path = new Path();
+            path.moveTo(xs[i], ys[i]);
+            path.lineTo(width / 2, height / 2);
+            path.lineTo(xs[(i + 3) % 4], ys[(i + 3) % 4]);
+            path.close();
+            mShardPaths[i] = path;
+        }
+    }
+
+    /**
+     * Cut card face bitmap into four shards
+     * @param face Card face bitmap
+     * @return Shard bitmaps (left and right ones are half as wide, top and bottom ones are half as high)
+     */
+    private Bitmap[] rasterizeShards(Bitmap face) {
+        int width = face.getWidth();
+        int height = face.getHeight();
+        Bitmap[] shards = null;
+        while (shards == null && mShardPool.size() > 0) {
+            shards = mShardPool.remove(mShardPool.size() - 1);
+            if (shards[1].getWidth() != width || shards[0].getHeight() != height) { //Left from another card size
+                shards = null;
+            }
+        }
+        if (shards == null) {
+            shards = new Bitmap[4];
+            try {
+                for (int i = 0; i < 4; i++) {
+                    shards[i] = i % 2 == 0 ?
+                            Bitmap.createBitmap((width + 1) / 2, height, Bitmap.Config.ARGB_8888) :
+                            Bitmap.createBitmap(width, (height + 1) / 2, Bitmap.Config.ARGB_8888);
+                }
+            } catch (OutOfMemoryError e) {
+                return null;
+            }
+        }
+        for (int i = 0; i < 4; i++) {
+            Bitmap shard = shards[i];
+            shard.eraseColor(Color.TRANSPARENT);
+            mFaceCanvas.setBitmap(shard);
+            mFaceCanvas.save();
+            mFaceCanvas.translate(i == 2 ? shard.getWidth() - width : 0, i == 3 ? shard.getHeight() - height : 0); //Right and bottom shards start in the middle
+            mFaceCanvas.clipPath(mShardPaths[i]);
+            mFaceCanvas.drawBitmap(face, 0, 0, null);
+            mFaceCanvas.restore();
+        }
+        mFaceCanvas.setBitmap(null);
+        return shards;
+    }
+
+    /**
+     * Render single card from primitives
+     * @param canvas Canvas to draw to
+     * @param card   Card to draw (null for empty position)
+     * @param rect   Rectangle to draw in
+     * @param state  Current card state
+     */
+    private void renderCard(Canvas canvas, Card card, RectF rect, CardState state) {
         float radius = rect.width() / 7;
         float cx = (rect.right + rect.left) / 2;
         float cy = (rect.top + rect.bottom) / 2;
@@ -1352,31 +876,46 @@ public class BoardView extends View {
 //                    canvas.drawLine(cx + radius * 3 / 6, cy + radius, cx + radius * 3 / 6 + radius / 3, cy + radius + radius / 3, mPaint);
                     int value = card.getValue();
                     if (value >= 24) {
-                        canvas.drawArc(new RectF(cx - radius * 7 / 6, cy + radius * 4 / 6 - radius * 2 / 3, cx + radius * 7 / 6, cy + radius * 4 / 3), 0, 180, false, mPaint);
+                        mArcRect.set(cx - radius * 7 / 6, cy + radius * 4 / 6 - radius * 2 / 3, cx + radius * 7 / 6, cy + radius * 4 / 3);
+                        canvas.drawArc(mArcRect, 0, 180, false, mPaint);
                     } else if (value >= 18) {
-                        canvas.drawArc(new RectF(cx - radius * 4 / 6 - radius * (value - 17) / 14, cy + radius * 4 / 6 - radius * 2 / 3, cx + radius * 4 / 6 + radius * (value - 17) / 14, cy + radius * 4 / 3), 0, 180, false, mPaint);
+                        mArcRect.set(cx - radius * 4 / 6 - radius * (value - 17) / 14, cy + radius * 4 / 6 - radius * 2 / 3, cx + radius * 4 / 6 + radius * (value - 17) / 14, cy + radius * 4 / 3);
+                        canvas.drawArc(mArcRect, 0, 180, false, mPaint);
                     } else if (value >= 10) {
-                        canvas.drawArc(new RectF(cx - radius * 4 / 6, cy + radius * 4 / 6 + radius * (13 - value) / 6, cx + radius * 4 / 6, cy + radius * 4 / 3), 0, 180, false, mPaint);
+                        mArcRect.set(cx - radius * 4 / 6, cy + radius * 4 / 6 + radius * (13 - value) / 6, cx + radius * 4 / 6, cy + radius * 4 / 3);
+                        canvas.drawArc(mArcRect, 0, 180, false, mPaint);
                     } else if (value >= 8) {
-                        canvas.drawArc(new RectF(cx - radius * 4 / 6 + radius * (10 - value) / 6, cy + radius * 7 / 6, cx + radius * 4 / 6 - radius * (10 - value) / 6, cy + radius * 4 / 3), 0, 180, false, mPaint);
+                        mArcRect.set(cx - radius * 4 / 6 + radius * (10 - value) / 6, cy + radius * 7 / 6, cx + radius * 4 / 6 - radius * (10 - value) / 6, cy + radius * 4 / 3);
+                        canvas.drawArc(mArcRect, 0, 180, false, mPaint);
                     } else if (value >= 5) {
                         canvas.drawLine(cx - radius * 2 / 6 - radius * (7 - value) / 6, cy + radius * 5 / 4, cx + radius * 2 / 6 + radius * (7 - value) / 6, cy + radius * 5 / 4, mPaint);
                     } else if (value >= 3) {
-                        canvas.drawArc(new RectF(cx - radius * 4 / 6 + radius * (value - 3) / 6, cy + radius * 7 / 6, cx + radius * 4 / 6 - radius * (value - 3) / 6, cy + radius * 4 / 3), 180, 180, false, mPaint);
+                        mArcRect.set(cx - radius * 4 / 6 + radius * (value - 3) / 6, cy + radius * 7 / 6, cx + radius * 4 / 6 - radius * (value - 3) / 6, cy + radius * 4 / 3);
+                        canvas.drawArc(mArcRect, 180, 180, false, mPaint);
                     } else if (value >= 0) {
-                        canvas.drawArc(new RectF(cx - radius * 4 / 6, cy + radius * 7 / 6, cx + radius * 4 / 6, cy + radius * 4 / 3 + radius * (3 - value) / 6), 180, 180, false, mPaint);
+                        mArcRect.set(cx - radius * 4 / 6, cy + radius * 7 / 6, cx + radius * 4 / 6, cy + radius * 4 / 3 + radius * (3 - value) / 6);
+                        canvas.drawArc(mArcRect, 180, 180, false, mPaint);
                     }
                     mPaint.setStyle(Paint.Style.FILL);
                     canvas.drawCircle(cx - radius * 2 / 3, cy - radius / 2, radius / 4, mPaint);
                     canvas.drawCircle(cx + radius * 2 / 3, cy - radius / 2, radius / 4, mPaint);
                     mTextPaint.setColor(COLOR_EMPH);
-                    text = String.format("%d/%d", value, Card.HERO_MAX + mHealthAddition);
-                    canvas.drawText(text, rect.right - mFontPadding - mTextPaint.measureText(text), rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
-                    text = String.format("\u2666%d", mCoins);
-                    canvas.drawText(text, rect.left + mFontPadding, rect.bottom - mFontSize - mFontPadding - mTextPaint.ascent(), mTextPaint);
+                    mText.clear().append(value).append('/').append(Card.HERO_MAX + mEngine.getHealthAddition());
+                    mText.draw(canvas, rect.right - mFontPadding - mText.measure(mTextPaint), rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
+                    mText.clear().append('\u2666').append(mCoins);
+                    mText.draw(canvas, rect.left + mFontPadding, rect.bottom - mFontSize - mFontPadding - mTextPaint.ascent(), mTextPaint);
                     mTextPaint.setColor(COLOR_SPECIAL);
-                    text = String.format("%s%s%s", isNeedToReflectDamage ? "\u2746" : "", isNeedToReviveHero ? "\u2665" : "", mFaithCardsAwaiting > 0 ? "\u271F" : "");
-                    canvas.drawText(text, rect.right - mFontPadding - mTextPaint.measureText(text), rect.bottom - mFontSize - mFontPadding - mTextPaint.ascent(), mTextPaint);
+                    mText.clear();
+                    if (mEngine.isNeedToReflectDamage()) {
+                        mText.append('\u2746');
+                    }
+                    if (mEngine.isNeedToReviveHero()) {
+                        mText.append('\u2665');
+                    }
+                    if (mEngine.getFaithCardsAwaiting() > 0) {
+                        mText.append('\u271F');
+                    }
+                    mText.draw(canvas, rect.right - mFontPadding - mText.measure(mTextPaint), rect.bottom - mFontSize - mFontPadding - mTextPaint.ascent(), mTextPaint);
                     break;
                 case MONSTER:
                 case MONSTER_TAMED:
@@ -1407,10 +946,10 @@ public class BoardView extends View {
                     canvas.drawLine(cx + radius / 3, cy + radius * 3 / 4, cx + radius * 2 / 3, cy + radius, mPaint);
 
                     mTextPaint.setColor(COLOR_REGULAR);
-                    text = String.valueOf(card.getValue());
-                    canvas.drawText(text, rect.right - mFontPadding - mTextPaint.measureText(text), rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
+                    mText.clear().append(card.getValue());
+                    mText.draw(canvas, rect.right - mFontPadding - mText.measure(mTextPaint), rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
                     mTextPaint.setTextSize(mFontSize * 9 / 10);
-                    text = String.valueOf(card.getName());
+                    text = card.getName();
                     canvas.drawText(text, (rect.right + rect.left - mTextPaint.measureText(text)) / 2, rect.bottom - mFontSize - mFontPadding - mTextPaint.ascent(), mTextPaint);
                     if (card.getType() == Card.Type.MONSTER_TAMED) {
                         mPaint.setColor(COLOR_REGULAR);
@@ -1436,8 +975,8 @@ public class BoardView extends View {
                     canvas.drawLine(x1, y3 + radius * 2 / 3, x1 - radius / 2, y3, mPaint);
                     canvas.drawLine(x1 - radius / 3, y3 - radius * 5 / 3, x1 + radius + radius / 3, y3 + radius / 3, mPaint);
                     mTextPaint.setColor(COLOR_REGULAR);
-                    text = String.valueOf(card.getValue());
-                    canvas.drawText(text, rect.left + mFontPadding, rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
+                    mText.clear().append(card.getValue());
+                    mText.draw(canvas, rect.left + mFontPadding, rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
                     if (card.getAbility() == Card.Ability.FRENZY) {
                         mTextPaint.setColor(COLOR_SPECIAL);
                         text = "\u2605";
@@ -1460,8 +999,8 @@ public class BoardView extends View {
                     canvas.drawLine(cx, y3, x1, y2, mPaint);
                     canvas.drawLine(x1, y2, x1, y1, mPaint);
                     mTextPaint.setColor(COLOR_REGULAR);
-                    text = String.valueOf(card.getValue());
-                    canvas.drawText(text, rect.left + mFontPadding, rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
+                    mText.clear().append(card.getValue());
+                    mText.draw(canvas, rect.left + mFontPadding, rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
                     if (card.getAbility() == Card.Ability.BASH) {
                         mTextPaint.setColor(COLOR_SPECIAL);
                         text = "\u2725";
@@ -1482,8 +1021,8 @@ public class BoardView extends View {
                     canvas.drawLine(x1, y1, x3, y1, mPaint);
                     canvas.drawLine(x3, y1, x3, y3, mPaint);
                     mTextPaint.setColor(COLOR_EMPH);
-                    text = String.valueOf(card.getValue());
-                    canvas.drawText(text, rect.left + mFontPadding, rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
+                    mText.clear().append(card.getValue());
+                    mText.draw(canvas, rect.left + mFontPadding, rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
                     if (card.getAbility() == Card.Ability.POISON) {
                         mTextPaint.setColor(COLOR_SPECIAL);
                         text = "\u2668";
@@ -1499,18 +1038,18 @@ public class BoardView extends View {
                     float rad = radius * 3 / (2 * (float) Math.sqrt(2));
                     canvas.drawLine(cx + rad, cy - rad, cx - rad, cy + rad, mPaint);
                     mTextPaint.setColor(COLOR_EMPH);
-                    text = String.format("%d", card.getValue());
-                    canvas.drawText(text, rect.left + mFontPadding, rect.bottom - mFontSize - mFontPadding - mTextPaint.ascent(), mTextPaint);
+                    mText.clear().append(card.getValue());
+                    mText.draw(canvas, rect.left + mFontPadding, rect.bottom - mFontSize - mFontPadding - mTextPaint.ascent(), mTextPaint);
                 }
                 break;
                 case ABILITY: {
                     mTextPaint.setColor(COLOR_SPECIAL);
                     if (card.getValue() > 0) {
-                        text = String.valueOf(card.getValue());
-                        canvas.drawText(text, rect.left + mFontPadding, rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
+                        mText.clear().append(card.getValue());
+                        mText.draw(canvas, rect.left + mFontPadding, rect.top + mFontPadding - mTextPaint.ascent(), mTextPaint);
                     }
                     mTextPaint.setTextSize(mFontSize * 9 / 10);
-                    text = String.valueOf(card.getName());
+                    text = card.getName();
                     canvas.drawText(text, (rect.right + rect.left - mTextPaint.measureText(text)) / 2, (rect.bottom + rect.top - mTextPaint.ascent()) / 2, mTextPaint);
                 }
                 break;
@@ -1544,7 +1083,7 @@ public class BoardView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        if (canvas.getWidth() == 0 || canvas.getHeight() == 0 || mDeck == null) { //Not inflated yet
+        if (canvas.getWidth() == 0 || canvas.getHeight() == 0 || mEngine == null) { //Not inflated yet
             return;
         }
 
@@ -1555,28 +1094,28 @@ public class BoardView extends View {
 
         for (int i = 0; i < 4; i++) { //Draw top row
             if (mRowTop[i] != null) {
-                if (mCardAnimationCount > 0 && mCardAnimationTop[i] != null) {
+                if (isCardEffectDrawn(i)) {
                     continue;
                 }
                 drawPosition(canvas, mRowTop[i],
-                        mTouchedLocation == i ? ((isDragging || mDragReturnTicks > 0 || isDiscarding) ? CardState.MOVED : CardState.TOUCHED) :
-                                isDragging ? canReceiveThis(mTouchedLocation, i) ? CardState.RECEIVING : CardState.REGULAR
-                                        : CardState.REGULAR);
+                        mTouchedLocation == i ? ((isDragging || mDragReturnTime > 0 || isDiscarding()) ? CardState.MOVED : CardState.TOUCHED) :
+                                isDragging ? mEngine.canReceiveThis(mTouchedLocation, i) ? CardState.RECEIVING : CardState.REGULAR
+                                        : isHinted(i) || isQueuedSource(i) ? CardState.RECEIVING : CardState.REGULAR);
             }
         }
         for (int i = 0; i < 4; i++) { //Draw bottom row
             if (mRowBottom[i] != null) {
-                if (i == 1 && (isHeroAnimated || isHeroWon) && !isCoinAnimated) {
+                if (i == 1 && (mTimeline.isActive(1 << GROUP_HERO) || mEngine.isHeroWon()) && !mTimeline.isActive(1 << GROUP_COIN)) {
                     drawPosition(canvas, mRowBottom[i], CardState.MOVED);
                     continue;
                 }
-                if (mCardAnimationCount > 0 && mCardAnimationBottom[i] != null) {
+                if (isCardEffectDrawn(10 + i)) {
                     continue;
                 }
                 drawPosition(canvas, mRowBottom[i],
-                        mTouchedLocation == 10 + i ? ((isDragging || mDragReturnTicks > 0 || isDiscarding) ? CardState.MOVED : CardState.TOUCHED) :
-                                isDragging ? canReceiveThis(mTouchedLocation, 10 + i) ? CardState.RECEIVING : CardState.REGULAR
-                                        : CardState.REGULAR);
+                        mTouchedLocation == 10 + i ? ((isDragging || mDragReturnTime > 0 || isDiscarding()) ? CardState.MOVED : CardState.TOUCHED) :
+                                isDragging ? mEngine.canReceiveThis(mTouchedLocation, 10 + i) ? CardState.RECEIVING : CardState.REGULAR
+                                        : isHinted(10 + i) || isQueuedSource(10 + i) ? CardState.RECEIVING : CardState.REGULAR);
             }
         }
 
@@ -1588,7 +1127,8 @@ public class BoardView extends View {
 //        }
 
         if (mDiscardBox != null) { //Discard box
-            mPaint.setColor(isDragging && canDiscardThis(mTouchedLocation) ? COLOR_SPECIAL : COLOR_REGULAR);
+            mPaint.setColor(isDragging ? mEngine.canDiscardThis(mTouchedLocation) ? COLOR_SPECIAL : COLOR_REGULAR
+                    : mHintMove != Move.NONE && Move.isDiscard(mHintMove) ? COLOR_SPECIAL : COLOR_REGULAR);
             mPaint.setStyle(Paint.Style.STROKE);
             mPaint.setStrokeWidth(STROKE_WIDTH);
             RectF rect = mDiscardBox.getRect();
@@ -1599,7 +1139,7 @@ public class BoardView extends View {
             mPaint.setStrokeWidth(STROKE_WIDTH);
         }
 
-        if ((isDragging || mDragReturnTicks > 0) && mTouchedLocation > -1) {
+        if ((isDragging || mDragReturnTime > 0) && mTouchedLocation > -1) {
             canvas.save();
             canvas.translate(mDragRelX, mDragRelY);
             drawPosition(canvas, mTouchedLocation < 10 ? mRowTop[mTouchedLocation] : mRowBottom[mTouchedLocation - 10], isDragging ? CardState.TOUCHED : CardState.REGULAR);
@@ -1609,87 +1149,23 @@ public class BoardView extends View {
         mTextPaint.setColor(COLOR_REGULAR);
         mTextPaint.setTextSize(mFontSize * 1.5f);
         mTextPaint.setTextAlign(Paint.Align.CENTER);
-        int cardsLeft = mDeck.size() + mDealAnimationCount;
-        canvas.drawText(String.valueOf(cardsLeft), canvas.getWidth() / 2, mTopPadding - mTextPaint.ascent(), mTextPaint);
-        mTextPaint.setTextAlign(Paint.Align.LEFT);
-
-        if (mReceiveAnimationCount > 0) { //Receive animations
-            for (int i = 0; i < 4; i++) {
-                if (mReceiveAnimationTop[i] != null) {
-                    mReceiveAnimationTop[i].draw(canvas);
-                }
-            }
-            for (int i = 0; i < 4; i++) {
-                if (mReceiveAnimationBottom[i] != null) {
-                    mReceiveAnimationBottom[i].draw(canvas);
-                    break;
-                }
-            }
-        }
-
-        if (mDropAnimationCount > 0) { //Drop animations
-            for (int i = 0; i < 4; i++) {
-                if (mDropAnimationBottom[i] != null) {
-                    mDropAnimationBottom[i].draw(canvas);
-                }
-            }
-        }
-
-        if (mDealAnimationCount > 0 && !isHeroAnimated /*&& mCardAnimationCount == 0*/ && mReceiveAnimationCount == 0 && mDropAnimationCount == 0) { //Deal animations
-            boolean check = false;
-            for (int i = 0; i < 4; i++) {
-                if (mDealAnimationBottom[i] != null) {
-                    mDealAnimationBottom[i].draw(canvas);
-                    check = true;
-                    break;
-                }
-            }
-            if (!check) {
-                for (int i = 0; i < 4; i++) {
-                    if (mDealAnimationTop[i] != null) {
-                        mDealAnimationTop[i].draw(canvas);
-                        break;
-                    }
-                }
-            }
-        }
-
-        if (mCardAnimationCount > 0) { //Card animations
-            for (int i = 0; i < 4; i++) {
-                if (mDragReturnTicks > 0 && mTouchedLocation == i) {
-                    drawPosition(canvas, mRowTop[i], CardState.MOVED);
-                } else {
-                    if (mCardAnimationTop[i] != null && !(mDragReturnTicks > 0 && mTouchedLocation == i)) {
-                        mCardAnimationTop[i].draw(canvas);
-                    } else if (mDisableAnimationTop[i] != null && mDealAnimationCount == 0 && !(mDragReturnTicks > 0 && mTouchedLocation == i)) {
-                        mDisableAnimationTop[i].draw(canvas);
-                    }
-                }
-                if (mDragReturnTicks > 0 && mTouchedLocation == 10 + i) {
-                    drawPosition(canvas, mRowBottom[i], CardState.MOVED);
-                } else {
-                    if (mCardAnimationBottom[i] != null && !(mDragReturnTicks > 0 && mTouchedLocation == 10 + i)) {
-                        mCardAnimationBottom[i].draw(canvas);
-                    } else if (mDisableAnimationBottom[i] != null && mDealAnimationCount == 0 && !(mDragReturnTicks > 0 && mTouchedLocation == 10 + i)) {
-                        mDisableAnimationBottom[i].draw(canvas);
-                    }
-                }
-            }
-        }
-
-        if (isHeroAnimated && mHeroAnimation != null && !isCoinAnimated) { //Hero animations
-            mHeroAnimation.draw(canvas);
-        }
-
-        if (isDiscarding && mDiscardAnimation != null) {
-            mDiscardAnimation.draw(canvas);
+        int cardsLeft = mEngine.getDeckSize() + mTimeline.getCount(GROUP_DEAL);
+        mText.clear().append(cardsLeft);
+        mText.draw(canvas, canvas.getWidth() / 2, mTopPadding - mTextPaint.ascent(), mTextPaint);
+        if (mWinProbability >= 0) { //Win probability gauge
+            float left = canvas.getWidth() / 2 + mText.measure(mTextPaint) / 2 + mFontPadding * 2;
+            float baseline = mTopPadding - mTextPaint.ascent();
+            mTextPaint.setTextSize(mFontSize);
+            mTextPaint.setTextAlign(Paint.Align.LEFT);
+            mTextPaint.setColor(isEstimating ? COLOR_SPECIAL : COLOR_EMPH);
+            mText.clear().append(Math.round(mWinProbability * 100)).append('%');
+            mText.draw(canvas, left, baseline, mTextPaint);
         }
+        mTextPaint.setTextAlign(Paint.Align.LEFT);
 
-        if (isCoinAnimated && mCoinAnimation != null) {
-            mCoinAnimation.draw(canvas);
-        }
+        mTimeline.draw(canvas); //Animations
 
-        if (isHeroWon) {
+        if (mEngine.isHeroWon()) {
             Position position = mRowBottom[1];
             RectF rect = position.getRect();
             float curRelX = (getMeasuredWidth() / 2 - rect.left - rect.width() / 2);
@@ -1701,7 +1177,21 @@ public class BoardView extends View {
             canvas.restore();
         }
 
-        if (isGameOver) {
+        if (mHintButton != null) { //Hint button
+            int color = isHintTouched ? COLOR_REGULAR : isHintSearching ? COLOR_SPECIAL : COLOR_BG_CARD;
+            mPaint.setStyle(Paint.Style.STROKE);
+            mPaint.setColor(color);
+            mPaint.setStrokeWidth(STROKE_WIDTH * 3 / 2);
+            canvas.drawCircle(mHintButton.centerX(), mHintButton.centerY(), mHintButton.width() / 2, mPaint);
+            mPaint.setStrokeWidth(STROKE_WIDTH);
+            mTextPaint.setColor(color);
+            mTextPaint.setTextSize(mHintButton.height() * 2 / 3);
+            mTextPaint.setTextAlign(Paint.Align.CENTER);
+            canvas.drawText("?", mHintButton.centerX(), mHintButton.centerY() - (mTextPaint.ascent() + mTextPaint.descent()) / 2, mTextPaint);
+            mTextPaint.setTextAlign(Paint.Align.LEFT);
+        }
+
+        if (mEngine.isGameOver()) {
             canvas.drawColor(0xdd000000);
         }
 
@@ -1714,193 +1204,180 @@ public class BoardView extends View {
             canvas.drawArc(mRestartButton, -20f, 270f, false, mPaint);
             canvas.drawLine(mRestartButton.left + mRestartButton.width() / 2, mRestartButton.top, mRestartButton.left + mRestartButton.width() / 8, mRestartButton.top - mRestartButton.height() / 8, mPaint);
             canvas.drawLine(mRestartButton.left + mRestartButton.width() / 2, mRestartButton.top, mRestartButton.left + mRestartButton.width() * 3 / 8, mRestartButton.top + mRestartButton.height() * 3 / 8, mPaint);
-            canvas.restore();
-            mPaint.setStrokeWidth(STROKE_WIDTH);
-        }
-
-        if (mDragReturnTicks > 0 || mDealAnimationCount > 0 || mReceiveAnimationCount > 0 || mDropAnimationCount > 0 || isHeroAnimated || mCardAnimationCount > 0 || isDiscarding || isCoinAnimated) { //Need to animate
-            this.postDelayed(mAnimationAction, 10);
-        }
-
-    }
-
-    //----------------------------------------------------------------------------------------------
-
-    /**
-     * Runnable object used for animations
-     */
-    private Runnable mAnimationAction = new Runnable() {
-        @Override
-        public void run() {
-            if (mDragReturnTicks > 0) { //Drag return animation
-                mDragRelX -= mDragSpeedX;
-                mDragRelY -= mDragSpeedY;
-                mDragReturnTicks--;
-                if (mDragReturnTicks <= 0) {
-                    resetTouchFeedback();
-                }
-            }
-            if (isHeroAnimated && !isCoinAnimated) {
-                mHeroAnimation.tick();
-                if (mHeroAnimation.isFinished()) {
-                    mHeroAnimation.finish();
-                    mHeroAnimation = null;
-                    isHeroAnimated = false;
-                }
-            }
-            if (isDiscarding) {
-                mDiscardAnimation.tick();
-                if (mDiscardAnimation.isFinished()) {
-                    mDiscardAnimation.finish();
-                    mDiscardAnimation = null;
-                    isDiscarding = false;
-                    isDiscarding = false;
-                    resetTouchFeedback();
-                    processMove();
-                }
-            }
-            if (mCardAnimationCount > 0) { //Card animations (includes disabled)
-                for (int i = 0; i < 4; i++) {
-                    Animation animation = mCardAnimationBottom[i];
-                    if (animation != null) {
-                        if (!(mDragReturnTicks > 0 && mTouchedLocation == 10 + i)) {
-                            animation.tick();
-                            if (animation.isFinished()) {
-                                animation.finish();
-                                mCardAnimationBottom[i] = null;
-                                mCardAnimationCount--;
-                            }
-                        }
-                    } else {
-                        animation = mDisableAnimationBottom[i];
-                        if (animation != null && mDealAnimationCount == 0 && !(mDragReturnTicks > 0 && mTouchedLocation == 10 + i)) {
-                            animation.tick();
-                            if (animation.isFinished()) {
-                                animation.finish();
-                                mDisableAnimationBottom[i] = null;
-                                mCardAnimationCount--;
-                            }
-                        }
-                    }
-                    animation = mCardAnimationTop[i];
-                    if (animation != null) {
-                        if (!(mDragReturnTicks > 0 && mTouchedLocation == i)) {
-                            animation.tick();
-                            if (animation.isFinished()) {
-                                animation.finish();
-                                mCardAnimationTop[i] = null;
-                                mCardAnimationCount--;
-                            }
-                        }
-                    } else {
-                        animation = mDisableAnimationTop[i];
-                        if (animation != null && mDealAnimationCount == 0 && !(mDragReturnTicks > 0 && mTouchedLocation == i)) {
-                            animation.tick();
-                            if (animation.isFinished()) {
-                                animation.finish();
-                                mDisableAnimationTop[i] = null;
-                                mCardAnimationCount--;
-                            }
-                        }
-                    }
-                }
-                if (mCardAnimationCount == 0) {
-                    processMove();
+            canvas.restore();
+            mPaint.setStrokeWidth(STROKE_WIDTH);
+        }
+
+        if (mDragReturnTime > 0 || mTimeline.isActive(ANY_GROUP)) { //Need to animate
+            if (!isFrameScheduled) {
+                if (mLastFrameTime == 0) { //Animation starts after idle period
+                    mLastFrameTime = System.nanoTime();
                 }
+                isFrameScheduled = true;
+                mChoreographer.postFrameCallback(mFrameCallback);
             }
-            if (isCoinAnimated) { //Coin animation
-                if (mCoinAnimation != null) {
-                    mCoinAnimation.tick();
-                    if (mCoinAnimation.isFinished()) {
-                        mCoinAnimation.finish();
-                        mCoinAnimation = null;
-                        isCoinAnimated = false;
-                    }
-                }
-                if (!isCoinAnimated) {
-                    processMove();
+        } else {
+            mLastFrameTime = 0;
+        }
+
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Frame callback used for animations (animations are advanced by the time passed since the previous frame)
+     */
+    private Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            isFrameScheduled = false;
+            long elapsed = Math.max(0, Math.min(frameTimeNanos - mLastFrameTime, MAX_FRAME_TIME));
+            mLastFrameTime = frameTimeNanos;
+            if (mDragReturnTime > 0) { //Drag return animation
+                mDragReturnTime = Math.max(0, mDragReturnTime - elapsed);
+                mDragRelX = mDragReturnX * mDragReturnTime / mDragReturnDuration;
+                mDragRelY = mDragReturnY * mDragReturnTime / mDragReturnDuration;
+                if (mDragReturnTime <= 0) {
+                    resetTouchFeedback();
                 }
             }
-            if (mReceiveAnimationCount > 0) { //Receive animations
-                for (int i = 0; i < 4; i++) {
-                    Animation animation = mReceiveAnimationTop[i];
-                    if (animation != null) {
-                        animation.tick();
-                        if (animation.isFinished()) {
-                            animation.finish();
-                            mReceiveAnimationTop[i] = null;
-                            mReceiveAnimationCount--;
-                        }
+            int touchedLane = mDragReturnTime > 0 && mTouchedLocation > -1 ? getCardLane(mTouchedLocation) : -1;
+            mTimeline.setPausedLanes(GROUP_CARD, touchedLane > -1 ? 1 << touchedLane : 0); //Returning card is not affected
+            mTimeline.update(elapsed);
+            applyQueuedMoves();
+            estimateWhenSettled();
+            invalidate();
+        }
+    };
+
+    /**
+     * Listener which turns game engine effects into animations
+     */
+    private GameEngine.Listener mEngineListener = new GameEngine.Listener() {
+        @Override
+        public boolean isAnimating() {
+            return mTimeline.isActive(1 << GROUP_CARD | 1 << GROUP_DEAL | 1 << GROUP_RECEIVE | 1 << GROUP_HERO);
+        }
+
+        @Override
+        public void onEvents(EventBuffer events) {
+            for (int i = 0; i < events.size(); i++) {
+                int location = events.getLocation(i);
+                int card = events.getCard(i);
+                switch (events.getType(i)) {
+                    case EventBuffer.DEALT:
+                        animateDealCard(new Card(card), location);
                         break;
-                    }
-                }
-                for (int i = 0; i < 4; i++) {
-                    Animation animation = mReceiveAnimationBottom[i];
-                    if (animation != null) {
-                        animation.tick();
-                        if (animation.isFinished()) {
-                            animation.finish();
-                            mReceiveAnimationBottom[i] = null;
-                            mReceiveAnimationCount--;
-                        }
+                    case EventBuffer.RETURNED_TO_DECK:
+                        animateReceiveCard(new Card(card), location, events.getValue(i) != 0);
                         break;
-                    }
-                }
-                if (mReceiveAnimationCount == 0) {
-                    processMove();
-                }
-            }
-            if (mDropAnimationCount > 0) { //Drop animations
-                for (int i = 0; i < 4; i++) {
-                    Animation animation = mDropAnimationBottom[i];
-                    if (animation != null) {
-                        animation.tick();
-                        if (animation.isFinished()) {
-                            animation.finish();
-                            mDropAnimationBottom[i] = null;
-                            mDropAnimationCount--;
+                    case EventBuffer.DROPPED:
+                        animateDropCard(new Card(card), location);
+                        break;
+                    case EventBuffer.DAMAGED:
+                        if (!isShownLater(events, i)) {
+                            animateCardSuffer(location);
                         }
                         break;
-                    }
-                }
-                if (mDropAnimationCount == 0) {
-                    processMove();
-                }
-            }
-            if (mDealAnimationCount > 0 && !isHeroAnimated /*&& mCardAnimationCount == 0*/ && mReceiveAnimationCount == 0 && mDropAnimationCount == 0) { //Deal animations
-                boolean check = false;
-                for (int i = 0; i < 4; i++) {
-                    Animation animation = mDealAnimationBottom[i];
-                    if (animation != null) {
-                        animation.tick();
-                        if (animation.isFinished()) {
-                            animation.finish();
-                            mDealAnimationBottom[i] = null;
-                            mDealAnimationCount--;
+                    case EventBuffer.HEALED:
+                        if (!isShownLater(events, i)) {
+                            animateCardImprove(location);
                         }
-                        check = true;
                         break;
-                    }
-                }
-                if (!check) {
-                    for (int i = 0; i < 4; i++) {
-                        Animation animation = mDealAnimationTop[i];
-                        if (animation != null) {
-                            animation.tick();
-                            if (animation.isFinished()) {
-                                animation.finish();
-                                mDealAnimationTop[i] = null;
-                                mDealAnimationCount--;
-                            }
-                            break;
+                    case EventBuffer.DESTROYED:
+                        animateCardCrack(new Card(card), location);
+                        break;
+                    case EventBuffer.TRANSFORMED:
+                        animateCardTransform(location, new Card(card));
+                        break;
+                    case EventBuffer.DISABLED:
+                        animateCardDisable(location);
+                        break;
+                    case EventBuffer.DISCARDED:
+                        if (mTouchedLocation != location) { //Discarded by some other card
+                            isDragging = false;
+                            mDragRelX = 0;
+                            mDragRelY = 0;
+                            mTouchedLocation = location;
                         }
-                    }
+                        animateCardDiscard(location);
+                        break;
+                    case EventBuffer.COINS_ADDED:
+                        animateCoins(events.getValue(i));
+                        break;
+                    case EventBuffer.CARD_RETURNED:
+                        animateDragReturn();
+                        break;
+                    case EventBuffer.HERO_APPEARED:
+                        animateHeroAppear();
+                        break;
+                    case EventBuffer.HERO_VANISHED:
+                        animateHeroVanish();
+                        break;
+                    case EventBuffer.HERO_WON:
+                        animateHeroWin();
+                        break;
                 }
             }
-            invalidate();
+            events.remove(events.size());
         }
     };
 
+    /**
+     * Defines whether change of card value is shown by a later effect on the same location
+     * (several hits of one card are merged into a single animation)
+     * @param events Events to check
+     * @param index  Index of the event
+     * @return true if event does not need its own animation
+     */
+    private boolean isShownLater(EventBuffer events, int index) {
+        int location = events.getLocation(index);
+        for (int i = index + 1; i < events.size(); i++) {
+            if (events.getLocation(i) == location) {
+                switch (events.getType(i)) {
+                    case EventBuffer.DAMAGED:
+                    case EventBuffer.HEALED:
+                    case EventBuffer.DESTROYED:
+                    case EventBuffer.TRANSFORMED:
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Start returning dragged card to its position
+     */
+    private void animateDragReturn() {
+        if (mEngine.isInstant()) {
+            mDragRelX = 0;
+            mDragRelY = 0;
+            mDragReturnTime = 0;
+            return;
+        }
+        float distance = (float) Math.sqrt(mDragRelX * mDragRelX + mDragRelY * mDragRelY);
+        mDragReturnDuration = (int) (distance / mDragReturnSpeed) * Animation.FRAME;
+        mDragReturnTime = mDragReturnDuration;
+        mDragReturnX = mDragRelX;
+        mDragReturnY = mDragRelY;
+    }
+
+    /**
+     * Start coin adding animation
+     * @param amount Number of coins to add
+     */
+    private void animateCoins(int amount) {
+        if (mEngine.isInstant()) {
+            mCoins += amount;
+        } else if (mTimeline.isActive(1 << GROUP_COIN)) { //Coins are added to the running animation
+            ((CoinAddAnimation) mTimeline.getHead(GROUP_COIN, 0)).addAmount(amount);
+        } else {
+            mTimeline.add(GROUP_COIN, 0, 0, new CoinAddAnimation(amount));
+        }
+        invalidate();
+    }
+
     /**
      * Start card dealing animation
      * @param card   Card to deal
@@ -1908,16 +1385,15 @@ public class BoardView extends View {
      */
     private void animateDealCard(Card card, int target) {
         Position position = (target < 10 ? mRowTop[target] : mRowBottom[target - 10]);
-        if (card != null) { //Has card to deal
-            mDealAnimationCount++;
-            if (target < 10) {
-                mDealAnimationTop[target] = new DeckDealAnimation(card, position);
-            } else {
-                mDealAnimationBottom[target - 10] = new DeckDealAnimation(card, position);
-            }
-        } else {
-            position.setCard(null);
+        int blockers = 0; //Only wait for the card which still leaves the same position
+        if (mTimeline.isQueued(GROUP_RECEIVE, target < 10 ? 0 : 1, target % 10)) {
+            blockers |= 1 << GROUP_RECEIVE;
+        }
+        if (target >= 10 && mTimeline.isQueued(GROUP_DROP, 0, target - 10)) {
+            blockers |= 1 << GROUP_DROP;
         }
+        long delay = mDealStagger * mTimeline.getCount(GROUP_DEAL);
+        mTimeline.add(GROUP_DEAL, getCardLane(target), 0, new DeckDealAnimation(card, position), blockers, delay);
         invalidate();
     }
 
@@ -1929,12 +1405,7 @@ public class BoardView extends View {
     private void animateReceiveCard(Card card, int source, boolean returnToDeck) {
         Position position = (source < 10 ? mRowTop[source] : mRowBottom[source - 10]);
         if (card != null) { //Has card to deal
-            mReceiveAnimationCount++;
-            if (source < 10) {
-                mReceiveAnimationTop[source] = new DeckReceiveAnimation(card, position, returnToDeck);
-            } else {
-                mReceiveAnimationBottom[source - 10] = new DeckReceiveAnimation(card, position, returnToDeck);
-            }
+            mTimeline.add(GROUP_RECEIVE, source < 10 ? 0 : 1, source % 10, new DeckReceiveAnimation(card, position, returnToDeck));
         }
         invalidate();
     }
@@ -1946,13 +1417,8 @@ public class BoardView extends View {
      */
     private void animateDropCard(Card card, int source) {
         Position position = (source < 10 ? mRowTop[source] : mRowBottom[source - 10]);
-        if (card != null) { //Has card to deal
-            mDropAnimationCount++;
-            if (source < 10) {
-//                mDropAnimationTop[source] = new DeckDropAnimation(card, position);
-            } else {
-                mDropAnimationBottom[source - 10] = new DeckDropAnimation(card, position);
-            }
+        if (card != null && source >= 10) { //Has card to deal (only bottom row cards are dropped)
+            mTimeline.add(GROUP_DROP, 0, source - 10, new DeckDropAnimation(card, position));
         }
         invalidate();
     }
@@ -1964,12 +1430,7 @@ public class BoardView extends View {
      */
     private void animateCardCrack(Card card, int target) {
         Position position = (target < 10 ? mRowTop[target] : mRowBottom[target - 10]);
-        mCardAnimationCount++;
-        if (target < 10) {
-            mCardAnimationTop[target] = new CardCrackAnimation(card, position);
-        } else {
-            mCardAnimationBottom[target - 10] = new CardCrackAnimation(card, position);
-        }
+        mTimeline.add(GROUP_CARD, getCardLane(target), KEY_CARD_EFFECT, new CardCrackAnimation(card, position));
         invalidate();
     }
 
@@ -1979,12 +1440,7 @@ public class BoardView extends View {
      */
     private void animateCardSuffer(int target) {
         Position position = (target < 10 ? mRowTop[target] : mRowBottom[target - 10]);
-        mCardAnimationCount++;
-        if (target < 10) {
-            mCardAnimationTop[target] = new CardSufferAnimation(position);
-        } else {
-            mCardAnimationBottom[target - 10] = new CardSufferAnimation(position);
-        }
+        mTimeline.add(GROUP_CARD, getCardLane(target), KEY_CARD_EFFECT, new CardSufferAnimation(position));
         invalidate();
     }
 
@@ -1994,12 +1450,7 @@ public class BoardView extends View {
      */
     private void animateCardImprove(int target) {
         Position position = (target < 10 ? mRowTop[target] : mRowBottom[target - 10]);
-        mCardAnimationCount++;
-        if (target < 10) {
-            mCardAnimationTop[target] = new CardImproveAnimation(position);
-        } else {
-            mCardAnimationBottom[target - 10] = new CardImproveAnimation(position);
-        }
+        mTimeline.add(GROUP_CARD, getCardLane(target), KEY_CARD_EFFECT, new CardImproveAnimation(position));
         invalidate();
     }
 
@@ -2010,12 +1461,7 @@ public class BoardView extends View {
      */
     private void animateCardTransform(int target, Card newCard) {
         Position position = (target < 10 ? mRowTop[target] : mRowBottom[target - 10]);
-        mCardAnimationCount++;
-        if (target < 10) {
-            mCardAnimationTop[target] = new CardTransformAnimation(target, position, newCard);
-        } else {
-            mCardAnimationBottom[target - 10] = new CardTransformAnimation(target, position, newCard);
-        }
+        mTimeline.add(GROUP_CARD, getCardLane(target), KEY_CARD_EFFECT, new CardTransformAnimation(target, position, newCard));
         invalidate();
     }
 
@@ -2025,12 +1471,7 @@ public class BoardView extends View {
      */
     private void animateCardDisable(int target) {
         Position position = (target < 10 ? mRowTop[target] : mRowBottom[target - 10]);
-        mCardAnimationCount++;
-        if (target < 10) {
-            mDisableAnimationTop[target] = new CardDisableAnimation(position);
-        } else {
-            mDisableAnimationBottom[target - 10] = new CardDisableAnimation(position);
-        }
+        mTimeline.add(GROUP_CARD, getCardLane(target), KEY_CARD_DISABLE, new CardDisableAnimation(position), 1 << GROUP_DEAL);
         invalidate();
     }
 
@@ -2038,9 +1479,7 @@ public class BoardView extends View {
      * Start hero appear animation
      */
     private void animateHeroAppear() {
-        mRowBottom[1].setCard(Card.getHero());
-        isHeroAnimated = true;
-        mHeroAnimation = new HeroAppearAnimation();
+        mTimeline.add(GROUP_HERO, 0, 0, new HeroAppearAnimation());
         invalidate();
     }
 
@@ -2048,8 +1487,7 @@ public class BoardView extends View {
      * Start hero disappear animation
      */
     private void animateHeroVanish() {
-        isHeroAnimated = true;
-        mHeroAnimation = new HeroVanishAnimation();
+        mTimeline.add(GROUP_HERO, 0, 0, new HeroVanishAnimation());
         invalidate();
     }
 
@@ -2057,8 +1495,7 @@ public class BoardView extends View {
      * Start hero win animation
      */
     private void animateHeroWin() {
-        isHeroAnimated = true;
-        mHeroAnimation = new HeroWinAnimation();
+        mTimeline.add(GROUP_HERO, 0, 0, new HeroWinAnimation());
         invalidate();
     }
 
@@ -2068,27 +1505,68 @@ public class BoardView extends View {
      */
     private void animateCardDiscard(int target) {
         Position position = (target < 10 ? mRowTop[target] : mRowBottom[target - 10]);
-        isDiscarding = true;
-        mDiscardAnimation = new CardDiscardAnimation(position);
+        mTimeline.add(GROUP_DISCARD, 0, 0, new CardDiscardAnimation(position));
         invalidate();
     }
 
+    /**
+     * Get lane of the card animation group which belongs to location
+     * @param location Coordinate number of card position
+     * @return Lane index
+     */
+    private int getCardLane(int location) {
+        return location < 10 ? location : 4 + location - 10;
+    }
+
+    /**
+     * Defines whether card at location is drawn by its effect animation instead of the position itself
+     * @param location Coordinate number of card position
+     * @return true if position should not be drawn
+     */
+    private boolean isCardEffectDrawn(int location) {
+        return mTimeline.getHeadKey(GROUP_CARD, getCardLane(location)) == KEY_CARD_EFFECT
+                && !(mDragReturnTime > 0 && mTouchedLocation == location);
+    }
+
+    /**
+     * Defines whether touched card is being discarded
+     * @return true if discard animation is played
+     */
+    private boolean isDiscarding() {
+        return mTimeline.isActive(1 << GROUP_DISCARD);
+    }
+
 
     //----------------------------------------------------------------------------------------------
 
     /**
      * Class which describes one position on the deck
      */
-    public static class Position {
-        private Card card;
+    public class Position {
+        private int location;
         private RectF rect;
+        private int packedCard = PackedCard.NONE;
+        private Card card;
 
-        public Card getCard() {
-            return card;
+        public Position(int location) {
+            this.location = location;
         }
 
-        public void setCard(Card card) {
-            this.card = card;
+        public int getLocation() {
+            return location;
+        }
+
+        /**
+         * Get card at this position (same object is returned until the card changes)
+         * @return Card or null if position is empty
+         */
+        public Card getCard() {
+            int packed = mEngine.getPackedCard(location);
+            if (packed != packedCard) {
+                packedCard = packed;
+                card = mEngine.getCard(location);
+            }
+            return card;
         }
 
         public void setRect(float left, float top, float right, float bottom) {
@@ -2131,51 +1609,31 @@ public class BoardView extends View {
     /**
      * Animation class for card dealing
      */
-    private class DeckDealAnimation implements Animation {
+    private class DeckDealAnimation extends TimedAnimation {
 
         private Card card;
         private Position position;
 
-        private float curRelX;
-        private float curRelY;
-        private float curScale;
-
-        private float dx;
-        private float dy;
-        private float ds;
-
-        private int ticksLeft;
+        private float startRelX;
+        private float startRelY;
+        private float startScale;
 
         public DeckDealAnimation(Card card, Position position) {
             this.card = card;
             this.position = position;
             RectF rect = position.getRect();
-            curRelX = mDeckPosition.left - rect.left;
-            curRelY = mDeckPosition.top - rect.top;
-            curScale = mDeckPosition.width() / rect.width();
-            ticksLeft = (int) (Math.sqrt(curRelX * curRelX + curRelY * curRelY) / mDragReturnSpeed);
-            dx = -curRelX / ticksLeft;
-            dy = -curRelY / ticksLeft;
-            ds = (1 - curScale) / ticksLeft;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curRelX += dx;
-            curRelY += dy;
-            curScale += ds;
-            ticksLeft--;
+            startRelX = mDeckPosition.left - rect.left;
+            startRelY = mDeckPosition.top - rect.top;
+            startScale = mDeckPosition.width() / rect.width();
+            setFrames((int) (Math.sqrt(startRelX * startRelX + startRelY * startRelY) / mDragReturnSpeed));
         }
 
         @Override
         public void draw(Canvas canvas) {
+            float progress = getProgress();
+            float curScale = startScale + (1 - startScale) * progress;
             canvas.save();
-            canvas.translate(curRelX, curRelY);
+            canvas.translate(startRelX * (1 - progress), startRelY * (1 - progress));
             canvas.scale(curScale, curScale, position.getRect().left, position.getRect().top);
             drawCard(canvas, card, position.getRect(), CardState.REGULAR);
             canvas.restore();
@@ -2183,7 +1641,7 @@ public class BoardView extends View {
 
         @Override
         public void finish() {
-            this.position.setCard(this.card);
+            mEngine.completeDeal(this.card, this.position.getLocation());
         }
 
     }
@@ -2193,55 +1651,35 @@ public class BoardView extends View {
     /**
      * Animation class for card dealing
      */
-    private class DeckReceiveAnimation implements Animation {
+    private class DeckReceiveAnimation extends TimedAnimation {
 
         private Card card;
         private Position position;
         private boolean returnToDeck;
 
-        private float curRelX;
-        private float curRelY;
-        private float curScale;
-
-        private float dx;
-        private float dy;
-        private float ds;
-
-        private int ticksLeft;
+        private float endRelX;
+        private float endRelY;
+        private float endScale;
 
         public DeckReceiveAnimation(Card card, Position position, boolean returnToDeck) {
             this.card = card;
             this.position = position;
             this.returnToDeck = returnToDeck;
             RectF rect = position.getRect();
-            curRelX = mDeckPosition.left - rect.left;
-            curRelY = mDeckPosition.top - rect.top;
-            ticksLeft = (int) (Math.sqrt(curRelX * curRelX + curRelY * curRelY) / mDragReturnSpeed);
-            curRelX = 0;
-            curRelY = 0;
-            curScale = 1;
-            dx = (rect.left - mDeckPosition.left) / ticksLeft;
-            dy = (rect.top - mDeckPosition.bottom) / ticksLeft;
-            ds = (1 - mDeckPosition.width() / rect.width()) / ticksLeft;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curRelX -= dx;
-            curRelY -= dy;
-            curScale -= ds;
-            ticksLeft--;
+            float distX = mDeckPosition.left - rect.left;
+            float distY = mDeckPosition.top - rect.top;
+            setFrames((int) (Math.sqrt(distX * distX + distY * distY) / mDragReturnSpeed));
+            endRelX = mDeckPosition.left - rect.left;
+            endRelY = mDeckPosition.bottom - rect.top;
+            endScale = mDeckPosition.width() / rect.width();
         }
 
         @Override
         public void draw(Canvas canvas) {
+            float progress = getProgress();
+            float curScale = 1 - (1 - endScale) * progress;
             canvas.save();
-            canvas.translate(curRelX, curRelY);
+            canvas.translate(endRelX * progress, endRelY * progress);
             canvas.scale(curScale, curScale, position.getRect().left, position.getRect().top);
             drawCard(canvas, card, position.getRect(), CardState.REGULAR);
             canvas.restore();
@@ -2249,9 +1687,7 @@ public class BoardView extends View {
 
         @Override
         public void finish() {
-            if (returnToDeck) {
-                mDeck.receive(this.card);
-            }
+            mEngine.completeReceive(this.card, returnToDeck);
         }
 
     }
@@ -2261,41 +1697,25 @@ public class BoardView extends View {
     /**
      * Animation class for card dropping
      */
-    private class DeckDropAnimation implements Animation {
+    private class DeckDropAnimation extends TimedAnimation {
 
         private Card card;
         private Position position;
 
-        private float curRelY;
-        private float dy;
-
-        private int ticksLeft;
+        private float endRelY;
 
         public DeckDropAnimation(Card card, Position position) {
             this.card = card;
             this.position = position;
             RectF rect = position.getRect();
-            curRelY = getMeasuredHeight() - rect.top;
-            ticksLeft = (int) (curRelY / mDragReturnSpeed * 2);
-            dy = curRelY / ticksLeft;
-            curRelY = 0;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curRelY += dy;
-            ticksLeft--;
+            endRelY = getMeasuredHeight() - rect.top;
+            setFrames((int) (endRelY / mDragReturnSpeed * 2));
         }
 
         @Override
         public void draw(Canvas canvas) {
             canvas.save();
-            canvas.translate(0, curRelY);
+            canvas.translate(0, endRelY * getProgress());
             drawCard(canvas, card, position.getRect(), CardState.REGULAR);
             canvas.restore();
         }
@@ -2311,36 +1731,18 @@ public class BoardView extends View {
     /**
      * Animation class for hero appearing
      */
-    private class HeroAppearAnimation implements Animation {
-
-        private float curRelHeight;
-        private float dh;
-
-        private int ticksLeft;
+    private class HeroAppearAnimation extends TimedAnimation {
 
         public HeroAppearAnimation() {
             RectF rect = mRowBottom[1].getRect();
-            curRelHeight = rect.bottom;
-            ticksLeft = (int) ((rect.bottom - rect.top) / mDragReturnSpeed * 6);
-            dh = -rect.height() / ticksLeft;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curRelHeight += dh;
-            ticksLeft--;
+            setFrames((int) ((rect.bottom - rect.top) / mDragReturnSpeed * 6));
         }
 
         @Override
         public void draw(Canvas canvas) {
             RectF rect = mRowBottom[1].getRect();
             canvas.save();
-            canvas.clipRect(rect.left, curRelHeight, rect.right, rect.bottom, Region.Op.INTERSECT);
+            canvas.clipRect(rect.left, rect.bottom - rect.height() * getProgress(), rect.right, rect.bottom, Region.Op.INTERSECT);
             drawPosition(canvas, mRowBottom[1], CardState.REGULAR);
             canvas.restore();
         }
@@ -2355,51 +1757,28 @@ public class BoardView extends View {
     /**
      * Animation class for hero disappearing
      */
-    private class HeroVanishAnimation implements Animation {
-
-        private float curRelHeight;
-        private float curTint;
-        private float dh;
-        private float dt;
-
-        private int ticksLeft;
+    private class HeroVanishAnimation extends TimedAnimation {
 
         public HeroVanishAnimation() {
             RectF rect = mRowBottom[1].getRect();
-            curRelHeight = rect.top;
-            ticksLeft = (int) ((rect.bottom - rect.top) / mDragReturnSpeed * 8);
-            curTint = 0;
-            dt = 221f / ticksLeft;
-            dh = rect.height() / ticksLeft;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curRelHeight += dh;
-            curTint += dt;
-            ticksLeft--;
+            setFrames((int) ((rect.bottom - rect.top) / mDragReturnSpeed * 8));
         }
 
         @Override
         public void draw(Canvas canvas) {
             RectF rect = mRowBottom[1].getRect();
+            float progress = getProgress();
             canvas.save();
-            canvas.clipRect(rect.left, curRelHeight, rect.right, rect.bottom, Region.Op.INTERSECT);
+            canvas.clipRect(rect.left, rect.top + rect.height() * progress, rect.right, rect.bottom, Region.Op.INTERSECT);
             drawPosition(canvas, mRowBottom[1], CardState.REGULAR);
             canvas.restore();
-            canvas.drawColor(Color.argb((int) curTint, 0, 0, 0));
+            canvas.drawColor(Color.argb((int) (221 * progress), 0, 0, 0));
         }
 
         @Override
         public void finish() {
-            destroyCard(mRowBottom[1]);
-            isGameOver = true;
-            if (isRestarting) {
+            mEngine.completeHeroVanish();
+            if (mEngine.isRestarting()) {
                 begin();
             }
         }
@@ -2412,14 +1791,14 @@ public class BoardView extends View {
      */
     private class CoinAddAnimation implements Animation {
 
-        private final int PERIOD = 3;
+        private final long PERIOD = 3 * FRAME;
 
         private int amount;
-        private int ticksLeft;
+        private long time;
 
         public CoinAddAnimation(int amount) {
             this.amount = amount;
-            this.ticksLeft = PERIOD;
+            this.time = 0;
         }
 
         public void addAmount(int amount) {
@@ -2432,9 +1811,9 @@ public class BoardView extends View {
         }
 
         @Override
-        public void tick() {
-            ticksLeft--;
-            if (ticksLeft <= 0) {
+        public void update(long elapsed) {
+            time += elapsed;
+            while (time >= PERIOD && amount != 0) {
                 if (amount > 0) { //Add coins
                     amount--;
                     mCoins++;
@@ -2442,7 +1821,7 @@ public class BoardView extends View {
                     amount++;
                     mCoins--;
                 }
-                ticksLeft = PERIOD;
+                time -= PERIOD;
             }
         }
 
@@ -2451,8 +1830,8 @@ public class BoardView extends View {
             RectF rect = mRowBottom[1].getRect();
             mTextPaint.setTextSize(mFontSize * 1.2f);
             mTextPaint.setColor(COLOR_EMPH);
-            String text = String.format("+%d", amount);
-            canvas.drawText(text, rect.left + mFontPadding * 3 / 2, rect.bottom - mTextPaint.ascent() - (mFontSize + mFontPadding) * 2, mTextPaint);
+            mText.clear().append('+').append(amount);
+            mText.draw(canvas, rect.left + mFontPadding * 3 / 2, rect.bottom - mTextPaint.ascent() - (mFontSize + mFontPadding) * 2, mTextPaint);
         }
 
         @Override
@@ -2465,34 +1844,24 @@ public class BoardView extends View {
     /**
      * Animation class for card improvement
      */
-    private class CardImproveAnimation implements Animation {
+    private class CardImproveAnimation extends TimedAnimation {
 
         private final float[] CS = {1.1f, 1.2f, 1.3f, 1.4f, 1.5f, 1.34f, 1.16f, 1f};
 
         private Position position;
         private RectF rect;
-        private int mCurrentStep;
 
         public CardImproveAnimation(Position position) {
             this.position = position;
             rect = position.getRect();
-            mCurrentStep = 0;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return mCurrentStep >= CS.length;
-        }
-
-        @Override
-        public void tick() {
-            mCurrentStep++;
+            setFrames(CS.length);
         }
 
         @Override
         public void draw(Canvas canvas) {
+            float scale = interpolate(CS);
             canvas.save();
-            canvas.scale(CS[mCurrentStep], CS[mCurrentStep], rect.left + rect.width() / 2, rect.top + rect.height() / 2);
+            canvas.scale(scale, scale, rect.left + rect.width() / 2, rect.top + rect.height() / 2);
             drawPosition(canvas, position, CardState.REGULAR);
             canvas.restore();
         }
@@ -2507,91 +1876,59 @@ public class BoardView extends View {
     /**
      * Animation class for card breaking
      */
-    private class CardCrackAnimation implements Animation {
+    private class CardCrackAnimation extends TimedAnimation {
 
         private Card card;
         private Position position;
-        private float curDistance;
-        private float dd;
-
-        private Path[] mPaths = new Path[4];
+        private float maxDistance;
 
-        private int ticksLeft;
+        private Bitmap[] shards;
 
         public CardCrackAnimation(Card card, Position position) {
             this.card = card;
             this.position = position;
             RectF rect = position.getRect();
-            curDistance = 0;
-            ticksLeft = 9;
-            dd = rect.width() / ticksLeft / 2;
-            float cx = (rect.right + rect.left) / 2;
-            float cy = (rect.bottom + rect.top) / 2;
-            Path path = new Path();
-            path.moveTo(rect.left, rect.top);
-            path.lineTo(cx, cy);
-            path.lineTo(rect.left, rect.bottom);
-            path.close();
-            mPaths[0] = path;
-            path = new Path();
-            path.moveTo(rect.right, rect.top);
-            path.lineTo(cx, cy);
-            path.lineTo(rect.left, rect.top);
-            path.close();
-            mPaths[1] = path;
-            path = new Path();
-            path.moveTo(rect.right, rect.bottom);
-            path.lineTo(cx, cy);
-            path.lineTo(rect.right, rect.top);
-            path.close();
-            mPaths[2] = path;
-            path = new Path();
-            path.moveTo(rect.left, rect.bottom);
-            path.lineTo(cx, cy);
-            path.lineTo(rect.right, rect.bottom);
-            path.close();
-            mPaths[3] = path;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curDistance += dd;
-            ticksLeft--;
+            setFrames(9);
+            maxDistance = rect.width() / 2;
+            Bitmap face = getCardFace(card, rect, CardState.REGULAR);
+            if (face != null) {
+                shards = rasterizeShards(face);
+            }
         }
 
         @Override
         public void draw(Canvas canvas) {
             RectF rect = position.getRect();
-            canvas.save();
-            canvas.translate(-curDistance, 0);
-            canvas.clipPath(mPaths[0]);
-            drawCard(canvas, card, rect, CardState.REGULAR);
-            canvas.restore();
-            canvas.save();
-            canvas.translate(0, -curDistance);
-            canvas.clipPath(mPaths[1]);
-            drawCard(canvas, card, rect, CardState.REGULAR);
-            canvas.restore();
-            canvas.save();
-            canvas.translate(curDistance, 0);
-            canvas.clipPath(mPaths[2]);
-            drawCard(canvas, card, rect, CardState.REGULAR);
-            canvas.restore();
-            canvas.save();
-            canvas.translate(0, curDistance);
-            canvas.clipPath(mPaths[3]);
-            drawCard(canvas, card, rect, CardState.REGULAR);
-            canvas.restore();
+            float curDistance = maxDistance * getProgress();
+            float left = rect.left - mFacePadding;
+            float top = rect.top - mFacePadding;
+            if (shards != null) { //Move pre-rendered shards
+                float right = left + shards[1].getWidth() - shards[2].getWidth();
+                float bottom = top + shards[0].getHeight() - shards[3].getHeight();
+                canvas.drawBitmap(shards[0], left - curDistance, top, mFacePaint);
+                canvas.drawBitmap(shards[1], left, top - curDistance, mFacePaint);
+                canvas.drawBitmap(shards[2], right + curDistance, top, mFacePaint);
+                canvas.drawBitmap(shards[3], left, bottom + curDistance, mFacePaint);
+            } else { //No bitmaps available, clip card drawn from primitives
+                for (int i = 0; i < 4; i++) {
+                    canvas.save();
+                    canvas.translate(i == 0 ? -curDistance : i == 2 ? curDistance : 0, i == 1 ? -curDistance : i == 3 ? curDistance : 0);
+                    canvas.translate(left, top);
+                    canvas.clipPath(mShardPaths[i]);
+                    canvas.translate(-left, -top);
+                    renderCard(canvas, card, rect, CardState.REGULAR);
+                    canvas.restore();
+                }
+            }
         }
 
         @Override
         public void finish() {
-            destroyCard(position);
+            if (shards != null) {
+                mShardPool.add(shards);
+                shards = null;
+            }
+            mEngine.completeCrack(position.getLocation());
         }
     }
 
@@ -2600,13 +1937,12 @@ public class BoardView extends View {
     /**
      * Animation class for card disabling
      */
-    private class CardDisableAnimation implements Animation {
+    private class CardDisableAnimation extends TimedAnimation {
         private Position position;
-        private float curRadius;
-        private float dr;
+        private float startRadius;
+        private float endRadius;
 
         private Path path;
-        private int ticksLeft;
 
         public CardDisableAnimation(Position position) {
             this.position = position;
@@ -2615,20 +1951,9 @@ public class BoardView extends View {
             path = new Path();
             path.addRoundRect(rect, radius, radius, Path.Direction.CW);
             path.close();
-            curRadius = rect.width() / 7;
-            ticksLeft = 8;
-            dr = (float) Math.sqrt(rect.width() * rect.width() + rect.height() * rect.height()) / 2 / ticksLeft;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curRadius += dr;
-            ticksLeft--;
+            startRadius = rect.width() / 7;
+            endRadius = startRadius + (float) Math.sqrt(rect.width() * rect.width() + rect.height() * rect.height()) / 2;
+            setFrames(8);
         }
 
         @Override
@@ -2641,14 +1966,14 @@ public class BoardView extends View {
             mPaint.setStyle(Paint.Style.FILL);
             canvas.save();
             canvas.clipPath(path/*, Region.Op.REPLACE*/);
-            canvas.drawCircle(cx, cy, curRadius, mPaint);
+            canvas.drawCircle(cx, cy, startRadius + (endRadius - startRadius) * getProgress(), mPaint);
             canvas.restore();
             mPaint.setAlpha(255);
         }
 
         @Override
         public void finish() {
-            this.position.getCard().setActive(false);
+            mEngine.completeDisable(position.getLocation());
         }
     }
 
@@ -2657,18 +1982,15 @@ public class BoardView extends View {
     /**
      * Animation class for card transforming
      */
-    private class CardTransformAnimation implements Animation {
+    private class CardTransformAnimation extends TimedAnimation {
 
         private int target;
         private Position position;
         private RectF oldRect;
         private RectF newRect;
         private Card newCard;
-        private float curX;
-        private float dx;
 
         private Path path;
-        private int ticksLeft;
 
         public CardTransformAnimation(int target, Position position, Card newCard) {
             this.target = target;
@@ -2681,27 +2003,14 @@ public class BoardView extends View {
             path = new Path();
             path.addRoundRect(oldRect, radius, radius, Path.Direction.CW);
             path.close();
-            ticksLeft = 9;
-            curX = 0f;
-            dx = -oldRect.width() / ticksLeft;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curX += dx;
-            ticksLeft--;
+            setFrames(9);
         }
 
         @Override
         public void draw(Canvas canvas) {
             canvas.save();
             canvas.clipPath(path/*, Region.Op.REPLACE*/);
-            canvas.translate(curX, 0f);
+            canvas.translate(-oldRect.width() * getProgress(), 0f);
             drawCard(canvas, position.getCard(), oldRect, CardState.SHARP);
             drawCard(canvas, newCard, newRect, CardState.SHARP);
             mPaint.setStrokeWidth(STROKE_WIDTH);
@@ -2714,18 +2023,7 @@ public class BoardView extends View {
 
         @Override
         public void finish() {
-            position.setCard(newCard);
-            if (newCard.getType() == Card.Type.POTION && newCard.getAbility() != Card.Ability.POISON && (target == LOC_LEFT_HAND || target == LOC_RIGHT_HAND)) {
-                animateCardDisable(target);
-                mRowBottom[1].getCard().setValue(Math.min(Card.HERO_MAX + mHealthAddition, mRowBottom[1].getCard().getValue() + newCard.getValue()));
-                animateCardImprove(LOC_HERO);
-                newCard.setValue(0);
-            }
-            if (newCard.getType() == Card.Type.COIN && (target == LOC_LEFT_HAND || target == LOC_RIGHT_HAND || target == LOC_BACKPACK)) {
-                animateCardDisable(target);
-                addCoins(newCard.getValue());
-                newCard.setValue(0);
-            }
+            mEngine.completeTransform(target, newCard);
         }
     }
 
@@ -2734,7 +2032,7 @@ public class BoardView extends View {
     /**
      * Animation class for card suffering
      */
-    private class CardSufferAnimation implements Animation {
+    private class CardSufferAnimation extends TimedAnimation {
 
         private Position position;
 
@@ -2742,29 +2040,18 @@ public class BoardView extends View {
         private final float[] CY = {0f, -0.8f, 0f, 0.8f, 0f, 0.8f, -0.8f, 0f, 0.8f, 0f, 0.8f};
 
         private float mStepLength;
-        private int mCurrentStep;
 
         public CardSufferAnimation(Position position) {
             this.position = position;
             RectF rect = position.getRect();
             mStepLength = rect.width() / 12;
-            mCurrentStep = 0;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return mCurrentStep >= CX.length;
-        }
-
-        @Override
-        public void tick() {
-            mCurrentStep++;
+            setFrames(CX.length);
         }
 
         @Override
         public void draw(Canvas canvas) {
             canvas.save();
-            canvas.translate(mStepLength * CX[mCurrentStep], mStepLength * CY[mCurrentStep]);
+            canvas.translate(mStepLength * interpolate(CX), mStepLength * interpolate(CY));
             drawPosition(canvas, position, CardState.REGULAR);
             canvas.restore();
         }
@@ -2780,50 +2067,32 @@ public class BoardView extends View {
     /**
      * Animation class for card discarding
      */
-    private class CardDiscardAnimation implements Animation {
+    private class CardDiscardAnimation extends TimedAnimation {
 
         private Position position;
 
-        private float curRelX;
-        private float curRelY;
-        private float curScale;
-
-        private float dx;
-        private float dy;
-        private float ds;
-
-        private int ticksLeft;
+        private float startRelX;
+        private float startRelY;
+        private float distX;
+        private float distY;
 
         public CardDiscardAnimation(Position position) {
             this.position = position;
             RectF box = mDiscardBox.getRect();
             RectF rect = position.getRect();
-            curRelX = mDragRelX;
-            curRelY = mDragRelY;
-            curScale = 1;
-            ticksLeft = 8;
-            dx = (box.left + box.width() / 2 - (rect.left + mDragRelX)) / ticksLeft;
-            dy = (box.top + box.height() / 2 - (rect.top + mDragRelY)) / ticksLeft;
-            ds = -1f / ticksLeft;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curRelX += dx;
-            curRelY += dy;
-            curScale += ds;
-            ticksLeft--;
+            startRelX = mDragRelX;
+            startRelY = mDragRelY;
+            distX = box.left + box.width() / 2 - (rect.left + mDragRelX);
+            distY = box.top + box.height() / 2 - (rect.top + mDragRelY);
+            setFrames(8);
         }
 
         @Override
         public void draw(Canvas canvas) {
+            float progress = getProgress();
+            float curScale = 1 - progress;
             canvas.save();
-            canvas.translate(curRelX, curRelY);
+            canvas.translate(startRelX + distX * progress, startRelY + distY * progress);
             canvas.scale(curScale, curScale, position.getRect().left, position.getRect().top);
             drawPosition(canvas, position, CardState.REGULAR);
             canvas.restore();
@@ -2831,7 +2100,7 @@ public class BoardView extends View {
 
         @Override
         public void finish() {
-            destroyCard(position);
+            mEngine.completeDiscard(position.getLocation());
         }
 
     }
@@ -2841,62 +2110,37 @@ public class BoardView extends View {
     /**
      * Animation class for card discarding
      */
-    private class HeroWinAnimation implements Animation {
+    private class HeroWinAnimation extends TimedAnimation {
 
         private Position position;
 
-        private float curRelX;
-        private float curRelY;
-        private float curScale;
-
-        private float dx;
-        private float dy;
-        private float ds;
-
-        private int ticksLeft;
+        private float endRelX;
+        private float endRelY;
 
         public HeroWinAnimation() {
             this.position = mRowBottom[1];
             RectF rect = position.getRect();
-            curRelX = (getMeasuredWidth() / 2 - rect.left - rect.width() / 2);
-            curRelY = (getMeasuredHeight() / 2 - rect.top - rect.height() / 2);
-            curScale = 1;
-            ticksLeft = (int) (Math.sqrt(curRelX * curRelX + curRelY + curRelY)) / mDragReturnSpeed * 20;
-            dx = curRelX / ticksLeft;
-            dy = curRelY / ticksLeft;
-            curRelX = 0;
-            curRelY = 0;
-            ds = 1f / ticksLeft;
-        }
-
-        @Override
-        public boolean isFinished() {
-            return ticksLeft <= 0;
-        }
-
-        @Override
-        public void tick() {
-            curRelX += dx;
-            curRelY += dy;
-            curScale += ds;
-            ticksLeft--;
+            endRelX = (getMeasuredWidth() / 2 - rect.left - rect.width() / 2);
+            endRelY = (getMeasuredHeight() / 2 - rect.top - rect.height() / 2);
+            setFrames((int) (Math.sqrt(endRelX * endRelX + endRelY + endRelY)) / mDragReturnSpeed * 20);
         }
 
         @Override
         public void draw(Canvas canvas) {
             RectF rect = position.getRect();
+            float progress = getProgress();
             canvas.save();
-            canvas.translate(curRelX, curRelY);
-            canvas.scale(curScale, curScale, rect.left + rect.width() / 2, rect.top + rect.height() / 2);
+            canvas.translate(endRelX * progress, endRelY * progress);
+            canvas.scale(1 + progress, 1 + progress, rect.left + rect.width() / 2, rect.top + rect.height() / 2);
             drawPosition(canvas, position, CardState.REGULAR);
             canvas.restore();
         }
 
         @Override
         public void finish() {
-            isHeroWon = true;
+            mEngine.completeHeroWin();
         }
 
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package org.alexsem.cc.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Reusable buffer for composing short labels while drawing (no strings are created)
+ */
+class TextBuffer {
+
+    private final char[] mChars = new char[32];
+    private int mLength = 0;
+
+    /**
+     * Remove all characters
+     * @return This buffer
+     */
+    public TextBuffer clear() {
+        mLength = 0;
+        return this;
+    }
+
+    public TextBuffer append(char c) {
+        if (mLength < mChars.length) {
+            mChars[mLength++] = c;
+        }
+        return this;
+    }
+
+    public TextBuffer append(String text) {
+        int count = Math.min(text.length(), mChars.length - mLength);
+        text.getChars(0, count, mChars, mLength);
+        mLength += count;
+        return this;
+    }
+
+    public TextBuffer append(int value) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        if (mLength + digits > mChars.length) {
+            return this;
+        }
+        for (int i = mLength + digits - 1; i >= mLength; i--) {
+            mChars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        mLength += digits;
+        return this;
+    }
+
+    public int length() {
+        return mLength;
+    }
+
+    /**
+     * Measure width of the text
+     * @param paint Paint to measure with
+     * @return Width in pixels
+     */
+    public float measure(Paint paint) {
+        return paint.measureText(mChars, 0, mLength);
+    }
+
+    /**
+     * Draw the text
+     * @param canvas Canvas to draw to
+     * @param x      Horizontal position (according to paint alignment)
+     * @param y      Baseline position
+     * @param paint  Paint to draw with
+     */
+    public void draw(Canvas canvas, float x, float y, Paint paint) {
+        canvas.drawText(mChars, 0, mLength, x, y, paint);
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.alexsem.cc.widget;
+
+import android.graphics.Canvas;
+
+import org.alexsem.cc.model.Animation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnimationTimelineTest {
+
+    private static final int GROUP_HERO = 0;
+    private static final int GROUP_DEAL = 1;
+
+    /**
+     * Animation which lasts for the specified time and runs the action when finished
+     */
+    private static class TestAnimation implements Animation {
+
+        private final Runnable action;
+        private long remaining;
+        private boolean isFinishCalled;
+
+        TestAnimation(long duration, Runnable action) {
+            this.remaining = duration;
+            this.action = action;
+        }
+
+        @Override
+        public void update(long elapsed) {
+            remaining -= elapsed;
+        }
+
+        @Override
+        public void draw(Canvas c) {
+        }
+
+        @Override
+        public boolean isFinished() {
+            return remaining <= 0;
+        }
+
+        @Override
+        public void finish() {
+            isFinishCalled = true;
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+
+    private int mFinishedGroups = 0;
+
+    private AnimationTimeline createTimeline() {
+        AnimationTimeline timeline = new AnimationTimeline(new AnimationTimeline.Listener() {
+            @Override
+            public void onGroupFinished(int group) {
+                mFinishedGroups |= 1 << group;
+            }
+        }, new int[]{1, 1}, new int[]{GROUP_HERO, GROUP_DEAL}, new int[]{GROUP_HERO, GROUP_DEAL});
+        timeline.setBlockers(GROUP_DEAL, 1 << GROUP_HERO);
+        return timeline;
+    }
+
+    @Test
+    public void groupFinishes() {
+        AnimationTimeline timeline = createTimeline();
+        timeline.add(GROUP_HERO, 0, 0, new TestAnimation(Animation.FRAME, null));
+        timeline.add(GROUP_HERO, 0, 1, new TestAnimation(Animation.FRAME, null));
+        timeline.update(Animation.FRAME);
+        assertEquals(1, timeline.getCount(GROUP_HERO));
+        assertEquals(0, mFinishedGroups);
+        timeline.update(Animation.FRAME);
+        assertEquals(0, timeline.getCount(GROUP_HERO));
+        assertFalse(timeline.isActive(1 << GROUP_HERO));
+        assertEquals(1 << GROUP_HERO, mFinishedGroups);
+    }
+
+    @Test
+    public void clearFromFinish() {
+        final AnimationTimeline timeline = createTimeline();
+        final TestAnimation appear = new TestAnimation(Animation.FRAME, null);
+        final TestAnimation deal = new TestAnimation(Animation.FRAME, null);
+        timeline.add(GROUP_HERO, 0, 0, new TestAnimation(Animation.FRAME, new Runnable() {
+            @Override
+            public void run() { //Game restarts once the hero vanishes
+                timeline.clear();
+                timeline.add(GROUP_HERO, 0, 0, appear);
+                timeline.add(GROUP_DEAL, 0, 0, deal);
+            }
+        }));
+        timeline.update(Animation.FRAME);
+        assertEquals(1, timeline.getCount(GROUP_HERO));
+        assertEquals(1, timeline.getCount(GROUP_DEAL));
+        assertEquals(0, mFinishedGroups);
+        timeline.update(Animation.FRAME);
+        assertTrue(appear.isFinishCalled);
+        assertEquals(0, timeline.getCount(GROUP_HERO));
+        assertFalse(timeline.isActive(1 << GROUP_HERO));
+        timeline.update(Animation.FRAME);
+        assertTrue(deal.isFinishCalled);
+        assertEquals(0, timeline.getCount(GROUP_DEAL));
+        assertFalse(timeline.isActive(1 << GROUP_HERO | 1 << GROUP_DEAL));
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.alexsem.cc.engine;
+
+/**
+ * Ring buffer of effects produced by the rules (see {@link GameEngine.Listener#onEvents}).
+ * Every event consists of its type, location of the affected card, packed card (see PackedCard)
+ * and a type specific value. Buffer is reused by the engine, so no objects are created per event
+ */
+public class EventBuffer {
+
+    public static final int DEALT = 0; //Card comes from the deck to the location
+    public static final int RETURNED_TO_DECK = 1; //Card leaves the location for the deck (value is 1 if it is put back into the deck)
+    public static final int DROPPED = 2; //Disabled card leaves the board
+    public static final int DAMAGED = 3;
+    public static final int HEALED = 4;
+    public static final int DESTROYED = 5;
+    public static final int TRANSFORMED = 6; //Card is the new one
+    public static final int DISABLED = 7;
+    public static final int DISCARDED = 8;
+    public static final int COINS_ADDED = 9; //Value is the amount
+    public static final int CARD_RETURNED = 10; //Used card goes back to its place
+    public static final int HERO_APPEARED = 11;
+    public static final int HERO_VANISHED = 12;
+    public static final int HERO_WON = 13;
+
+    private int[] types = new int[16];
+    private int[] locations = new int[16];
+    private int[] cards = new int[16];
+    private int[] values = new int[16];
+    private int head = 0;
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public int getType(int index) {
+        return types[(head + index) & (types.length - 1)];
+    }
+
+    public int getLocation(int index) {
+        return locations[(head + index) & (types.length - 1)];
+    }
+
+    public int getCard(int index) {
+        return cards[(head + index) & (types.length - 1)];
+    }
+
+    public int getValue(int index) {
+        return values[(head + index) & (types.length - 1)];
+    }
+
+    /**
+     * Add event to the end of the buffer (buffer grows if it is full)
+     * @param type     Event type
+     * @param location Coordinate number of card position
+     * @param card     Packed card (or PackedCard.NONE)
+     * @param value    Type specific value
+     */
+    void add(int type, int location, int card, int value) {
+        if (size == types.length) {
+            types = grow(types);
+            locations = grow(locations);
+            cards = grow(cards);
+            values = grow(values);
+            head = 0;
+        }
+        int index = (head + size) & (types.length - 1);
+        types[index] = type;
+        locations[index] = location;
+        cards[index] = card;
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * Remove consumed events from the beginning of the buffer
+     * @param count Number of events to remove
+     */
+    public void remove(int count) {
+        count = Math.min(count, size);
+        head = (head + count) & (types.length - 1);
+        size -= count;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Copy events in their order to a twice larger array
+     * @param array Full array
+     * @return Grown array
+     */
+    private int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        int first = array.length - head;
+        System.arraycopy(array, head, grown, 0, first);
+        System.arraycopy(array, 0, grown, first, head);
+        return grown;
+    }
+
+}
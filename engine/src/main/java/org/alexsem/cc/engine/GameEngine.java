@@ -0,0 +1,1762 @@
+package org.alexsem.cc.engine;
+
+import org.alexsem.cc.model.Card;
+import org.alexsem.cc.model.CardArray;
+import org.alexsem.cc.model.Deck;
+import org.alexsem.cc.model.GameRandom;
+import org.alexsem.cc.model.PackedCard;
+import org.alexsem.cc.model.Zobrist;
+
+/**
+ * Headless game rules: owns the deck and the board state and applies all moves.
+ * Visual side effects are reported to the {@link Listener} (if any), which is responsible
+ * for calling back the matching complete*() method once the effect is over.
+ * Without a listener every effect is completed immediately.
+ * All random decisions come from the per-game generator, so the same seed and the same moves
+ * always produce the same game
+ */
+public class GameEngine {
+
+    public static final int LOC_LEFT_HAND = 10;
+    public static final int LOC_HERO = 11;
+    public static final int LOC_RIGHT_HAND = 12;
+    public static final int LOC_BACKPACK = 13;
+
+    private static final int[] LOCATIONS = {0, 1, 2, 3, LOC_LEFT_HAND, LOC_HERO, LOC_RIGHT_HAND, LOC_BACKPACK};
+
+    /**
+     * Receiver of the visual side effects produced by the rules
+     */
+    public interface Listener {
+
+        /**
+         * Defines whether any effect which blocks move processing is still running
+         * @return true if move processing needs to wait
+         */
+        public boolean isAnimating();
+
+        /**
+         * Called when the rules produced some effects (events are dropped after the call)
+         * @param events Events in the order they happened (see {@link EventBuffer})
+         */
+        public void onEvents(EventBuffer events);
+    }
+
+    private Listener mListener;
+    private boolean isInstant = false;
+    private final EventBuffer mEvents = new EventBuffer();
+
+    private long mSeed;
+    private GameRandom mRandom;
+    private Deck mDeck;
+    private int[] mRowTop = new int[4];
+    private int[] mRowBottom = new int[4];
+    private CardArray mGraveyard = new CardArray(64);
+    private CardArray mShop = new CardArray();
+    private int mCoins;
+    private int mHealthAddition;
+    private int mDamageTakenDuringTurn;
+    private int mBountyTargetsDelivered;
+    private int mFaithCardsAwaiting;
+    private boolean isFreshDeal;
+    private boolean isDamageTakenDuringTurn;
+    private boolean isNeedToReviveHero;
+    private boolean isNeedToReflectDamage;
+    private int mMoveCount;
+    private int mDamageTaken;
+
+    private boolean isRestarting = false;
+    private boolean isGameOver = false;
+    private boolean isHeroWon = false;
+
+    private int[] mChaosPositions = new int[8];
+    private int[] mChaosValues = new int[8];
+
+    private final AbilityHandler[] mAbilityHandlers = new AbilityHandler[Card.Ability.values().length];
+
+    public GameEngine() {
+        registerAbilityHandlers();
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    public void setListener(Listener listener) {
+        this.mListener = listener;
+    }
+
+    /**
+     * Turn instant mode on or off. In instant mode all effects are completed at once (exactly as
+     * without listener), listener is only told about coins and returned cards
+     * @param instant true to skip animations
+     */
+    public void setInstant(boolean instant) {
+        this.isInstant = instant;
+    }
+
+    public boolean isInstant() {
+        return isInstant;
+    }
+
+    /**
+     * Defines whether effects are animated by listener (and completed by it later)
+     * @return true if listener completes effects
+     */
+    private boolean isAnimated() {
+        return mListener != null && !isInstant;
+    }
+
+    /**
+     * Hand events produced so far over to listener
+     */
+    private void flushEvents() {
+        if (mEvents.size() > 0 && mListener != null) {
+            mListener.onEvents(mEvents);
+        }
+        mEvents.clear();
+    }
+
+    /**
+     * Reset the board and generate new deck using random seed
+     */
+    public void begin() {
+        begin(GameRandom.create().nextLong());
+    }
+
+    /**
+     * Reset the board and generate new deck
+     * @param seed Seed which defines all random decisions of the game
+     */
+    public void begin(long seed) {
+        mSeed = seed;
+        mRandom = new GameRandom(seed);
+        mDeck = Deck.generateFixed(mRandom);
+        for (int i = 0; i < 4; i++) {
+            mRowTop[i] = PackedCard.NONE;
+            mRowBottom[i] = PackedCard.NONE;
+        }
+        mGraveyard.clear();
+        mShop.clear();
+        mCoins = 0;
+        mHealthAddition = 0;
+        mDamageTakenDuringTurn = 0;
+        mBountyTargetsDelivered = 0;
+        mFaithCardsAwaiting = 0;
+        isFreshDeal = false;
+        isDamageTakenDuringTurn = false;
+        isNeedToReflectDamage = false;
+        isNeedToReviveHero = false;
+        mMoveCount = 0;
+        mDamageTaken = 0;
+        isRestarting = false;
+        isGameOver = false;
+        isHeroWon = false;
+    }
+
+    /**
+     * Bring in the hero and deal the first row
+     */
+    public void start() {
+        mRowBottom[1] = PackedCard.getHero();
+        if (isAnimated()) {
+            mEvents.add(EventBuffer.HERO_APPEARED, LOC_HERO, mRowBottom[1], 0);
+        }
+        dealTopRow();
+        flushEvents();
+    }
+
+    /**
+     * Give up current game: all cards leave the board and the hero vanishes
+     */
+    public void abandon() {
+        isRestarting = true;
+        mDeck.clear();
+        for (int i = 0; i < 4; i++) {
+            animateReceiveCard(mRowTop[i], i, false);
+            destroyCard(i);
+            if (i != 1) {
+                animateDropCard(mRowBottom[i], i + 10);
+                destroyCard(i + 10);
+            }
+        }
+        animateHeroVanish();
+        flushEvents();
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Save complete game state into the snapshot (no objects are created unless snapshot has to grow).
+     * Should not be called while any effects are still running
+     * @param state Snapshot to overwrite
+     */
+    public void saveState(GameState state) {
+        int deckSize = mDeck.size();
+        int graveyardSize = mGraveyard.size();
+        int shopSize = mShop.size();
+        state.ensureCapacity(GameState.CARDS + deckSize + graveyardSize + shopSize);
+        state.length = GameState.CARDS + deckSize + graveyardSize + shopSize;
+        int[] data = state.data;
+        data[GameState.SEED] = (int) (mSeed >>> 32);
+        data[GameState.SEED + 1] = (int) mSeed;
+        data[GameState.MOVE_COUNT] = mMoveCount;
+        data[GameState.DAMAGE_TAKEN] = mDamageTaken;
+        long random = mRandom.getSeed();
+        data[GameState.RANDOM] = (int) (random >>> 32);
+        data[GameState.RANDOM + 1] = (int) random;
+        data[GameState.COINS] = mCoins;
+        data[GameState.HEALTH_ADDITION] = mHealthAddition;
+        data[GameState.DAMAGE_DURING_TURN] = mDamageTakenDuringTurn;
+        data[GameState.BOUNTY_TARGETS] = mBountyTargetsDelivered;
+        data[GameState.FAITH_CARDS] = mFaithCardsAwaiting;
+        data[GameState.FLAGS] = getFlags();
+        System.arraycopy(mRowTop, 0, data, GameState.ROW_TOP, 4);
+        System.arraycopy(mRowBottom, 0, data, GameState.ROW_BOTTOM, 4);
+        data[GameState.DECK_SIZE] = deckSize;
+        data[GameState.GRAVEYARD_SIZE] = graveyardSize;
+        data[GameState.SHOP_SIZE] = shopSize;
+        mDeck.copyTo(data, GameState.CARDS);
+        mGraveyard.copyTo(data, GameState.CARDS + deckSize);
+        mShop.copyTo(data, GameState.CARDS + deckSize + graveyardSize);
+        state.hash = getStateHash();
+    }
+
+    /**
+     * Bring the game back to the saved state (listener is not notified)
+     * @param state Snapshot created by {@link #saveState}
+     */
+    public void restoreState(GameState state) {
+        int[] data = state.data;
+        mSeed = ((long) data[GameState.SEED] << 32) | (data[GameState.SEED + 1] & 0xFFFFFFFFL);
+        mMoveCount = data[GameState.MOVE_COUNT];
+        mDamageTaken = data[GameState.DAMAGE_TAKEN];
+        long random = ((long) data[GameState.RANDOM] << 32) | (data[GameState.RANDOM + 1] & 0xFFFFFFFFL);
+        if (mRandom == null) {
+            mRandom = new GameRandom(random);
+        } else {
+            mRandom.setSeed(random);
+        }
+        mCoins = data[GameState.COINS];
+        mHealthAddition = data[GameState.HEALTH_ADDITION];
+        mDamageTakenDuringTurn = data[GameState.DAMAGE_DURING_TURN];
+        mBountyTargetsDelivered = data[GameState.BOUNTY_TARGETS];
+        mFaithCardsAwaiting = data[GameState.FAITH_CARDS];
+        int flags = data[GameState.FLAGS];
+        isFreshDeal = (flags & GameState.FLAG_FRESH_DEAL) != 0;
+        isDamageTakenDuringTurn = (flags & GameState.FLAG_DAMAGE_TAKEN_DURING_TURN) != 0;
+        isNeedToReviveHero = (flags & GameState.FLAG_REVIVE_HERO) != 0;
+        isNeedToReflectDamage = (flags & GameState.FLAG_REFLECT_DAMAGE) != 0;
+        isRestarting = (flags & GameState.FLAG_RESTARTING) != 0;
+        isGameOver = (flags & GameState.FLAG_GAME_OVER) != 0;
+        isHeroWon = (flags & GameState.FLAG_HERO_WON) != 0;
+        System.arraycopy(data, GameState.ROW_TOP, mRowTop, 0, 4);
+        System.arraycopy(data, GameState.ROW_BOTTOM, mRowBottom, 0, 4);
+        int deckSize = data[GameState.DECK_SIZE];
+        int graveyardSize = data[GameState.GRAVEYARD_SIZE];
+        if (mDeck == null) {
+            mDeck = new Deck();
+        }
+        mDeck.restore(data, GameState.CARDS, deckSize);
+        mGraveyard.restore(data, GameState.CARDS + deckSize, graveyardSize);
+        mShop.restore(data, GameState.CARDS + deckSize + graveyardSize, data[GameState.SHOP_SIZE]);
+    }
+
+    /**
+     * Replace the information hidden from the player with a random guess:
+     * shuffle the deck and reseed the generator which defines outcome of random effects.
+     * Used by searches which should not know more than the player does
+     * @param random Source of randomness
+     */
+    public void randomizeHidden(GameRandom random) {
+        mDeck.shuffle(random);
+        mRandom.setSeed(random.nextLong());
+    }
+
+    /**
+     * Get Zobrist hash of the current game position (statistics like move count are not included).
+     * Hashes of deck, graveyard and shop are maintained incrementally, so this takes constant time
+     * @return Position hash
+     */
+    public long getStateHash() {
+        long random = mRandom.getSeed();
+        long hash = Zobrist.key(GameState.RANDOM, (int) (random >>> 32)) ^ Zobrist.key(GameState.RANDOM + 1, (int) random);
+        return hash ^ getVisibleHash() ^ mDeck.getHash();
+    }
+
+    /**
+     * Get hash of the game position as seen by the player: deck order and state of the random generator
+     * are hidden, so positions which differ only in them share the hash
+     * @return Position hash
+     */
+    public long getObservationHash() {
+        return getVisibleHash() ^ mDeck.getContentHash();
+    }
+
+    /**
+     * Get hash of everything but the deck cards and state of the random generator
+     * @return Partial position hash
+     */
+    private long getVisibleHash() {
+        long hash = Zobrist.key(GameState.COINS, mCoins);
+        hash ^= Zobrist.key(GameState.HEALTH_ADDITION, mHealthAddition);
+        hash ^= Zobrist.key(GameState.DAMAGE_DURING_TURN, mDamageTakenDuringTurn);
+        hash ^= Zobrist.key(GameState.BOUNTY_TARGETS, mBountyTargetsDelivered);
+        hash ^= Zobrist.key(GameState.FAITH_CARDS, mFaithCardsAwaiting);
+        hash ^= Zobrist.key(GameState.FLAGS, getFlags());
+        for (int i = 0; i < 4; i++) {
+            hash ^= Zobrist.key(GameState.ROW_TOP + i, mRowTop[i]);
+            hash ^= Zobrist.key(GameState.ROW_BOTTOM + i, mRowBottom[i]);
+        }
+        hash ^= Zobrist.key(GameState.DECK_SIZE, mDeck.size());
+        hash ^= Zobrist.key(GameState.GRAVEYARD_SIZE, mGraveyard.size()) ^ Long.rotateLeft(mGraveyard.getHash(), 21);
+        hash ^= Zobrist.key(GameState.SHOP_SIZE, mShop.size()) ^ Long.rotateLeft(mShop.getHash(), 42);
+        return hash;
+    }
+
+    private int getFlags() {
+        int flags = 0;
+        if (isFreshDeal) {
+            flags |= GameState.FLAG_FRESH_DEAL;
+        }
+        if (isDamageTakenDuringTurn) {
+            flags |= GameState.FLAG_DAMAGE_TAKEN_DURING_TURN;
+        }
+        if (isNeedToReviveHero) {
+            flags |= GameState.FLAG_REVIVE_HERO;
+        }
+        if (isNeedToReflectDamage) {
+            flags |= GameState.FLAG_REFLECT_DAMAGE;
+        }
+        if (isRestarting) {
+            flags |= GameState.FLAG_RESTARTING;
+        }
+        if (isGameOver) {
+            flags |= GameState.FLAG_GAME_OVER;
+        }
+        if (isHeroWon) {
+            flags |= GameState.FLAG_HERO_WON;
+        }
+        return flags;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Get card at the specified location
+     * @param location Card location
+     * @return View of the card (detached from the board) or null if there is no card
+     */
+    public Card getCard(int location) {
+        int card = getPackedCard(location);
+        return card != PackedCard.NONE ? new Card(card) : null;
+    }
+
+    /**
+     * Get card at the specified location
+     * @param location Card location
+     * @return Packed card or {@link PackedCard#NONE}
+     */
+    public int getPackedCard(int location) {
+        return location >= 10 ? mRowBottom[location - 10] : mRowTop[location];
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+
+    public Card getHero() {
+        return getCard(LOC_HERO);
+    }
+
+    public int getDeckSize() {
+        return mDeck.size();
+    }
+
+    /**
+     * Get number of cards of the specified type left in the deck
+     * @param type Type of card
+     * @return Number of cards
+     */
+    public int getDeckCount(Card.Type type) {
+        return mDeck.count(type);
+    }
+
+    public int getCoins() {
+        return mCoins;
+    }
+
+    public int getHealthAddition() {
+        return mHealthAddition;
+    }
+
+    public int getFaithCardsAwaiting() {
+        return mFaithCardsAwaiting;
+    }
+
+    public int getMoveCount() {
+        return mMoveCount;
+    }
+
+    public int getDamageTaken() {
+        return mDamageTaken;
+    }
+
+    public boolean isNeedToReviveHero() {
+        return isNeedToReviveHero;
+    }
+
+    public boolean isNeedToReflectDamage() {
+        return isNeedToReflectDamage;
+    }
+
+    public boolean isRestarting() {
+        return isRestarting;
+    }
+
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    public boolean isHeroWon() {
+        return isHeroWon;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Deal cards to missing positions of top row
+     * All inactive cards from bottom row will be removed in process
+     */
+    private void dealTopRow() {
+        for (int i = 0; i < 4; i++) {
+            int card = mRowBottom[i];
+            if (card != PackedCard.NONE && !PackedCard.isActive(card)) {
+                animateDropCard(card, i + 10);
+                destroyCard(i + 10);
+            }
+            if (mRowTop[i] == PackedCard.NONE) {
+                int deal = mDeck.deal();
+                if (mFaithCardsAwaiting > 0 && deal != PackedCard.NONE && PackedCard.getValue(deal) > 0) {
+                    deal = PackedCard.setValue(deal, PackedCard.getValue(deal) * 2);
+                    mFaithCardsAwaiting--;
+                }
+                animateDealCard(deal, i);
+            }
+        }
+        isFreshDeal = true;
+        if (!isDamageTakenDuringTurn) {
+            mDamageTakenDuringTurn = 0;
+        }
+        isDamageTakenDuringTurn = false;
+    }
+
+    /**
+     * Defines whether specific position can be touched
+     * @param location Coordinate number of position
+     * @return true if can be touched, false otherwise
+     */
+    public boolean canTouchThis(int location) {
+        int card = getPackedCard(location);
+        if (card == PackedCard.NONE) {
+            return false;
+        }
+        int conditions = LegalityTable.canTouchThis(card, location);
+        return conditions == 0 || (conditions > 0 && isSatisfied(conditions, card));
+    }
+
+    /**
+     * Defines whether card can be received by specific position
+     * @param source      Coordinate number of source card position
+     * @param destination Coordinate number of dest card position
+     * @return true or false
+     */
+    public boolean canReceiveThis(int source, int destination) {
+        if (source == destination) {
+            return false;
+        }
+        int srcCard = getPackedCard(source);
+        if (srcCard == PackedCard.NONE) {
+            return false;
+        }
+        int dstCard = getPackedCard(destination);
+        int conditions = LegalityTable.canReceiveThis(srcCard, source, dstCard, destination);
+        return conditions == 0 || (conditions > 0 && isSatisfied(conditions, dstCard));
+    }
+
+    /**
+     * Defines whether card can be discarded
+     * @param location Coordinate number of card position
+     * @return true or false
+     */
+    public boolean canDiscardThis(int location) {
+        int card = getPackedCard(location);
+        return card != PackedCard.NONE && LegalityTable.canDiscardThis(card, location);
+    }
+
+    /**
+     * Writes all legal moves (including ability usages and discards) into the buffer
+     * (there are no moves once the game is finished).
+     * Does not allocate anything, so it can be used in the innermost loops of bots and searches
+     * @param moves Buffer for packed moves (see {@link Move}), should fit at least {@link Move#MAX_COUNT} moves
+     * @return Number of moves written
+     */
+    public int generateMoves(int[] moves) {
+        if (isRestarting || isGameOver || isHeroWon) { //No moves in finished game
+            return 0;
+        }
+        int count = 0;
+        for (int source : LOCATIONS) {
+            int srcCard = getPackedCard(source);
+            if (srcCard == PackedCard.NONE) {
+                continue;
+            }
+            int conditions = LegalityTable.canTouchThis(srcCard, source);
+            if (conditions < 0 || (conditions > 0 && !isSatisfied(conditions, srcCard))) {
+                continue;
+            }
+            for (int destination : LOCATIONS) {
+                if (destination == source) {
+                    continue;
+                }
+                int dstCard = getPackedCard(destination);
+                conditions = LegalityTable.canReceiveThis(srcCard, source, dstCard, destination);
+                if (conditions == 0 || (conditions > 0 && isSatisfied(conditions, dstCard))) {
+                    moves[count++] = Move.of(source, destination);
+                }
+            }
+            if (LegalityTable.canDiscardThis(srcCard, source)) {
+                moves[count++] = Move.discard(source);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks conditions of the move which depend on the current game state
+     * @param conditions Conditions returned by {@link LegalityTable}
+     * @param card       Card the conditions relate to
+     * @return true if all conditions are satisfied
+     */
+    private boolean isSatisfied(int conditions, int card) {
+        if ((conditions & LegalityTable.COND_VALUED) != 0 && PackedCard.getValue(card) == 0) {
+            return false;
+        }
+        if ((conditions & LegalityTable.COND_NO_ABILITY) != 0 && PackedCard.getAbilityOrdinal(card) >= 0) {
+            return false;
+        }
+        if ((conditions & LegalityTable.COND_STEAL) != 0 && (mDeck.size() == 0 || mRowBottom[3] != PackedCard.NONE)) {
+            return false;
+        }
+        if ((conditions & LegalityTable.COND_ACTIVE) != 0 && !PackedCard.isActive(card)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Performs move
+     * @param move Move (see {@link Move})
+     */
+    public void doMove(int move) {
+        if (Move.isDiscard(move)) {
+            doDiscard(Move.getSource(move));
+        } else {
+            doReceive(Move.getSource(move), Move.getDestination(move));
+        }
+    }
+
+    /**
+     * Performs card movement
+     * @param source      Coordinate number of source card position
+     * @param destination Coordinate number of dest card position
+     */
+    public void doReceive(int source, int destination) {
+        mMoveCount++;
+        isFreshDeal = false; //Cleared by the move, not by the check after the animations
+        int srcCard = getPackedCard(source);
+        int dstCard = getPackedCard(destination);
+        int srcValue = PackedCard.getValue(srcCard);
+        int dstValue = dstCard != PackedCard.NONE ? PackedCard.getValue(dstCard) : 0;
+        Card.Type dstType = dstCard != PackedCard.NONE ? PackedCard.getType(dstCard) : null;
+
+        switch (PackedCard.getType(srcCard)) {
+            case MONSTER:
+                if (dstType == Card.Type.HERO) { //Endure attack
+                    if (isNeedToReflectDamage && hasReflectTarget()) { //Damage reflected
+                        int randomTarget;
+                        int randomCard;
+                        do {
+                            randomTarget = mRandom.nextInt(4);
+                            randomCard = mRowTop[(randomTarget)];
+                        } while (randomCard == PackedCard.NONE || PackedCard.getType(randomCard) == Card.Type.ABILITY);
+                        if (PackedCard.getValue(randomCard) > srcValue) { //Target card can take damage
+                            mRowTop[randomTarget] = PackedCard.setValue(randomCard, PackedCard.getValue(randomCard) - srcValue);
+                            animateCardSuffer(randomTarget);
+                        } else { //Card is too weak
+                            animateCardCrack(randomCard, randomTarget);
+                        }
+                        animateCardReturn(source);
+                        isNeedToReflectDamage = false;
+                    } else { //Damage taken
+                        takeDamage(srcValue);
+                        destroyCard(source);
+                    }
+                } else if (dstType == Card.Type.SHIELD || dstType == Card.Type.MONSTER_TAMED) { //Block attack
+                    if (dstValue > srcValue) { //Shield can take damage (and more)
+                        setCard(destination, PackedCard.setValue(dstCard, dstValue - srcValue));
+                        animateCardSuffer(destination);
+                    } else if (dstValue == srcValue) { //Shield can take exact damage
+                        animateCardCrack(dstCard, destination);
+                    } else { //Shield is too weak
+                        takeDamage((srcValue - dstValue));
+                        animateCardCrack(dstCard, destination);
+                    }
+                    destroyCard(source);
+                }
+                break;
+            case WEAPON:
+            case MONSTER_TAMED:
+                if (dstType == Card.Type.MONSTER) { //Attack
+                    if (dstValue > srcValue) { //Mob can take damage (and more)
+                        setCard(destination, PackedCard.setValue(dstCard, dstValue - srcValue));
+                        animateCardSuffer(destination);
+                    } else { //Mob will be defeated
+                        animateCardCrack(dstCard, destination);
+                    }
+                    if (PackedCard.getAbility(srcCard) == Card.Ability.FRENZY) {
+                        setCard(source, PackedCard.setAbility(srcCard, null));
+                        animateCardSuffer(source);
+                        animateCardReturn(source);
+                    } else {
+                        destroyCard(source);
+                    }
+                } else { //Pack/Equip
+                    setCard(destination, srcCard);
+                    destroyCard(source);
+                }
+                break;
+            case SHIELD:
+                if (dstCard != PackedCard.NONE) {
+                    if (PackedCard.getAbility(srcCard) == Card.Ability.BASH && dstType == Card.Type.MONSTER) { //Bash
+                        if (dstValue > srcValue) { //Mob can take damage (and more)
+                            setCard(destination, PackedCard.setValue(dstCard, dstValue - srcValue));
+                            animateCardSuffer(destination);
+                        } else { //Mob will be defeated
+                            animateCardCrack(dstCard, destination);
+                        }
+                        if (srcValue > 1) {
+                            setCard(source, PackedCard.setValue(srcCard, srcValue - 1));
+                            animateCardSuffer(source);
+                            animateCardReturn(source);
+                        } else {
+                            destroyCard(source);
+                        }
+                    }
+                } else { //Pack/Equip
+                    setCard(destination, srcCard);
+                    destroyCard(source);
+                }
+                break;
+            case POTION:
+                if (PackedCard.getAbility(srcCard) == Card.Ability.POISON) { //Poison
+                    if (dstType == Card.Type.MONSTER) { //Attack
+                        if (srcValue > 0) {
+                            if (dstValue > srcValue) { //Mob can take damage (and more)
+                                setCard(destination, PackedCard.setValue(dstCard, dstValue - srcValue));
+                                animateCardSuffer(destination);
+                            } else { //Mob will be defeated
+                                animateCardCrack(dstCard, destination);
+                            }
+                            for (int i = 0; i < 4; i++) {
+                                int card = mRowTop[i];
+                                if (Math.abs(i - destination) == 1 && card != PackedCard.NONE && PackedCard.getValue(card) > 0) {
+                                    if (PackedCard.getValue(card) > srcValue / 2) { //Card can take damage (and more)
+                                        mRowTop[i] = PackedCard.setValue(card, PackedCard.getValue(card) - srcValue / 2);
+                                        animateCardSuffer(i);
+                                    } else { //Card will be defeated
+                                        animateCardCrack(card, i);
+                                    }
+                                }
+                            }
+                        } //TODO miss
+                        destroyCard(source);
+                    } else { //Pack/Equip
+                        setCard(destination, srcCard);
+                        destroyCard(source);
+                    }
+                } else { //Regular potion
+                    setCard(destination, srcCard);
+                    if (destination == LOC_LEFT_HAND || destination == LOC_RIGHT_HAND) { //Actually use
+                        animateCardDisable(destination);
+                        heal(srcValue);
+                        animateCardImprove(LOC_HERO);
+                        setCard(destination, PackedCard.setValue(getPackedCard(destination), 0));
+                    }
+                    destroyCard(source);
+                }
+                break;
+            case COIN:
+                setCard(destination, srcCard);
+                animateCardDisable(destination);
+                addCoins(srcValue);
+                setCard(destination, PackedCard.setValue(getPackedCard(destination), 0));
+                destroyCard(source);
+                break;
+            case ABILITY:
+                if ((destination == LOC_RIGHT_HAND || destination == LOC_LEFT_HAND || destination == LOC_BACKPACK) && source != LOC_LEFT_HAND && source != LOC_RIGHT_HAND) { //Pack/Equip
+                    setCard(destination, srcCard);
+                    destroyCard(source);
+                } else { //Actually use
+                    AbilityHandler handler = mAbilityHandlers[PackedCard.getAbilityOrdinal(srcCard)];
+                    if (handler != null) {
+                        handler.apply(source, destination, srcCard, dstCard);
+                    }
+                }
+                break;
+        }
+        processMove();
+    }
+
+    /**
+     * Checks whether top row contains any cards
+     * @param except Bit mask of locations to skip (or 0)
+     * @return true if at least one card is present
+     */
+    private boolean hasTopCards(int except) {
+        for (int i = 0; i < 4; i++) {
+            if (mRowTop[i] != PackedCard.NONE && (except & (1 << i)) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether top row contains any card which can take reflected damage
+     * @return true if at least one target is present
+     */
+    private boolean hasReflectTarget() {
+        for (int i = 0; i < 4; i++) {
+            if (mRowTop[i] != PackedCard.NONE && PackedCard.getType(mRowTop[i]) != Card.Type.ABILITY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apply damage to Hero card
+     * @param amount Damage to inflict
+     */
+    private void takeDamage(int amount) {
+        if (!isDamageTakenDuringTurn) {
+            mDamageTakenDuringTurn = 0;
+            isDamageTakenDuringTurn = true;
+        }
+        mDamageTakenDuringTurn += amount;
+        mDamageTaken += amount;
+        mRowBottom[1] = PackedCard.setValue(mRowBottom[1], Math.max(0, PackedCard.getValue(mRowBottom[1]) - amount));
+        animateCardSuffer(LOC_HERO);
+    }
+
+    /**
+     * Restore health of Hero card (up to the maximum)
+     * @param amount Health to restore
+     */
+    private void heal(int amount) {
+        mRowBottom[1] = PackedCard.setValue(mRowBottom[1], Math.min(Card.HERO_MAX + mHealthAddition, PackedCard.getValue(mRowBottom[1]) + amount));
+    }
+
+    /**
+     * Put card to the specified location
+     * @param location Card location
+     * @param card     Packed card to put
+     */
+    private void setCard(int location, int card) {
+        if (location >= 10) {
+            mRowBottom[location - 10] = card;
+        } else {
+            mRowTop[location] = card;
+        }
+    }
+
+    /**
+     * Destroy card at specified location, moving it to the graveyard
+     * @param location Card location
+     */
+    public void destroyCard(int location) {
+        buryCard(location);
+        setCard(location, PackedCard.NONE);
+    }
+
+    /**
+     * Move copy of the card at specified location to the graveyard (card stays on board)
+     * @param location Card location
+     */
+    private void buryCard(int location) {
+        int card = getPackedCard(location);
+        if (card != PackedCard.NONE) {
+            mGraveyard.add(card);
+            if (PackedCard.getType(card) == Card.Type.MONSTER && PackedCard.getAbility(card) == Card.Ability.BOUNTY) {
+                mBountyTargetsDelivered++;
+            }
+        }
+    }
+
+    /**
+     * Adds coins to hero bank
+     * @param amount Number of coins to add
+     */
+    private void addCoins(int amount) {
+        mCoins += amount;
+        if (mListener != null) {
+            mEvents.add(EventBuffer.COINS_ADDED, LOC_HERO, PackedCard.NONE, amount);
+        }
+    }
+
+    /**
+     * Discards card
+     * @param location Card location
+     */
+    public void doDiscard(int location) {
+        mMoveCount++;
+        isFreshDeal = false;
+        int card = getPackedCard(location);
+
+        switch (PackedCard.getType(card)) {
+            case ABILITY:
+                animateCardDiscard(location);
+                break;
+            case WEAPON:
+            case SHIELD:
+            case POTION:
+                addCoins(PackedCard.getValue(card));
+                mShop.add(card);
+                animateCardDiscard(location);
+                break;
+            case COIN:
+                animateCardDiscard(location);
+                break;
+        }
+        flushEvents();
+        if (!isAnimated()) { //Otherwise will be called after animation
+            processMove();
+        }
+    }
+
+    /**
+     * Perform necessary calculations after each move
+     */
+    public void processMove() {
+        flushEvents(); //Listener needs to start effects of the move first
+        if (isAnimated() && mListener.isAnimating()) { //Animations in progress
+            return;
+        }
+        updateBoard();
+        flushEvents();
+    }
+
+    /**
+     * Check the hero and the top row after each move
+     */
+    private void updateBoard() {
+        if (isRestarting || isGameOver || isHeroWon) { //Need to restart or game is finished
+            return;
+        }
+        if (PackedCard.getValue(mRowBottom[1]) <= 0) { //Check hero health
+            if (isNeedToReviveHero) { //Can be revived
+                mRowBottom[1] = PackedCard.setValue(mRowBottom[1], 1);
+                isNeedToReviveHero = false;
+                animateCardImprove(LOC_HERO);
+                if (isAnimated()) { //Will be called again after animation
+                    return;
+                }
+            } else { //Actual death
+                animateHeroVanish();
+                return;
+            }
+        }
+        if (mDeck.size() == 0) { //Check deck size
+            boolean win = true;
+            for (int i = 0; i < 4; i++) {
+                if (mRowTop[i] != PackedCard.NONE && PackedCard.isActive(mRowTop[i])) {
+                    win = false;
+                    break;
+                }
+            }
+            if (win) {
+                animateHeroWin();
+                return;
+            }
+        }
+
+        int emptyTop = 0;
+        for (int i = 0; i < 4; i++) {
+            if (mRowTop[i] == PackedCard.NONE || !PackedCard.isActive(mRowTop[i])) {
+                emptyTop++;
+                if (emptyTop >= 3) {
+                    dealTopRow();
+                    break;
+                }
+            }
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Effect of a single ability card (cards it can be used on are defined by {@link LegalityTable})
+     */
+    private abstract class AbilityHandler {
+
+        /**
+         * Applies ability (ability card should be destroyed here as well)
+         * @param source      Coordinate number of ability card position
+         * @param destination Coordinate number of target card position
+         * @param srcCard     Ability card
+         * @param dstCard     Target card
+         */
+        abstract void apply(int source, int destination, int srcCard, int dstCard);
+    }
+
+    private void register(Card.Ability ability, AbilityHandler handler) {
+        mAbilityHandlers[ability.ordinal()] = handler;
+    }
+
+    /**
+     * Fills the table of ability handlers (indexed by ability ordinal)
+     */
+    private void registerAbilityHandlers() {
+        register(Card.Ability.SAP, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                animateReceiveCard(dstCard, destination, true);
+                destroyCard(destination);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.VANISH, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                for (int i = 0; i < 4; i++) {
+                    if (mRowTop[i] != PackedCard.NONE) {
+                        animateReceiveCard(mRowTop[i], i, true);
+                        destroyCard(i);
+                    }
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.LEECH, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                heal(dstValue);
+                animateCardImprove(LOC_HERO);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.SACRIFICE, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                int sacrificed = Card.HERO_MAX + mHealthAddition - PackedCard.getValue(mRowBottom[1]);
+                if (sacrificed > 0) {
+                    if (dstValue > sacrificed) { //Mob can take damage (and more)
+                        setCard(destination, PackedCard.setValue(dstCard, dstValue - sacrificed));
+                        animateCardSuffer(destination);
+                    } else { //Mob will be defeated
+                        animateCardCrack(dstCard, destination);
+                    }
+                } //TODO miss
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.POTIONIZE, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int potionCard = PackedCard.setType(dstCard, Card.Type.POTION);
+                potionCard = PackedCard.setValue(potionCard, mRandom.nextInt(9) + 2);
+                potionCard = PackedCard.setInitialValue(potionCard, PackedCard.getValue(potionCard));
+                potionCard = PackedCard.setAbility(potionCard, null);
+                if (destination >= 10) { //Bottom row
+                    potionCard = PackedCard.setActive(potionCard, true);
+                }
+                animateCardTransform(destination, potionCard);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.KILLER, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                if (dstValue < PackedCard.getInitialValue(dstCard)) {
+                    animateCardCrack(dstCard, destination);
+                } //TODO miss
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.EXCHANGE, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                animateReceiveCard(dstCard, destination, true);
+                destroyCard(destination);
+                int exchangedCard = mDeck.deal(Card.Type.ABILITY);
+                if (exchangedCard != PackedCard.NONE) {
+                    if (mFaithCardsAwaiting > 0 && PackedCard.getValue(exchangedCard) > 0) {
+                        exchangedCard = PackedCard.setValue(exchangedCard, PackedCard.getValue(exchangedCard) * 2);
+                    }
+                    animateDealCard(exchangedCard, destination);
+                } //TODO miss
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.STEAL, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int stolenCard = mDeck.deal();
+                if (mFaithCardsAwaiting > 0 && PackedCard.getValue(stolenCard) > 0) {
+                    stolenCard = PackedCard.setValue(stolenCard, PackedCard.getValue(stolenCard) * 2);
+                    mFaithCardsAwaiting--;
+                }
+                if (PackedCard.getType(stolenCard) == Card.Type.COIN) { //Coins
+                    int stolenCoins = PackedCard.getValue(stolenCard);
+                    animateDealCard(PackedCard.setValue(stolenCard, 0), LOC_BACKPACK);
+                    animateCardDisable(LOC_BACKPACK);
+                    addCoins(stolenCoins);
+                } else {
+                    animateDealCard(stolenCard, LOC_BACKPACK);
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.LASH, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int srcValue = PackedCard.getValue(srcCard);
+                boolean leftToRight = mRandom.nextBoolean();
+                int maxLash = mRandom.nextInt(3) + 1;
+                for (int lashedCount = 0, lashIndex = leftToRight ? 0 : 3; lashIndex >= 0 && lashIndex <= 3 && lashedCount < maxLash; lashIndex += (leftToRight ? 1 : -1)) {
+                    int card = mRowTop[lashIndex];
+                    if (card != PackedCard.NONE && (PackedCard.getType(card) == Card.Type.MONSTER)) {
+                        if (PackedCard.getValue(card) > srcValue) { //Card can take damage (and more)
+                            mRowTop[lashIndex] = PackedCard.setValue(card, PackedCard.getValue(card) - srcValue);
+                            animateCardSuffer(lashIndex);
+                        } else { //Card will be defeated
+                            animateCardCrack(card, lashIndex);
+                        }
+                        lashedCount++;
+                    }
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.BASH, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int shieldLocation = source == LOC_LEFT_HAND ? LOC_RIGHT_HAND : LOC_LEFT_HAND;
+                int shieldCard = getPackedCard(shieldLocation);
+                if (shieldCard != PackedCard.NONE && PackedCard.getType(shieldCard) == Card.Type.SHIELD) {
+                    setCard(shieldLocation, PackedCard.setAbility(shieldCard, Card.Ability.BASH));
+                    animateCardImprove(shieldLocation);
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.REFLECT, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                isNeedToReflectDamage = true;
+                animateCardImprove(LOC_HERO);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.BETRAYAL, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                for (int i = 0; i < 4; i++) {
+                    int card = mRowTop[i];
+                    if (Math.abs(i - destination) == 1 && card != PackedCard.NONE && PackedCard.getType(card) != Card.Type.ABILITY) {
+                        if (PackedCard.getValue(card) > dstValue) { //Card can take damage (and more)
+                            mRowTop[i] = PackedCard.setValue(card, PackedCard.getValue(card) - dstValue);
+                            animateCardSuffer(i);
+                        } else { //Card will be defeated
+                            animateCardCrack(card, i);
+                        }
+                    }
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.REVIVE, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                isNeedToReviveHero = true;
+                animateCardImprove(LOC_HERO);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.FRENZY, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int swordLocation = source == LOC_LEFT_HAND ? LOC_RIGHT_HAND : LOC_LEFT_HAND;
+                int swordCard = getPackedCard(swordLocation);
+                if (swordCard != PackedCard.NONE && PackedCard.getType(swordCard) == Card.Type.WEAPON) {
+                    setCard(swordLocation, PackedCard.setAbility(swordCard, Card.Ability.FRENZY));
+                    animateCardImprove(swordLocation);
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.LUCKY, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int randomCount = 2 - mRandom.nextInt(3) / 2;
+                int cracked = 0; //Cracked cards stay on the board until their animation is over
+                for (int i = 0; i < randomCount && hasTopCards(cracked); i++) {
+                    int randomTarget;
+                    int randomCard;
+                    do {
+                        randomTarget = mRandom.nextInt(4);
+                        randomCard = mRowTop[(randomTarget)];
+                    } while (randomCard == PackedCard.NONE || (cracked & (1 << randomTarget)) != 0);
+                    animateCardCrack(randomCard, randomTarget);
+                    cracked |= 1 << randomTarget;
+                    if (!hasTopCards(cracked)) { //No more cards left
+                        break;
+                    }
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.TRADE, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                addCoins(dstValue * 2);
+                animateCardDiscard(destination);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.SWAP, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                boolean left2Right = mRandom.nextBoolean();
+                for (int swapIndex = left2Right ? 0 : 3; swapIndex >= 0 && swapIndex <= 3; swapIndex += (left2Right ? 1 : -1)) {
+                    int card = mRowTop[swapIndex];
+                    if (Math.abs(swapIndex - destination) != 1 || card == PackedCard.NONE) {
+                        continue;
+                    }
+                    if (PackedCard.getValue(card) > 0) {
+                        dstCard = PackedCard.setValue(dstCard, PackedCard.getValue(card));
+                        setCard(destination, dstCard);
+                        mRowTop[swapIndex] = PackedCard.setValue(card, dstValue);
+                        if (dstValue > PackedCard.getValue(dstCard)) { //Adjacent card improved
+                            animateCardImprove(swapIndex);
+                            animateCardSuffer(destination);
+                        } else if (dstValue < PackedCard.getValue(dstCard)) { //Adjacent card value decreased
+                            animateCardSuffer(swapIndex);
+                            animateCardImprove(destination);
+                        } else { //Equality
+                            animateCardImprove(swapIndex);
+                            animateCardImprove(destination);
+                        }
+                        break;
+                    }
+                } //TODO miss
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.MORPH, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int randomCard = PackedCard.random(mRandom);
+                Card.Type randomType = PackedCard.getType(randomCard);
+                if (destination < 10 && (randomType == Card.Type.MONSTER || randomType == Card.Type.MONSTER_TAMED)) {
+                    randomCard = PackedCard.setActive(randomCard, PackedCard.isActive(mRowTop[destination]));
+                }
+                animateCardTransform(destination, randomCard);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.FORTIFY, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int srcValue = PackedCard.getValue(srcCard);
+                int dstValue = PackedCard.getValue(dstCard);
+                setCard(destination, PackedCard.setValue(dstCard, dstValue + srcValue));
+                animateCardImprove(destination);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.MIDAS, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                Card.Type dstType = PackedCard.getType(dstCard);
+                int coinCard = dstCard;
+                switch (dstType) {
+                    case MONSTER:
+                        coinCard = PackedCard.setValue(coinCard, dstValue / 2);
+                        break;
+                    case ABILITY:
+                        coinCard = PackedCard.setValue(coinCard, dstValue * 2);
+                        break;
+                }
+                coinCard = PackedCard.setInitialValue(coinCard, PackedCard.getValue(coinCard));
+                coinCard = PackedCard.setType(coinCard, Card.Type.COIN);
+                coinCard = PackedCard.setActive(coinCard, true);
+                animateCardTransform(destination, coinCard);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.DEVOUR, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int specialCard = PackedCard.getSpecial(mRandom);
+                animateCardTransform(destination, specialCard);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.TRAP, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                animateCardDisable(destination);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.LIFE, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int srcValue = PackedCard.getValue(srcCard);
+                int life = PackedCard.getValue(mRowBottom[1]) + srcValue;
+                mRowBottom[1] = PackedCard.setValue(mRowBottom[1], life);
+                if (life > Card.HERO_MAX + mHealthAddition) {
+                    mHealthAddition = life - Card.HERO_MAX;
+                }
+                animateCardImprove(LOC_HERO);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.BLEED, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                if (mDamageTakenDuringTurn > 0) {
+                    addCoins(mDamageTakenDuringTurn);
+                } //TODO miss
+                destroyCard(source);
+            }
+        });
+//TODO        register(Card.Ability.WORSHIP, new AbilityHandler() {...});
+
+        register(Card.Ability.BLOODPACT, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                int tempHp = dstValue;
+                dstCard = PackedCard.setValue(dstCard, PackedCard.getValue(mRowBottom[1]));
+                setCard(destination, dstCard);
+                if (tempHp > PackedCard.getValue(dstCard)) { //Hero health increased
+                    mRowBottom[1] = PackedCard.setValue(mRowBottom[1], tempHp);
+                    animateCardImprove(LOC_HERO);
+                    animateCardSuffer(destination);
+                } else { //Mob health increased\
+                    takeDamage(PackedCard.getValue(dstCard) - tempHp);
+                    animateCardImprove(destination);
+                } //TODO miss
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.BOUNTY, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int srcValue = PackedCard.getValue(srcCard);
+                if (mBountyTargetsDelivered > 0) {
+                    addCoins(mBountyTargetsDelivered * srcValue);
+                } //TODO miss
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.EQUALIZE, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                for (int i = 0; i < 4; i++) {
+                    int card = mRowTop[i];
+                    if (Math.abs(i - destination) == 1 && card != PackedCard.NONE && PackedCard.getValue(card) > 0) {
+                        if (PackedCard.getValue(card) <= dstValue) { //Card increased value
+                            animateCardImprove(i);
+                        } else { //Value decreased
+                            animateCardSuffer(i);
+                        }
+                        mRowTop[i] = PackedCard.setValue(card, dstValue);
+                    }
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.DIGGER, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                destroyCard(source);
+                for (int count = 0; count < 3 && mGraveyard.size() > 0; count++) {
+                    int random = mRandom.nextInt(mGraveyard.size());
+                    int resedCard = PackedCard.restoreState(mGraveyard.get(random));
+                    animateReceiveCard(resedCard, count + 10, true);
+                    mGraveyard.remove(random);
+                }
+            }
+        });
+
+        register(Card.Ability.MIRROR, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int mirroredCard = PackedCard.restoreState(dstCard);
+                animateReceiveCard(mirroredCard, destination, true);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.POISON, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                dstCard = PackedCard.setAbility(dstCard, Card.Ability.POISON);
+                setCard(destination, PackedCard.setActive(dstCard, true));
+                animateCardImprove(destination);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.DOOM, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                destroyCard(source);
+                for (int i = 0; i < 4; i++) {
+                    if (mRowTop[i] != PackedCard.NONE) {
+                        animateCardCrack(mRowTop[i], i);
+                    }
+                    if (i == 1) { //Hero card
+                        takeDamage(PackedCard.getValue(mRowBottom[i]) - 1);
+                        continue;
+                    }
+                    if (mRowBottom[i] != PackedCard.NONE) {
+                        animateCardCrack(mRowBottom[i], i + 10);
+                    }
+                }
+            }
+        });
+
+        register(Card.Ability.BRIBE, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                addCoins(-Math.min(mCoins, dstValue));
+                animateReceiveCard(dstCard, destination, false);
+                destroyCard(destination);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.STAB, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                if (hasTopCards(0)) {
+                    int stabTarget;
+                    do {
+                        stabTarget = mRandom.nextInt(4);
+                    } while (mRowTop[stabTarget] == PackedCard.NONE);
+                    for (int i = 0; i < 4; i++) {
+                        int card = mRowTop[i];
+                        if (i == stabTarget) {
+                            animateCardCrack(card, stabTarget);
+                        } else {
+                            if (card != PackedCard.NONE) {
+                                animateReceiveCard(card, i, true);
+                                destroyCard(i);
+                            }
+                        }
+                    }
+                } //TODO miss
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.HEIST, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                for (int count = 0; count < 3 && mShop.size() > 0; count++) {
+                    int random = mRandom.nextInt(mShop.size());
+                    int resedCard = PackedCard.restoreState(mShop.get(random));
+                    animateReceiveCard(resedCard, count + 10, true);
+                    mShop.remove(random);
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.TAME, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                setCard(destination, PackedCard.setType(dstCard, Card.Type.MONSTER_TAMED));
+                animateCardSuffer(destination);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.FEAST, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int dstValue = PackedCard.getValue(dstCard);
+                int feastedValue = 0;
+                for (int i = 0; i < 4; i++) {
+                    int card = mRowTop[i];
+                    if (Math.abs(i - destination) == 1 && card != PackedCard.NONE && PackedCard.getValue(card) > 0) {
+                        feastedValue += PackedCard.getValue(card);
+                    }
+                }
+                if (feastedValue > 0) {
+                    animateCardImprove(destination);
+                    setCard(destination, PackedCard.setValue(dstCard, dstValue + feastedValue));
+                } //TODO miss
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.CHAOS, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int valuedCount = 0;
+                for (int i = 0; i < 4; i++) {
+                    int card = mRowTop[i];
+                    if (card != PackedCard.NONE && PackedCard.getValue(card) > 0) {
+                        mChaosPositions[valuedCount] = i;
+                        mChaosValues[valuedCount++] = PackedCard.getValue(card);
+                    }
+                    card = mRowBottom[i];
+                    if (card != PackedCard.NONE && PackedCard.getValue(card) > 0) {
+                        mChaosPositions[valuedCount] = i + 10;
+                        mChaosValues[valuedCount++] = PackedCard.getValue(card);
+                    }
+                }
+                mRandom.shuffle(mChaosValues, valuedCount);
+                for (int i = 0; i < valuedCount; i++) {
+                    int position = mChaosPositions[i];
+                    int value = mChaosValues[i];
+                    int card = getPackedCard(position);
+                    if (position == LOC_HERO && PackedCard.getValue(card) > value) { //Damage to Hero card
+                        takeDamage(PackedCard.getValue(card) - value);
+                        continue;
+                    }
+                    if (PackedCard.getValue(card) > value) {
+                        animateCardSuffer(position);
+                    } else {
+                        animateCardImprove(position);
+                    }
+                    setCard(position, PackedCard.setValue(card, value));
+                }
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.FAITH, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                int srcValue = PackedCard.getValue(srcCard);
+                mFaithCardsAwaiting += srcValue;
+                animateCardImprove(destination);
+                destroyCard(source);
+            }
+        });
+
+        register(Card.Ability.CHAMPION, new AbilityHandler() {
+            @Override
+            void apply(int source, int destination, int srcCard, int dstCard) {
+                destroyCard(source);
+                mDeck.clear();
+                for (int i = 0; i < 4; i++) {
+                    if (mRowTop[i] != PackedCard.NONE) {
+                        animateReceiveCard(mRowTop[i], i, false);
+                        destroyCard(i);
+                    }
+                    if (i != 1 && mRowBottom[i] != PackedCard.NONE) {
+                        animateDropCard(mRowBottom[i], i + 10);
+                        destroyCard(i + 10);
+                    }
+                }
+            }
+        });
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Report card dealing (or deal immediately)
+     * @param card   Packed card to deal
+     * @param target Target location
+     */
+    private void animateDealCard(int card, int target) {
+        if (card != PackedCard.NONE && isAnimated()) { //Has card to deal
+            mEvents.add(EventBuffer.DEALT, target, card, 0);
+        } else {
+            completeDeal(card, target);
+        }
+    }
+
+    /**
+     * Report card receiving (or receive immediately)
+     * @param card         Packed card to receive
+     * @param source       Source location
+     * @param returnToDeck true if card needs to be put back into the deck
+     */
+    private void animateReceiveCard(int card, int source, boolean returnToDeck) {
+        if (card != PackedCard.NONE) {
+            if (isAnimated()) {
+                mEvents.add(EventBuffer.RETURNED_TO_DECK, source, card, returnToDeck ? 1 : 0);
+            } else {
+                completeReceive(card, returnToDeck);
+            }
+        }
+    }
+
+    /**
+     * Report (disabled) card drop
+     * @param card   Packed card to drop
+     * @param source Source location
+     */
+    private void animateDropCard(int card, int source) {
+        if (card != PackedCard.NONE && isAnimated()) {
+            mEvents.add(EventBuffer.DROPPED, source, card, 0);
+        }
+    }
+
+    /**
+     * Report used card returning to its place
+     * @param source Card location
+     */
+    private void animateCardReturn(int source) {
+        if (mListener != null) {
+            mEvents.add(EventBuffer.CARD_RETURNED, source, PackedCard.NONE, 0);
+        }
+    }
+
+    /**
+     * Report card disappearing (or destroy card immediately)
+     * @param card   Packed card
+     * @param target Target location
+     */
+    private void animateCardCrack(int card, int target) {
+        buryCard(target); //Order of the graveyard does not depend on the animations
+        if (isAnimated()) {
+            mEvents.add(EventBuffer.DESTROYED, target, card, 0);
+        } else {
+            completeCrack(target);
+        }
+    }
+
+    /**
+     * Report card suffer
+     * @param target Target location
+     */
+    private void animateCardSuffer(int target) {
+        if (isAnimated()) {
+            mEvents.add(EventBuffer.DAMAGED, target, PackedCard.NONE, 0);
+        }
+    }
+
+    /**
+     * Report card improve
+     * @param target Target location
+     */
+    private void animateCardImprove(int target) {
+        if (isAnimated()) {
+            mEvents.add(EventBuffer.HEALED, target, PackedCard.NONE, 0);
+        }
+    }
+
+    /**
+     * Report card transform (or transform immediately)
+     * @param target  Target location
+     * @param newCard Packed card to which to transform
+     */
+    private void animateCardTransform(int target, int newCard) {
+        if (isAnimated()) {
+            mEvents.add(EventBuffer.TRANSFORMED, target, newCard, 0);
+        } else {
+            completeTransform(target, newCard);
+        }
+    }
+
+    /**
+     * Report card disable (or disable immediately)
+     * @param target Target location
+     */
+    private void animateCardDisable(int target) {
+        if (isAnimated()) {
+            mEvents.add(EventBuffer.DISABLED, target, PackedCard.NONE, 0);
+        } else {
+            completeDisable(target);
+        }
+    }
+
+    /**
+     * Report card discard (or discard immediately)
+     * @param target Target location
+     */
+    private void animateCardDiscard(int target) {
+        buryCard(target);
+        if (isAnimated()) {
+            mEvents.add(EventBuffer.DISCARDED, target, PackedCard.NONE, 0);
+        } else {
+            completeDiscard(target);
+        }
+    }
+
+    /**
+     * Report hero disappear (or finish the game immediately)
+     */
+    private void animateHeroVanish() {
+        buryCard(LOC_HERO);
+        if (isAnimated()) {
+            mEvents.add(EventBuffer.HERO_VANISHED, LOC_HERO, PackedCard.NONE, 0);
+        } else {
+            completeHeroVanish();
+        }
+    }
+
+    /**
+     * Report hero win (or win the game immediately)
+     */
+    private void animateHeroWin() {
+        if (isAnimated()) {
+            mEvents.add(EventBuffer.HERO_WON, LOC_HERO, PackedCard.NONE, 0);
+        } else {
+            completeHeroWin();
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Finish card dealing
+     * @param card   Dealt card
+     * @param target Target location
+     */
+    public void completeDeal(Card card, int target) {
+        completeDeal(card.getBits(), target);
+    }
+
+    private void completeDeal(int card, int target) {
+        setCard(target, card);
+    }
+
+    /**
+     * Finish card receiving
+     * @param card         Received card
+     * @param returnToDeck true if card needs to be put back into the deck
+     */
+    public void completeReceive(Card card, boolean returnToDeck) {
+        completeReceive(card.getBits(), returnToDeck);
+    }
+
+    private void completeReceive(int card, boolean returnToDeck) {
+        if (returnToDeck) {
+            mDeck.receive(card);
+        }
+    }
+
+    /**
+     * Finish card disappearing (card is already in the graveyard)
+     * @param target Target location
+     */
+    public void completeCrack(int target) {
+        setCard(target, PackedCard.NONE);
+    }
+
+    /**
+     * Finish card transformation
+     * @param target  Target location
+     * @param newCard Card to which to transform
+     */
+    public void completeTransform(int target, Card newCard) {
+        completeTransform(target, newCard.getBits());
+        flushEvents();
+    }
+
+    private void completeTransform(int target, int newCard) {
+        setCard(target, newCard);
+        Card.Type type = PackedCard.getType(newCard);
+        if (type == Card.Type.POTION && PackedCard.getAbility(newCard) != Card.Ability.POISON && (target == LOC_LEFT_HAND || target == LOC_RIGHT_HAND)) {
+            animateCardDisable(target);
+            heal(PackedCard.getValue(newCard));
+            animateCardImprove(LOC_HERO);
+            setCard(target, PackedCard.setValue(getPackedCard(target), 0));
+        }
+        if (type == Card.Type.COIN && (target == LOC_LEFT_HAND || target == LOC_RIGHT_HAND || target == LOC_BACKPACK)) {
+            animateCardDisable(target);
+            addCoins(PackedCard.getValue(newCard));
+            setCard(target, PackedCard.setValue(getPackedCard(target), 0));
+        }
+    }
+
+    /**
+     * Finish card disabling
+     * @param target Target location
+     */
+    public void completeDisable(int target) {
+        int card = getPackedCard(target);
+        if (card != PackedCard.NONE) {
+            setCard(target, PackedCard.setActive(card, false));
+        }
+    }
+
+    /**
+     * Finish card discarding (card is already in the graveyard)
+     * @param target Target location
+     */
+    public void completeDiscard(int target) {
+        setCard(target, PackedCard.NONE);
+    }
+
+    /**
+     * Finish hero disappearing (hero is already in the graveyard)
+     */
+    public void completeHeroVanish() {
+        setCard(LOC_HERO, PackedCard.NONE);
+        isGameOver = true;
+    }
+
+    /**
+     * Finish hero win
+     */
+    public void completeHeroWin() {
+        isHeroWon = true;
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.alexsem.cc.engine;
+
+/**
+ * Compact snapshot of the complete game state (see {@link GameEngine#saveState}).
+ * Everything is stored in a single int array, so snapshots can be reused and copied
+ * without creating any objects
+ * <pre>
+ * [0..1]   game seed
+ * [2]      move count
+ * [3]      total damage taken
+ * [4..5]   state of the random generator
+ * [6..11]  coins, health addition, damage taken during turn, bounty targets, faith cards, flags
+ * [12..19] cards of the top row and of the bottom row
+ * [20..22] sizes of deck, graveyard and shop
+ * [23..]   cards of deck (from the bottom), graveyard and shop
+ * </pre>
+ * Statistics (seed, move count, total damage) are stored, but are not a part of the game position:
+ * they are ignored by {@link #getHash()} and {@link #isSamePosition}
+ */
+public class GameState {
+
+    static final int SEED = 0;
+    static final int MOVE_COUNT = 2;
+    static final int DAMAGE_TAKEN = 3;
+    static final int POSITION = 4; //Start of the data defining the game position
+    static final int RANDOM = 4;
+    static final int COINS = 6;
+    static final int HEALTH_ADDITION = 7;
+    static final int DAMAGE_DURING_TURN = 8;
+    static final int BOUNTY_TARGETS = 9;
+    static final int FAITH_CARDS = 10;
+    static final int FLAGS = 11;
+    static final int ROW_TOP = 12;
+    static final int ROW_BOTTOM = 16;
+    static final int DECK_SIZE = 20;
+    static final int GRAVEYARD_SIZE = 21;
+    static final int SHOP_SIZE = 22;
+    static final int CARDS = 23;
+
+    static final int FLAG_FRESH_DEAL = 1;
+    static final int FLAG_DAMAGE_TAKEN_DURING_TURN = 1 << 1;
+    static final int FLAG_REVIVE_HERO = 1 << 2;
+    static final int FLAG_REFLECT_DAMAGE = 1 << 3;
+    static final int FLAG_RESTARTING = 1 << 4;
+    static final int FLAG_GAME_OVER = 1 << 5;
+    static final int FLAG_HERO_WON = 1 << 6;
+
+    private static final int INITIAL_CAPACITY = 160;
+
+    int[] data = new int[INITIAL_CAPACITY];
+    int length = 0;
+    long hash = 0;
+
+    /**
+     * Make sure the snapshot can hold the specified number of ints
+     * @param capacity Required capacity
+     */
+    void ensureCapacity(int capacity) {
+        if (data.length < capacity) {
+            int[] grown = new int[Math.max(capacity, data.length * 2)];
+            System.arraycopy(data, 0, grown, 0, length);
+            data = grown;
+        }
+    }
+
+    /**
+     * Get hash of the game position (equal for all snapshots of the same position)
+     * @return Zobrist hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Overwrite this snapshot with another one
+     * @param other Snapshot to copy
+     */
+    public void copyFrom(GameState other) {
+        ensureCapacity(other.length);
+        System.arraycopy(other.data, 0, data, 0, other.length);
+        length = other.length;
+        hash = other.hash;
+    }
+
+    /**
+     * Defines whether both snapshots describe the same game position
+     * (moves which led to it and the damage taken are not compared)
+     * @param other Snapshot to compare with
+     * @return true if positions are equal
+     */
+    public boolean isSamePosition(GameState other) {
+        if (hash != other.hash || length != other.length) {
+            return false;
+        }
+        for (int i = POSITION; i < length; i++) {
+            if (data[i] != other.data[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
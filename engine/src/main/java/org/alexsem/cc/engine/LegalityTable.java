@@ -0,0 +1,240 @@
+package org.alexsem.cc.engine;
+
+import org.alexsem.cc.model.Card;
+import org.alexsem.cc.model.PackedCard;
+
+/**
+ * Move legality rules compiled into lookup tables.
+ * Every rule which depends only on card type, card ability and the kind of slot involved is
+ * evaluated once, when the class is loaded. The few conditions which depend on the current game
+ * state are returned as flags and have to be checked by the caller (see {@link GameEngine})
+ */
+final class LegalityTable {
+
+    //Kinds of slots
+    static final int SLOT_TOP = 0;
+    static final int SLOT_HAND = 1;
+    static final int SLOT_HERO = 2;
+    static final int SLOT_BACKPACK = 3;
+    private static final int SLOTS = 4;
+
+    //Destination card index used for empty slots (all the others are type ordinals)
+    static final int EMPTY = 8;
+
+    //Conditions checked against the current state
+    static final int COND_VALUED = 1 << 9;      //Destination card has non-zero value
+    static final int COND_NO_ABILITY = 1 << 10; //Destination card has no ability
+    static final int COND_STEAL = 1 << 11;      //Deck is not empty and backpack is empty
+    static final int COND_ACTIVE = 1 << 12;     //Touched card is active
+    static final int CONDITIONS = COND_VALUED | COND_NO_ABILITY | COND_STEAL | COND_ACTIVE;
+
+    private static final int ANY_CARD = (1 << EMPTY) - 1;
+
+    private static final Card.Type[] types = Card.Type.values();
+    private static final Card.Ability[] abilities = Card.Ability.values();
+    private static final int ABILITIES = abilities.length + 1;
+
+    private static final int[] slots = {SLOT_TOP, SLOT_TOP, SLOT_TOP, SLOT_TOP, -1, -1, -1, -1, -1, -1,
+            SLOT_HAND, SLOT_HERO, SLOT_HAND, SLOT_BACKPACK};
+
+    private static final int[] abilityTargets = new int[ABILITIES];
+    private static final boolean[] abilityTopRowOnly = new boolean[ABILITIES];
+
+    private static final int[] receive = new int[types.length * ABILITIES * SLOTS * SLOTS];
+    private static final boolean[] touch = new boolean[types.length * ABILITIES * SLOTS];
+    private static final int[] touchConditions = new int[types.length * ABILITIES * SLOTS];
+    private static final boolean[] discard = new boolean[types.length * SLOTS];
+
+    static {
+        target(Card.Ability.SAP, ANY_CARD, true, 0);
+        target(Card.Ability.EXCHANGE, ANY_CARD, true, 0);
+        target(Card.Ability.TRAP, ANY_CARD, true, 0);
+        target(Card.Ability.BRIBE, ANY_CARD, true, 0);
+        for (Card.Ability ability : new Card.Ability[]{Card.Ability.VANISH, Card.Ability.LASH, Card.Ability.BASH,
+                Card.Ability.REFLECT, Card.Ability.REVIVE, Card.Ability.FRENZY, Card.Ability.LUCKY, Card.Ability.LIFE,
+                Card.Ability.BLEED, Card.Ability.BOUNTY, Card.Ability.DIGGER, Card.Ability.DOOM, Card.Ability.STAB,
+                Card.Ability.HEIST, Card.Ability.CHAOS, Card.Ability.FAITH, Card.Ability.CHAMPION}) {
+            target(ability, bit(Card.Type.HERO), false, 0);
+        }
+        target(Card.Ability.LEECH, bit(Card.Type.MONSTER), true, 0);
+        target(Card.Ability.SACRIFICE, bit(Card.Type.MONSTER), true, 0);
+        target(Card.Ability.KILLER, bit(Card.Type.MONSTER), true, 0);
+        target(Card.Ability.BETRAYAL, bit(Card.Type.MONSTER), true, 0);
+        target(Card.Ability.BLOODPACT, bit(Card.Type.MONSTER), false, 0);
+        target(Card.Ability.TAME, bit(Card.Type.MONSTER), false, 0);
+        target(Card.Ability.POTIONIZE, bit(Card.Type.COIN) | bit(Card.Type.POTION) | bit(Card.Type.WEAPON) | bit(Card.Type.SHIELD), false, 0);
+        target(Card.Ability.STEAL, bit(Card.Type.HERO), false, COND_STEAL);
+        target(Card.Ability.TRADE, ANY_CARD & ~bit(Card.Type.MONSTER) & ~bit(Card.Type.HERO), false, 0);
+        target(Card.Ability.SWAP, ANY_CARD, true, COND_VALUED);
+        target(Card.Ability.EQUALIZE, ANY_CARD, true, COND_VALUED);
+        target(Card.Ability.FEAST, ANY_CARD, true, COND_VALUED);
+        target(Card.Ability.MORPH, ANY_CARD & ~bit(Card.Type.HERO), false, 0);
+        target(Card.Ability.DEVOUR, ANY_CARD & ~bit(Card.Type.HERO), false, 0);
+        target(Card.Ability.MIRROR, ANY_CARD & ~bit(Card.Type.HERO), false, 0);
+        target(Card.Ability.FORTIFY, ANY_CARD & ~bit(Card.Type.HERO), false, COND_VALUED);
+        target(Card.Ability.MIDAS, ANY_CARD & ~bit(Card.Type.HERO), false, COND_VALUED);
+        target(Card.Ability.POISON, bit(Card.Type.POTION), false, COND_NO_ABILITY);
+//TODO        target(Card.Ability.WORSHIP, bit(Card.Type.HERO), false, 0);
+
+        for (Card.Type type : types) {
+            for (int ability = 0; ability < ABILITIES; ability++) {
+                for (int source = 0; source < SLOTS; source++) {
+                    int touchIndex = (type.ordinal() * ABILITIES + ability) * SLOTS + source;
+                    touch[touchIndex] = compileTouch(type, ability, source);
+                    touchConditions[touchIndex] = (type == Card.Type.POTION || type == Card.Type.COIN) ? COND_ACTIVE : 0;
+                    for (int destination = 0; destination < SLOTS; destination++) {
+                        receive[touchIndex * SLOTS + destination] = compileReceive(type, ability, source, destination);
+                    }
+                }
+            }
+            for (int location = 0; location < SLOTS; location++) {
+                discard[type.ordinal() * SLOTS + location] = compileDiscard(type, location);
+            }
+        }
+    }
+
+    private LegalityTable() {
+    }
+
+    private static int bit(Card.Type type) {
+        return 1 << type.ordinal();
+    }
+
+    private static void target(Card.Ability ability, int targets, boolean topRowOnly, int conditions) {
+        abilityTargets[ability.ordinal() + 1] = targets | conditions;
+        abilityTopRowOnly[ability.ordinal() + 1] = topRowOnly;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Mask of destination cards which can receive the card (see {@link #canReceiveThis})
+     * @param type        Source card type
+     * @param ability     Source card ability index (ordinal + 1)
+     * @param source      Kind of source slot
+     * @param destination Kind of destination slot
+     * @return Bits of destination types (or {@link #EMPTY}) combined with conditions
+     */
+    private static int compileReceive(Card.Type type, int ability, int source, int destination) {
+        boolean fromHand = source == SLOT_HAND;
+        boolean toTop = destination == SLOT_TOP;
+        boolean toHand = destination == SLOT_HAND;
+        boolean pack = (source == SLOT_TOP && destination == SLOT_BACKPACK) || ((source == SLOT_TOP || source == SLOT_BACKPACK) && toHand);
+        int result = 0;
+        switch (type) {
+            case MONSTER:
+                result |= bit(Card.Type.HERO);
+                if (toHand) {
+                    result |= bit(Card.Type.SHIELD) | bit(Card.Type.MONSTER_TAMED);
+                }
+                return result;
+            case MONSTER_TAMED:
+            case WEAPON:
+                if (toTop && fromHand) {
+                    result |= bit(Card.Type.MONSTER);
+                }
+                break;
+            case SHIELD:
+                if (toTop && fromHand && ability == Card.Ability.BASH.ordinal() + 1) {
+                    result |= bit(Card.Type.MONSTER);
+                }
+                break;
+            case POTION:
+                if (toTop && fromHand && ability == Card.Ability.POISON.ordinal() + 1) {
+                    result |= bit(Card.Type.MONSTER);
+                }
+                break;
+            case COIN:
+                if (toHand || destination == SLOT_BACKPACK) {
+                    result |= 1 << EMPTY;
+                }
+                return result;
+            case ABILITY:
+                if (fromHand && (toTop || !abilityTopRowOnly[ability])) {
+                    result |= abilityTargets[ability];
+                }
+                break;
+            default:
+                return 0;
+        }
+        if (pack) {
+            result |= 1 << EMPTY;
+        }
+        return result;
+    }
+
+    private static boolean compileTouch(Card.Type type, int ability, int location) {
+        switch (type) {
+            case MONSTER:
+            case MONSTER_TAMED:
+            case WEAPON:
+            case ABILITY:
+            case POTION:
+            case COIN:
+                return true;
+            case SHIELD:
+                return location != SLOT_HAND || ability == Card.Ability.BASH.ordinal() + 1;
+        }
+        return false;
+    }
+
+    private static boolean compileDiscard(Card.Type type, int location) {
+        switch (type) {
+            case WEAPON:
+            case SHIELD:
+            case POTION:
+            case ABILITY:
+                return (location == SLOT_TOP || location == SLOT_BACKPACK);
+            case COIN:
+                return (location == SLOT_TOP);
+        }
+        return false;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Get kind of the slot
+     * @param location Coordinate number of position
+     * @return Slot kind or -1 if there is no such slot
+     */
+    static int getSlot(int location) {
+        return location >= 0 && location < slots.length ? slots[location] : -1;
+    }
+
+    /**
+     * Defines whether card can be received by specific position (before checking the conditions)
+     * @param srcCard     Source card (must not be {@link PackedCard#NONE})
+     * @param source      Coordinate number of source card position
+     * @param dstCard     Destination card or {@link PackedCard#NONE}
+     * @param destination Coordinate number of dest card position
+     * @return Conditions which should also be satisfied or -1 if the move is illegal
+     */
+    static int canReceiveThis(int srcCard, int source, int dstCard, int destination) {
+        int entry = receive[((PackedCard.getTypeOrdinal(srcCard) * ABILITIES + PackedCard.getAbilityOrdinal(srcCard) + 1) * SLOTS + slots[source]) * SLOTS + slots[destination]];
+        int target = dstCard != PackedCard.NONE ? PackedCard.getTypeOrdinal(dstCard) : EMPTY;
+        return (entry & (1 << target)) != 0 ? entry & CONDITIONS : -1;
+    }
+
+    /**
+     * Defines whether card can be touched (before checking the conditions)
+     * @param card     Card (must not be {@link PackedCard#NONE})
+     * @param location Coordinate number of card position
+     * @return Conditions which should also be satisfied or -1 if card cannot be touched
+     */
+    static int canTouchThis(int card, int location) {
+        int index = (PackedCard.getTypeOrdinal(card) * ABILITIES + PackedCard.getAbilityOrdinal(card) + 1) * SLOTS + slots[location];
+        return touch[index] ? touchConditions[index] : -1;
+    }
+
+    /**
+     * Defines whether card can be discarded
+     * @param card     Card (must not be {@link PackedCard#NONE})
+     * @param location Coordinate number of card position
+     * @return true or false
+     */
+    static boolean canDiscardThis(int card, int location) {
+        return discard[PackedCard.getTypeOrdinal(card) * SLOTS + slots[location]];
+    }
+
+}
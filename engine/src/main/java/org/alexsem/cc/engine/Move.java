@@ -0,0 +1,51 @@
+package org.alexsem.cc.engine;
+
+/**
+ * Helper methods for moves packed into int values
+ * (source location in the higher bits, destination location in the lower 4 bits)
+ */
+public final class Move {
+
+    public static final int NONE = -1;
+    public static final int DISCARD = 15;
+    public static final int MAX_COUNT = 64; //8 cards, each can go to 7 other locations or be discarded
+
+    private Move() {
+    }
+
+    /**
+     * Create move of card to another location
+     * @param source      Coordinate number of source card position
+     * @param destination Coordinate number of dest card position
+     * @return Packed move
+     */
+    public static int of(int source, int destination) {
+        return (source << 4) | destination;
+    }
+
+    /**
+     * Create move of card to the discard box
+     * @param source Coordinate number of card position
+     * @return Packed move
+     */
+    public static int discard(int source) {
+        return (source << 4) | DISCARD;
+    }
+
+    public static int getSource(int move) {
+        return move >>> 4;
+    }
+
+    public static int getDestination(int move) {
+        return move & 0xf;
+    }
+
+    public static boolean isDiscard(int move) {
+        return (move & 0xf) == DISCARD;
+    }
+
+    public static String toString(int move) {
+        return isDiscard(move) ? getSource(move) + "->X" : getSource(move) + "->" + getDestination(move);
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.alexsem.cc.engine.search;
+
+import org.alexsem.cc.engine.GameEngine;
+import org.alexsem.cc.engine.GameState;
+
+/**
+ * Base class for analysis which runs on its own low priority thread.
+ * Position is copied on the calling thread (so the engine can be used by UI right away),
+ * every new request cancels the previous one, and results of the cancelled requests are never reported
+ */
+public abstract class BackgroundSearch {
+
+    private final GameState mPendingState = new GameState();
+    private final GameState mState = new GameState();
+    private final Object mLock = new Object();
+
+    private volatile int mGeneration = 0;
+    private boolean isPending = false;
+    private boolean isShutdown = false;
+
+    /**
+     * @param name Name of the search thread
+     */
+    protected BackgroundSearch(String name) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Start analysis of the current position of the engine
+     * (analysis which is already running gets cancelled)
+     * @param engine Engine to take position from (is not modified)
+     * @return Number of the request to be compared with the one reported to listener
+     */
+    public int start(GameEngine engine) {
+        synchronized (mLock) {
+            engine.saveState(mPendingState);
+            isPending = true;
+            mGeneration++;
+            mLock.notify();
+            return mGeneration;
+        }
+    }
+
+    /**
+     * Cancel the running analysis (its results are not reported anymore)
+     */
+    public void cancel() {
+        synchronized (mLock) {
+            isPending = false;
+            mGeneration++;
+        }
+    }
+
+    /**
+     * Stop the search thread (object cannot be used afterwards)
+     */
+    public void shutdown() {
+        synchronized (mLock) {
+            isShutdown = true;
+            mGeneration++;
+            mLock.notify();
+        }
+    }
+
+    /**
+     * Defines whether the request was cancelled or replaced by a newer one
+     * @param generation Number of the request
+     * @return true if analysis should be stopped
+     */
+    protected boolean isCancelled(int generation) {
+        return mGeneration != generation;
+    }
+
+    /**
+     * Analyse position (called on the search thread)
+     * @param state      Position to analyse
+     * @param generation Number of the request (see {@link #isCancelled})
+     */
+    protected abstract void search(GameState state, int generation);
+
+    //----------------------------------------------------------------------------------------------
+
+    private void loop() {
+        while (true) {
+            int generation;
+            synchronized (mLock) {
+                while (!isPending && !isShutdown) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (isShutdown) {
+                    return;
+                }
+                isPending = false;
+                generation = mGeneration;
+                mState.copyFrom(mPendingState);
+            }
+            search(mState, generation);
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.alexsem.cc.engine.search;
+
+import org.alexsem.cc.engine.GameState;
+import org.alexsem.cc.engine.Move;
+import org.alexsem.cc.model.GameRandom;
+
+/**
+ * Background search of the best move for the player (hint).
+ * Search itself is run by {@link MonteCarloBot}; best move found so far is reported to the listener
+ * every time it changes, so the hint can be shown long before the search is over
+ */
+public class HintSearch extends BackgroundSearch {
+
+    /**
+     * Interface for receiving search results
+     */
+    public interface Listener {
+        /**
+         * Called (on the search thread) whenever new best move is found
+         * @param generation Number of the search returned by {@link #start}
+         * @param move       Best move found so far ({@link Move#NONE} if there are no legal moves)
+         * @param isFinal    true if the search is over
+         */
+        public void onHint(int generation, int move, boolean isFinal);
+    }
+
+    private static final long REPORT_INTERVAL = 40 * 1000000L; //ns
+    private static final long TIME_BUDGET = 1500 * 1000000L; //ns
+    private static final int MAX_ITERATIONS = 50000;
+    private static final int BATCH_SIZE = 16;
+
+    private final Listener mListener;
+    private final MonteCarloBot mBot = new MonteCarloBot(1, 0, MAX_ITERATIONS);
+    private final GameRandom mRandom = GameRandom.create();
+
+    /**
+     * @param listener Listener which receives the results
+     */
+    public HintSearch(Listener listener) {
+        super("HintSearch");
+        this.mListener = listener;
+    }
+
+    @Override
+    protected void search(GameState state, int generation) {
+        int count = mBot.prepare(state, mRandom.nextLong());
+        if (count <= 1) { //Nothing to choose from
+            mListener.onHint(generation, mBot.getBestMove(), true);
+            return;
+        }
+        long now = System.nanoTime();
+        long deadline = now + TIME_BUDGET;
+        long report = now + REPORT_INTERVAL;
+        int reported = Move.NONE;
+        for (int i = 0; i < MAX_ITERATIONS && now < deadline; i += BATCH_SIZE) {
+            if (isCancelled(generation)) {
+                return;
+            }
+            mBot.search(BATCH_SIZE);
+            now = System.nanoTime();
+            if (now >= report) { //Report intermediate result
+                int move = mBot.getBestMove();
+                if (move != reported) {
+                    reported = move;
+                    mListener.onHint(generation, move, false);
+                }
+                report = now + REPORT_INTERVAL;
+            }
+        }
+        if (!isCancelled(generation)) {
+            mListener.onHint(generation, mBot.getBestMove(), true);
+        }
+    }
+
+}
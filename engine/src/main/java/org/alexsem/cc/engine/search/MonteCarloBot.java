@@ -0,0 +1,346 @@
+package org.alexsem.cc.engine.search;
+
+import org.alexsem.cc.engine.GameEngine;
+import org.alexsem.cc.engine.GameState;
+import org.alexsem.cc.engine.Move;
+import org.alexsem.cc.engine.sim.MovePolicy;
+import org.alexsem.cc.engine.sim.Simulator;
+import org.alexsem.cc.model.Deck;
+import org.alexsem.cc.model.GameRandom;
+import org.alexsem.cc.model.PackedCard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Bot which plays without knowing the deck order and the outcome of random effects
+ * (information set Monte Carlo tree search).
+ * Every iteration guesses the hidden information (see {@link GameEngine#randomizeHidden}),
+ * walks down the tree of moves using UCB1 with availability counts, plays the rest of the game
+ * randomly and backs up the result. Every thread grows its own tree, visit counts of the root moves
+ * are summed up once the time budget is over
+ */
+public class MonteCarloBot implements MovePolicy {
+
+    public static final long DEFAULT_TIME_BUDGET = 40; //ms
+
+    private static final int MAX_TREE_DEPTH = 64;
+    private static final int MAX_ROLLOUT_MOVES = 40;
+    private static final double EXPLORATION = 0.7;
+
+    private final int mThreads;
+    private final long mTimeBudget;
+    private final int mMaxIterations;
+    private final ExecutorService mExecutor;
+    private final Worker[] mWorkers;
+    private final List<Future<Void>> mFutures = new ArrayList<>();
+    private final GameState mRootState = new GameState();
+    private final int[] mRootMoves = new int[Move.MAX_COUNT];
+    private final int[] mRootVisits = new int[Move.MAX_COUNT];
+    private int mRootCount;
+    private long mDeadline;
+
+    /**
+     * Create factory of bots (to be used by {@link Simulator})
+     * @param threads       Number of search threads of each bot
+     * @param timeBudget    Time limit per move (in milliseconds)
+     * @param maxIterations Iteration limit per move
+     * @return Factory
+     */
+    public static Factory factory(final int threads, final long timeBudget, final int maxIterations) {
+        return new Factory() {
+            @Override
+            public MovePolicy create() {
+                return new MonteCarloBot(threads, timeBudget, maxIterations);
+            }
+        };
+    }
+
+    public MonteCarloBot() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_TIME_BUDGET, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param threads       Number of search threads
+     * @param timeBudget    Time limit per move (in milliseconds)
+     * @param maxIterations Iteration limit per move (per thread)
+     */
+    public MonteCarloBot(int threads, long timeBudget, int maxIterations) {
+        this.mThreads = Math.max(1, threads);
+        this.mTimeBudget = timeBudget * 1000000L;
+        this.mMaxIterations = maxIterations;
+        this.mWorkers = new Worker[mThreads];
+        for (int i = 0; i < mThreads; i++) {
+            mWorkers[i] = new Worker();
+        }
+        this.mExecutor = mThreads > 1 ? Executors.newFixedThreadPool(mThreads - 1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MonteCarloBot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+    }
+
+    /**
+     * Stop helper threads (bot cannot be used afterwards)
+     */
+    public void shutdown() {
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public int chooseMove(GameEngine engine, GameRandom random) {
+        int count = engine.generateMoves(mRootMoves);
+        if (count <= 1) {
+            return count == 1 ? mRootMoves[0] : Move.NONE;
+        }
+        engine.saveState(mRootState);
+        mDeadline = System.nanoTime() + mTimeBudget;
+        for (Worker worker : mWorkers) {
+            worker.random.setSeed(random.nextLong());
+        }
+        //Run search on the helper threads and on the calling one
+        mFutures.clear();
+        for (int i = 1; i < mThreads; i++) {
+            mFutures.add(mExecutor.submit(mWorkers[i]));
+        }
+        mWorkers[0].call();
+        for (Future<Void> future : mFutures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return findBestMove(count, mThreads);
+    }
+
+    /**
+     * Start incremental search from the specified position (to be continued with {@link #search}).
+     * Only the first worker is used, so the search can be run on any single thread
+     * @param state Position to search from
+     * @param seed  Seed of the random generator
+     * @return Number of legal moves in the position
+     */
+    int prepare(GameState state, long seed) {
+        Worker worker = mWorkers[0];
+        mRootState.copyFrom(state);
+        worker.engine.restoreState(state);
+        mRootCount = worker.engine.generateMoves(mRootMoves);
+        worker.random.setSeed(seed);
+        worker.root = new Node(Move.NONE);
+        return mRootCount;
+    }
+
+    /**
+     * Continue incremental search (see {@link #prepare})
+     * @param iterations Number of iterations to make
+     */
+    void search(int iterations) {
+        Worker worker = mWorkers[0];
+        for (int i = 0; i < iterations; i++) {
+            worker.iterate();
+        }
+    }
+
+    /**
+     * Get best move found so far by the incremental search (see {@link #prepare})
+     * @return Most visited move or {@link Move#NONE} if there are no legal moves
+     */
+    int getBestMove() {
+        return mRootCount > 0 ? findBestMove(mRootCount, 1) : Move.NONE;
+    }
+
+    /**
+     * Find root move which was visited the most
+     * @param count   Number of root moves
+     * @param workers Number of workers which took part in the search
+     * @return Most visited move
+     */
+    private int findBestMove(int count, int workers) {
+        for (int i = 0; i < count; i++) {
+            mRootVisits[i] = 0;
+            for (int j = 0; j < workers; j++) {
+                Node child = mWorkers[j].root.find(mRootMoves[i]);
+                if (child != null) {
+                    mRootVisits[i] += child.visits;
+                }
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (mRootVisits[i] > mRootVisits[best]) {
+                best = i;
+            }
+        }
+        return mRootMoves[best];
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Node of the search tree (move made from the parent node and its statistics)
+     */
+    private static class Node {
+
+        final int move;
+        Node[] children = new Node[4];
+        int childCount = 0;
+        int visits = 0;
+        int availability = 0; //Number of times the move was legal when the parent was visited
+        double reward = 0;
+
+        Node(int move) {
+            this.move = move;
+        }
+
+        Node find(int move) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i].move == move) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node add(int move) {
+            if (childCount == children.length) {
+                Node[] grown = new Node[children.length * 2];
+                System.arraycopy(children, 0, grown, 0, childCount);
+                children = grown;
+            }
+            Node child = new Node(move);
+            children[childCount++] = child;
+            return child;
+        }
+
+        double getScore() {
+            return reward / visits + EXPLORATION * Math.sqrt(Math.log(availability) / visits);
+        }
+    }
+
+    /**
+     * Single search thread with its own engine and tree
+     */
+    private class Worker implements Callable<Void> {
+
+        final GameEngine engine = new GameEngine();
+        final GameRandom random = new GameRandom(0);
+        final int[][] moves = new int[MAX_TREE_DEPTH][Move.MAX_COUNT];
+        final Node[] path = new Node[MAX_TREE_DEPTH + 1];
+        Node root;
+
+        @Override
+        public Void call() {
+            root = new Node(Move.NONE);
+            for (int i = 0; i < mMaxIterations && System.nanoTime() < mDeadline; i++) {
+                iterate();
+            }
+            return null;
+        }
+
+        private void iterate() {
+            engine.restoreState(mRootState);
+            engine.randomizeHidden(random);
+            //Selection & expansion
+            Node node = root;
+            int depth = 0;
+            path[0] = root;
+            while (depth < MAX_TREE_DEPTH && !engine.isGameOver() && !engine.isHeroWon()) {
+                int[] legal = moves[depth];
+                int count = engine.generateMoves(legal);
+                if (count == 0) {
+                    break;
+                }
+                Node best = null;
+                double bestScore = -1;
+                int untried = 0;
+                for (int i = 0; i < count; i++) {
+                    Node child = node.find(legal[i]);
+                    if (child == null) {
+                        legal[untried++] = legal[i]; //Collect untried moves at the beginning of the buffer
+                    } else {
+                        child.availability++;
+                        double score = child.getScore();
+                        if (score > bestScore) {
+                            bestScore = score;
+                            best = child;
+                        }
+                    }
+                }
+                if (untried > 0) {
+                    node = node.add(legal[random.nextInt(untried)]);
+                    node.availability = 1;
+                    engine.doMove(node.move);
+                    path[++depth] = node;
+                    break;
+                }
+                node = best;
+                engine.doMove(node.move);
+                path[++depth] = node;
+            }
+            //Simulation
+            int[] buffer = moves[0];
+            for (int i = 0; i < MAX_ROLLOUT_MOVES && !engine.isGameOver() && !engine.isHeroWon(); i++) {
+                int count = engine.generateMoves(buffer);
+                if (count == 0) {
+                    break;
+                }
+                engine.doMove(buffer[random.nextInt(count)]);
+            }
+            //Backpropagation
+            double reward = evaluate();
+            for (int i = 0; i <= depth; i++) {
+                path[i].visits++;
+                path[i].reward += reward;
+            }
+        }
+
+        /**
+         * Estimate result of the game in the current position of the engine
+         * @return Reward between 0 (lost without any progress) and 1 (won)
+         */
+        private double evaluate() {
+            if (engine.isHeroWon()) {
+                return 1;
+            }
+            int remaining = engine.getDeckSize();
+            for (int i = 0; i < 4; i++) {
+                int card = engine.getPackedCard(i);
+                if (card != PackedCard.NONE && PackedCard.isActive(card)) {
+                    remaining++;
+                }
+            }
+            double progress = 1 - (double) remaining / Deck.TOTAL_CARDS; //Cards in the deck and the first row
+            return engine.isGameOver() ? 0.4 * progress : 0.5 + 0.4 * progress;
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Play batch of games with the bot
+     * @param args [games] [seed] [time budget per move in ms] [iterations per move]
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : GameRandom.create().nextLong();
+        long timeBudget = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_TIME_BUDGET;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : Integer.MAX_VALUE;
+        System.out.println(String.format("seed: %d, time budget: %d ms, iterations: %d", seed, timeBudget, iterations));
+        System.out.println(new Simulator(factory(1, timeBudget, iterations)).run(seed, games, Runtime.getRuntime().availableProcessors()));
+    }
+
+}
@@ -0,0 +1,419 @@
+package org.alexsem.cc.engine.search;
+
+import org.alexsem.cc.engine.GameEngine;
+import org.alexsem.cc.engine.GameState;
+import org.alexsem.cc.engine.Move;
+import org.alexsem.cc.model.Card;
+import org.alexsem.cc.model.GameRandom;
+import org.alexsem.cc.model.PackedCard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Perfect-information solver: with the deck order and all random decisions known in advance
+ * (they are defined by the game seed) decides whether the game can be won and finds the winning line.
+ * Depth-first search over the compact game states with transposition table of lost positions,
+ * heuristic move ordering and root moves split between worker threads
+ */
+public class Solver {
+
+    public static final int DEFAULT_MAX_DEPTH = 400;
+    public static final int DEFAULT_TABLE_BITS = 22;
+
+    private static final int NODES_PER_CHECK = 4096;
+
+    public enum Outcome {
+        WIN, LOSS, UNKNOWN
+    }
+
+    /**
+     * Result of solving single game
+     */
+    public static class Result {
+
+        private final Outcome outcome;
+        private final int[] line;
+        private final long nodes;
+        private final long elapsedNanos;
+
+        Result(Outcome outcome, int[] line, long nodes, long elapsedNanos) {
+            this.outcome = outcome;
+            this.line = line;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Get outcome of the game ({@link Outcome#UNKNOWN} if search was stopped by node limit or depth limit)
+         * @return Outcome
+         */
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * Get winning line
+         * @return Packed moves (see {@link Move}) or empty array if game is not won
+         */
+        public int[] getLine() {
+            return line;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(outcome).append(String.format(" (%d nodes, %.2f s)", nodes, elapsedNanos / 1e9));
+            for (int move : line) {
+                builder.append(' ').append(Move.toString(move));
+            }
+            return builder.toString();
+        }
+    }
+
+    private final int mThreads;
+    private final long mNodeLimit;
+    private final int mMaxDepth;
+    private final TranspositionTable mTable;
+
+    private final AtomicBoolean isStopped = new AtomicBoolean();
+    private final AtomicLong mNodes = new AtomicLong();
+    private final AtomicInteger mNextRoot = new AtomicInteger();
+    private volatile int[] mWinningLine;
+    private volatile boolean isIncomplete;
+    private GameState[] mRootStates;
+    private int[] mRootMoves;
+    private int mRootCount;
+
+    public Solver() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_TABLE_BITS, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param threads   Number of worker threads
+     * @param tableBits Binary logarithm of the transposition table size
+     * @param nodeLimit Number of positions after which search is abandoned
+     */
+    public Solver(int threads, int tableBits, long nodeLimit) {
+        this(threads, tableBits, nodeLimit, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param threads   Number of worker threads
+     * @param tableBits Binary logarithm of the transposition table size
+     * @param nodeLimit Number of positions after which search is abandoned
+     * @param maxDepth  Maximum length of the winning line
+     */
+    public Solver(int threads, int tableBits, long nodeLimit, int maxDepth) {
+        this.mThreads = Math.max(1, threads);
+        this.mNodeLimit = nodeLimit;
+        this.mMaxDepth = maxDepth;
+        this.mTable = new TranspositionTable(tableBits);
+    }
+
+    /**
+     * Solve game from the very beginning
+     * @param seed Game seed
+     * @return Result of the search
+     */
+    public Result solve(long seed) {
+        GameEngine engine = new GameEngine();
+        engine.begin(seed);
+        engine.start();
+        GameState state = new GameState();
+        engine.saveState(state);
+        return solve(state);
+    }
+
+    /**
+     * Solve game from the specified position (not thread-safe, one search at a time)
+     * @param root Starting position
+     * @return Result of the search
+     */
+    public Result solve(GameState root) {
+        long start = System.nanoTime();
+        mTable.clear();
+        isStopped.set(false);
+        mNodes.set(0);
+        mNextRoot.set(0);
+        mWinningLine = null;
+        isIncomplete = false;
+
+        //Expand root on the calling thread
+        Worker worker = new Worker();
+        worker.engine.restoreState(root);
+        if (worker.engine.isHeroWon()) {
+            return new Result(Outcome.WIN, new int[0], 0, System.nanoTime() - start);
+        }
+        if (worker.engine.isGameOver()) {
+            return new Result(Outcome.LOSS, new int[0], 0, System.nanoTime() - start);
+        }
+        mRootCount = worker.expand(0);
+        if (mWinningLine == null) {
+            mRootStates = new GameState[mRootCount];
+            mRootMoves = new int[mRootCount];
+            for (int i = 0; i < mRootCount; i++) {
+                mRootStates[i] = worker.children[0][worker.order[0][i]];
+                mRootMoves[i] = worker.moves[0][worker.order[0][i]];
+            }
+            List<Callable<Void>> workers = new ArrayList<>();
+            workers.add(worker);
+            for (int i = 1; i < Math.min(mThreads, mRootCount); i++) {
+                workers.add(new Worker());
+            }
+            ForkJoinPool pool = new ForkJoinPool(workers.size());
+            try {
+                pool.invokeAll(workers);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        Outcome outcome = mWinningLine != null ? Outcome.WIN : isIncomplete ? Outcome.UNKNOWN : Outcome.LOSS;
+        return new Result(outcome, mWinningLine != null ? mWinningLine : new int[0], mNodes.get(), System.nanoTime() - start);
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Single search thread with its own engine and preallocated buffers for every depth
+     */
+    private class Worker implements Callable<Void> {
+
+        final GameEngine engine = new GameEngine();
+        final int[][] moves = new int[mMaxDepth + 1][Move.MAX_COUNT];
+        final int[][] order = new int[mMaxDepth + 1][Move.MAX_COUNT];
+        final int[][] scores = new int[mMaxDepth + 1][Move.MAX_COUNT];
+        final GameState[][] children = new GameState[mMaxDepth + 1][];
+        final GameState[] parents = new GameState[mMaxDepth + 1];
+        final long[] path = new long[mMaxDepth + 1];
+        final int[] line = new int[mMaxDepth + 1];
+        int lineLength = 0;
+        long nodes = 0;
+        boolean isDepthLimited; //Last search was cut off by the depth limit
+        boolean isPathDependent; //Last search was cut off by repeated position (or stopped)
+
+        @Override
+        public Void call() {
+            while (!isStopped.get()) {
+                int index = mNextRoot.getAndIncrement();
+                if (index >= mRootCount) {
+                    break;
+                }
+                engine.restoreState(mRootStates[index]);
+                line[0] = mRootMoves[index];
+                isDepthLimited = false;
+                isPathDependent = false;
+                if (search(1)) {
+                    win(lineLength);
+                } else if (isDepthLimited || isPathDependent) {
+                    isIncomplete = true;
+                }
+            }
+            mNodes.addAndGet(nodes % NODES_PER_CHECK);
+            nodes = 0;
+            return null;
+        }
+
+        /**
+         * Report winning line (of the specified length) and stop all the workers
+         * @param length Number of moves in line
+         */
+        private void win(int length) {
+            synchronized (Solver.this) {
+                if (mWinningLine == null) {
+                    int[] result = new int[length];
+                    System.arraycopy(line, 0, result, 0, length);
+                    mWinningLine = result;
+                }
+            }
+            isStopped.set(true);
+        }
+
+        /**
+         * Defines whether the game can be won from the current position of the engine
+         * @param depth Number of moves made since the root
+         * @return true if winning line is found (stored in the line buffer)
+         */
+        private boolean search(int depth) {
+            if (++nodes % NODES_PER_CHECK == 0 && mNodes.addAndGet(NODES_PER_CHECK) > mNodeLimit) {
+                isStopped.set(true);
+                isIncomplete = true;
+            }
+            if (isStopped.get()) {
+                isPathDependent = true;
+                return false;
+            }
+            if (depth >= mMaxDepth) {
+                isDepthLimited = true;
+                return false;
+            }
+            long hash = engine.getStateHash();
+            int remaining = mMaxDepth - depth;
+            int bound = mTable.getLostBound(hash);
+            if (bound >= remaining) {
+                if (bound != TranspositionTable.UNBOUNDED) { //Lost only within the depth it was searched to
+                    isDepthLimited = true;
+                }
+                return false;
+            }
+            for (int i = 1; i < depth; i++) {
+                if (path[i] == hash) { //Position repeats
+                    isPathDependent = true;
+                    return false;
+                }
+            }
+            path[depth] = hash;
+
+            int count = expand(depth);
+            if (count < 0) { //Won right away
+                return true;
+            }
+            boolean isAnyDepthLimited = false;
+            boolean isAnyPathDependent = false;
+            for (int i = 0; i < count; i++) {
+                int index = order[depth][i];
+                engine.restoreState(children[depth][index]);
+                line[depth] = moves[depth][index];
+                isDepthLimited = false;
+                isPathDependent = false;
+                if (search(depth + 1)) {
+                    return true;
+                }
+                isAnyDepthLimited |= isDepthLimited;
+                isAnyPathDependent |= isPathDependent;
+            }
+            isDepthLimited = isAnyDepthLimited;
+            isPathDependent = isAnyPathDependent;
+            if (!isAnyPathDependent) { //Lost positions reached through repetitions may still be won from other paths
+                mTable.putLost(hash, isAnyDepthLimited ? remaining : TranspositionTable.UNBOUNDED);
+            }
+            return false;
+        }
+
+        /**
+         * Make all legal moves from the current position, saving resulting positions
+         * ordered from the most promising to the least one
+         * @param depth Number of moves made since the root
+         * @return Number of positions to search or -1 if one of the moves wins the game
+         */
+        int expand(int depth) {
+            if (parents[depth] == null) {
+                parents[depth] = new GameState();
+                children[depth] = new GameState[Move.MAX_COUNT];
+            }
+            GameState parent = parents[depth];
+            engine.saveState(parent);
+            int moveCount = engine.generateMoves(moves[depth]);
+            int count = 0;
+            for (int i = 0; i < moveCount; i++) {
+                int move = moves[depth][i];
+                if (i > 0) {
+                    engine.restoreState(parent);
+                }
+                engine.doMove(move);
+                if (engine.isHeroWon()) {
+                    line[depth] = move;
+                    lineLength = depth + 1;
+                    if (depth == 0) {
+                        win(lineLength);
+                    }
+                    return -1;
+                }
+                if (engine.isGameOver()) {
+                    continue;
+                }
+                GameState child = children[depth][i];
+                if (child == null) {
+                    child = new GameState();
+                    children[depth][i] = child;
+                }
+                engine.saveState(child);
+                if (isDuplicate(depth, count, child)) {
+                    continue;
+                }
+                //Insertion sort by score (best first)
+                int score = evaluate();
+                int position = count++;
+                while (position > 0 && scores[depth][position - 1] < score) {
+                    scores[depth][position] = scores[depth][position - 1];
+                    order[depth][position] = order[depth][position - 1];
+                    position--;
+                }
+                scores[depth][position] = score;
+                order[depth][position] = i;
+            }
+            return count;
+        }
+
+        private boolean isDuplicate(int depth, int count, GameState child) {
+            for (int i = 0; i < count; i++) {
+                if (children[depth][order[depth][i]].isSamePosition(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Estimate how promising the current position of the engine is
+         * @return Score (bigger is better)
+         */
+        private int evaluate() {
+            int remaining = engine.getDeckSize();
+            for (int i = 0; i < 4; i++) {
+                int card = engine.getPackedCard(i);
+                if (card != PackedCard.NONE && PackedCard.isActive(card)) {
+                    remaining++;
+                }
+            }
+            int score = PackedCard.getValue(engine.getPackedCard(GameEngine.LOC_HERO)) * 4 - remaining * 3;
+            for (int location = GameEngine.LOC_LEFT_HAND; location <= GameEngine.LOC_RIGHT_HAND; location += 2) {
+                int card = engine.getPackedCard(location);
+                if (card != PackedCard.NONE && PackedCard.getType(card) != Card.Type.ABILITY) {
+                    score += PackedCard.getValue(card);
+                }
+            }
+            return score;
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Solve batch of games
+     * @param args [games] [seed] [threads] [node limit per game]
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : GameRandom.create().nextLong();
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long nodeLimit = args.length > 3 ? Long.parseLong(args[3]) : 20000000L;
+        System.out.println(String.format("seed: %d, threads: %d, node limit: %d", seed, threads, nodeLimit));
+        Solver solver = new Solver(threads, DEFAULT_TABLE_BITS, nodeLimit);
+        int[] outcomes = new int[Outcome.values().length];
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            long gameSeed = GameRandom.seedAt(seed, i);
+            Result result = solver.solve(gameSeed);
+            outcomes[result.getOutcome().ordinal()]++;
+            System.out.println(String.format("%d: %s", gameSeed, result));
+        }
+        System.out.println(String.format("won %d, lost %d, unknown %d (%.1f s)", outcomes[Outcome.WIN.ordinal()],
+                outcomes[Outcome.LOSS.ordinal()], outcomes[Outcome.UNKNOWN.ordinal()], (System.nanoTime() - start) / 1e9));
+    }
+
+}
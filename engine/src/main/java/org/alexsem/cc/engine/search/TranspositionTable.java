@@ -0,0 +1,54 @@
+package org.alexsem.cc.engine.search;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size lock-free table of game positions which are known to be lost.
+ * Every entry is a single long: higher bits of the position hash and the number of moves
+ * within which the position cannot be won (so that concurrent writes never mix up two entries)
+ */
+class TranspositionTable {
+
+    static final int UNBOUNDED = 0xFFFF; //Position cannot be won at all
+
+    private static final int MIN_BITS = 16;
+    private static final long BOUND_MASK = 0xFFFF;
+
+    private final AtomicLongArray mEntries;
+    private final int mMask;
+
+    /**
+     * @param bits Binary logarithm of the number of entries (at least 16)
+     */
+    TranspositionTable(int bits) {
+        bits = Math.max(MIN_BITS, bits);
+        mEntries = new AtomicLongArray(1 << bits);
+        mMask = (1 << bits) - 1;
+    }
+
+    void clear() {
+        for (int i = 0; i < mEntries.length(); i++) {
+            mEntries.lazySet(i, 0);
+        }
+    }
+
+    /**
+     * Get number of moves within which the position is known to be lost
+     * @param hash Position hash
+     * @return Number of moves or 0 if nothing is known
+     */
+    int getLostBound(long hash) {
+        long entry = mEntries.get((int) hash & mMask);
+        return (entry & ~BOUND_MASK) == (hash & ~BOUND_MASK) ? (int) (entry & BOUND_MASK) : 0;
+    }
+
+    /**
+     * Remember that position is lost
+     * @param hash  Position hash
+     * @param bound Number of moves within which position cannot be won (or {@link #UNBOUNDED})
+     */
+    void putLost(long hash, int bound) {
+        mEntries.lazySet((int) hash & mMask, (hash & ~BOUND_MASK) | Math.min(bound, UNBOUNDED));
+    }
+
+}
@@ -0,0 +1,186 @@
+package org.alexsem.cc.engine.search;
+
+import org.alexsem.cc.engine.GameEngine;
+import org.alexsem.cc.engine.GameState;
+import org.alexsem.cc.engine.Move;
+import org.alexsem.cc.model.GameRandom;
+import org.alexsem.cc.model.PackedCard;
+
+/**
+ * Background estimation of the win probability in the current position.
+ * Every sample guesses the hidden information (see {@link GameEngine#randomizeHidden}) and plays
+ * the game to the end with a simple heuristic (never lose at once, keep the hero healthy).
+ * Results are also remembered for positions reached after the first move of each rollout, so when
+ * the player makes the same move and nothing new is revealed, the estimate continues from those samples.
+ * Sampling stops as soon as the estimate is precise enough
+ */
+public class WinEstimator extends BackgroundSearch {
+
+    /**
+     * Interface for receiving estimates
+     */
+    public interface Listener {
+        /**
+         * Called (on the search thread) whenever the estimate is updated
+         * @param generation  Number of the request returned by {@link #start}
+         * @param probability Estimated probability of winning (between 0 and 1)
+         * @param isFinal     true if the estimate is precise enough and sampling is over
+         */
+        public void onEstimate(int generation, float probability, boolean isFinal);
+    }
+
+    private static final long REPORT_INTERVAL = 100 * 1000000L; //ns
+    private static final double CONFIDENCE = 0.02; //Half-width of the 95% confidence interval
+    private static final int MIN_SAMPLES = 64;
+    private static final int MAX_SAMPLES = 5000;
+    private static final int MAX_ROLLOUT_MOVES = 200;
+    private static final int POOL_BITS = 12;
+
+    private final Listener mListener;
+    private final GameEngine mEngine = new GameEngine();
+    private final GameRandom mRandom = GameRandom.create();
+    private final GameState mStepState = new GameState();
+    private final int[] mMoves = new int[Move.MAX_COUNT];
+    private final long[] mPoolHashes = new long[1 << POOL_BITS];
+    private final int[] mPoolWins = new int[1 << POOL_BITS];
+    private final int[] mPoolSamples = new int[1 << POOL_BITS];
+    private long mPoolSeed;
+
+    /**
+     * @param listener Listener which receives the estimates
+     */
+    public WinEstimator(Listener listener) {
+        super("WinEstimator");
+        this.mListener = listener;
+    }
+
+    @Override
+    protected void search(GameState state, int generation) {
+        mEngine.restoreState(state);
+        if (mEngine.isGameOver() || mEngine.isHeroWon()) {
+            mListener.onEstimate(generation, mEngine.isHeroWon() ? 1f : 0f, true);
+            return;
+        }
+        if (mEngine.getSeed() != mPoolSeed) { //Samples of another game are useless
+            mPoolSeed = mEngine.getSeed();
+            for (int i = 0; i < mPoolSamples.length; i++) {
+                mPoolHashes[i] = 0;
+                mPoolSamples[i] = 0;
+                mPoolWins[i] = 0;
+            }
+        }
+        long hash = mEngine.getObservationHash();
+        int slot = findSlot(hash);
+        if (mPoolSamples[slot] > 0) { //Continue from samples made earlier
+            mListener.onEstimate(generation, getProbability(slot), isPrecise(slot));
+        }
+        long report = System.nanoTime() + REPORT_INTERVAL;
+        while (!isPrecise(slot) && mPoolSamples[slot] < MAX_SAMPLES) {
+            if (isCancelled(generation)) {
+                return;
+            }
+            mEngine.restoreState(state);
+            mEngine.randomizeHidden(mRandom);
+            long child = 0;
+            for (int i = 0; i < MAX_ROLLOUT_MOVES && !mEngine.isGameOver() && !mEngine.isHeroWon(); i++) {
+                int move = chooseMove();
+                if (move == Move.NONE) {
+                    break;
+                }
+                mEngine.doMove(move);
+                if (i == 0) {
+                    child = mEngine.getObservationHash();
+                }
+            }
+            int win = mEngine.isHeroWon() ? 1 : 0;
+            if (child != 0 && getSlot(child) != slot) { //Remember result for the position after the first move
+                int childSlot = findSlot(child);
+                mPoolSamples[childSlot]++;
+                mPoolWins[childSlot] += win;
+            }
+            mPoolSamples[slot]++;
+            mPoolWins[slot] += win;
+            long now = System.nanoTime();
+            if (now >= report) {
+                mListener.onEstimate(generation, getProbability(slot), false);
+                report = now + REPORT_INTERVAL;
+            }
+        }
+        if (!isCancelled(generation)) {
+            mListener.onEstimate(generation, getProbability(slot), true);
+        }
+    }
+
+    /**
+     * Get pool slot for the position (slot of another position is taken over)
+     * @param hash Observation hash of the position
+     * @return Slot index
+     */
+    private int findSlot(long hash) {
+        int slot = getSlot(hash);
+        if (mPoolHashes[slot] != hash) {
+            mPoolHashes[slot] = hash;
+            mPoolSamples[slot] = 0;
+            mPoolWins[slot] = 0;
+        }
+        return slot;
+    }
+
+    private int getSlot(long hash) {
+        return (int) hash & (mPoolHashes.length - 1);
+    }
+
+    private float getProbability(int slot) {
+        return (float) mPoolWins[slot] / mPoolSamples[slot];
+    }
+
+    /**
+     * Defines whether the estimate is precise enough
+     * (normal approximation with one imaginary win and loss to avoid zero variance)
+     * @param slot Pool slot
+     * @return true if sampling can be stopped
+     */
+    private boolean isPrecise(int slot) {
+        int samples = mPoolSamples[slot];
+        if (samples < MIN_SAMPLES) {
+            return false;
+        }
+        double p = (mPoolWins[slot] + 1.0) / (samples + 2.0);
+        return 1.96 * Math.sqrt(p * (1 - p) / samples) <= CONFIDENCE;
+    }
+
+    /**
+     * Choose move of the rollout: random one among the moves which keep the hero healthiest
+     * (winning move is taken at once, losing ones only if there is no choice)
+     * @return Packed move or {@link Move#NONE} if there are no legal moves
+     */
+    private int chooseMove() {
+        int count = mEngine.generateMoves(mMoves);
+        if (count <= 1) {
+            return count == 1 ? mMoves[0] : Move.NONE;
+        }
+        mEngine.saveState(mStepState);
+        int best = 0;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            mEngine.doMove(mMoves[i]);
+            int score;
+            if (mEngine.isHeroWon()) {
+                mEngine.restoreState(mStepState);
+                return mMoves[i];
+            } else if (mEngine.isGameOver()) {
+                score = Integer.MIN_VALUE + 1;
+            } else {
+                int hero = mEngine.getPackedCard(GameEngine.LOC_HERO);
+                score = ((hero != PackedCard.NONE ? PackedCard.getValue(hero) : 0) << 8) | mRandom.nextInt(256);
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+            mEngine.restoreState(mStepState);
+        }
+        return mMoves[best];
+    }
+
+}
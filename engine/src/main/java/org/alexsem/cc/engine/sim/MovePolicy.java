@@ -0,0 +1,27 @@
+package org.alexsem.cc.engine.sim;
+
+import org.alexsem.cc.engine.GameEngine;
+import org.alexsem.cc.model.GameRandom;
+
+/**
+ * Strategy which picks the next move in simulated games.
+ * Each simulation thread gets its own instance, so implementations may keep reusable buffers
+ */
+public interface MovePolicy {
+
+    /**
+     * Factory of policy instances
+     */
+    public interface Factory {
+        public MovePolicy create();
+    }
+
+    /**
+     * Choose next move
+     * @param engine Game in progress
+     * @param random Source of randomness reserved for the policy
+     * @return Packed move (see {@link org.alexsem.cc.engine.Move}) or {@link org.alexsem.cc.engine.Move#NONE}
+     */
+    public int chooseMove(GameEngine engine, GameRandom random);
+
+}
@@ -0,0 +1,27 @@
+package org.alexsem.cc.engine.sim;
+
+import org.alexsem.cc.engine.GameEngine;
+import org.alexsem.cc.engine.Move;
+import org.alexsem.cc.model.GameRandom;
+
+/**
+ * Policy which picks uniformly among all legal moves
+ */
+public class RandomPolicy implements MovePolicy {
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public MovePolicy create() {
+            return new RandomPolicy();
+        }
+    };
+
+    private final int[] mMoves = new int[Move.MAX_COUNT];
+
+    @Override
+    public int chooseMove(GameEngine engine, GameRandom random) {
+        int count = engine.generateMoves(mMoves);
+        return count > 0 ? mMoves[random.nextInt(count)] : Move.NONE;
+    }
+
+}
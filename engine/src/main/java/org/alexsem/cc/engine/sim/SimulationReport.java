@@ -0,0 +1,126 @@
+package org.alexsem.cc.engine.sim;
+
+import java.util.Locale;
+
+/**
+ * Aggregated results of simulated games
+ */
+public class SimulationReport {
+
+    private long games;
+    private long wins;
+    private long losses;
+    private long unfinished;
+    private long moves;
+    private int minMoves = Integer.MAX_VALUE;
+    private int maxMoves;
+    private long damage;
+    private long coins;
+    private long elapsedNanos;
+
+    /**
+     * Add result of single game
+     * @param won         true if game was won
+     * @param lost        true if hero died
+     * @param moveCount   Number of moves made
+     * @param damageTaken Total damage taken by the hero
+     * @param coinCount   Coins collected by the end of the game
+     */
+    public void addGame(boolean won, boolean lost, int moveCount, int damageTaken, int coinCount) {
+        games++;
+        if (won) {
+            wins++;
+        } else if (lost) {
+            losses++;
+        } else {
+            unfinished++;
+        }
+        moves += moveCount;
+        minMoves = Math.min(minMoves, moveCount);
+        maxMoves = Math.max(maxMoves, moveCount);
+        damage += damageTaken;
+        coins += coinCount;
+    }
+
+    /**
+     * Merge results of another report into this one
+     * @param other Report to merge
+     */
+    public void merge(SimulationReport other) {
+        games += other.games;
+        wins += other.wins;
+        losses += other.losses;
+        unfinished += other.unfinished;
+        moves += other.moves;
+        minMoves = Math.min(minMoves, other.minMoves);
+        maxMoves = Math.max(maxMoves, other.maxMoves);
+        damage += other.damage;
+        coins += other.coins;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getLosses() {
+        return losses;
+    }
+
+    public long getUnfinished() {
+        return unfinished;
+    }
+
+    public double getWinRate() {
+        return games > 0 ? (double) wins / games : 0;
+    }
+
+    public double getAverageMoves() {
+        return games > 0 ? (double) moves / games : 0;
+    }
+
+    public int getMinMoves() {
+        return games > 0 ? minMoves : 0;
+    }
+
+    public int getMaxMoves() {
+        return maxMoves;
+    }
+
+    public double getAverageDamage() {
+        return games > 0 ? (double) damage / games : 0;
+    }
+
+    public double getAverageCoins() {
+        return games > 0 ? (double) coins / games : 0;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos > 0 ? games * 1e9 / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "games: %d (won %d, lost %d, unfinished %d)%n" +
+                        "win rate: %.4f%n" +
+                        "moves: avg %.2f, min %d, max %d%n" +
+                        "damage taken: avg %.2f%n" +
+                        "coins: avg %.2f%n" +
+                        "speed: %.0f games/s",
+                games, wins, losses, unfinished, getWinRate(), getAverageMoves(), getMinMoves(), getMaxMoves(),
+                getAverageDamage(), getAverageCoins(), getGamesPerSecond());
+    }
+
+}
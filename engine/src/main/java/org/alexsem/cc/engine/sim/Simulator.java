@@ -0,0 +1,139 @@
+package org.alexsem.cc.engine.sim;
+
+import org.alexsem.cc.engine.GameEngine;
+import org.alexsem.cc.engine.Move;
+import org.alexsem.cc.model.GameRandom;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Batch runner which plays complete headless games in parallel (fork-join)
+ */
+public class Simulator {
+
+    private static final int DEFAULT_MAX_MOVES = 2000;
+    private static final int GAMES_PER_TASK = 64;
+
+    private final MovePolicy.Factory mPolicyFactory;
+    private final int mMaxMoves;
+
+    public Simulator(MovePolicy.Factory policyFactory) {
+        this(policyFactory, DEFAULT_MAX_MOVES);
+    }
+
+    /**
+     * @param policyFactory Factory of move policies
+     * @param maxMoves      Number of moves after which the game is considered unfinished
+     */
+    public Simulator(MovePolicy.Factory policyFactory, int maxMoves) {
+        this.mPolicyFactory = policyFactory;
+        this.mMaxMoves = maxMoves;
+    }
+
+    /**
+     * Play games using all available cores
+     * @param seed  Seed of the whole batch (game i always gets the same seed)
+     * @param games Number of games to play
+     * @return Aggregated results
+     */
+    public SimulationReport run(long seed, long games) {
+        return run(seed, games, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Play games
+     * @param seed        Seed of the whole batch (game i always gets the same seed)
+     * @param games       Number of games to play
+     * @param parallelism Number of worker threads
+     * @return Aggregated results
+     */
+    public SimulationReport run(long seed, long games, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            SimulationReport report = pool.invoke(new BatchTask(seed, 0, games));
+            report.setElapsedNanos(System.nanoTime() - start);
+            return report;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Play single game until it is won, lost or exceeds move limit
+     * @param engine       Engine to use (will be reset)
+     * @param policy       Move policy
+     * @param policyRandom Source of randomness for the policy
+     * @param seed         Game seed
+     * @param report       Report to add result to
+     */
+    private void playGame(GameEngine engine, MovePolicy policy, GameRandom policyRandom, long seed, SimulationReport report) {
+        engine.begin(seed);
+        engine.start();
+        policyRandom.setSeed(~seed);
+        while (!engine.isGameOver() && !engine.isHeroWon() && engine.getMoveCount() < mMaxMoves) {
+            int move = policy.chooseMove(engine, policyRandom);
+            if (move == Move.NONE) { //Stuck
+                break;
+            }
+            engine.doMove(move);
+        }
+        report.addGame(engine.isHeroWon(), engine.isGameOver(), engine.getMoveCount(), engine.getDamageTaken(), engine.getCoins());
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Task which plays range of games, splitting it while it is large enough
+     */
+    private class BatchTask extends RecursiveTask<SimulationReport> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        private final long from;
+        private final long to;
+
+        BatchTask(long seed, long from, long to) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationReport compute() {
+            if (to - from > GAMES_PER_TASK) {
+                long middle = (from + to) >>> 1;
+                BatchTask left = new BatchTask(seed, from, middle);
+                left.fork();
+                SimulationReport report = new BatchTask(seed, middle, to).compute();
+                report.merge(left.join());
+                return report;
+            }
+            SimulationReport report = new SimulationReport();
+            GameEngine engine = new GameEngine();
+            MovePolicy policy = mPolicyFactory.create();
+            GameRandom policyRandom = new GameRandom(0);
+            for (long i = from; i < to; i++) {
+                playGame(engine, policy, policyRandom, GameRandom.seedAt(seed, i), report);
+            }
+            return report;
+        }
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Run batch with random policy
+     * @param args [games] [seed] [threads]
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : GameRandom.create().nextLong();
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        System.out.println(String.format("seed: %d, threads: %d", seed, threads));
+        System.out.println(new Simulator(RandomPolicy.FACTORY).run(seed, games, threads));
+    }
+
+}
@@ -11,13 +11,13 @@ public class Card {
     public enum Ability {
         SAP("Push back a dungeon card into the deck"),
         VANISH("Redraw all dungeon cards"),
-        LEECH("Gain life equal to the value of ther selected dungeon card"),
+        LEECH("Gain life equal to the value of ther selected dungeon card", 3),
         SACRIFICE("Attack a monster for the amount of player life missing"),
         POTIONIZE("Transform and item card into a random potion card"),
         KILLER("Remove a damaged dungeon card"),
         EXCHANGE("Move a dungeon card back into the deck and replace it with one of your ability cards"),
         STEAL("If your backpack is empty add the next card from the deck into it"),
-        LASH("Attack between 1 and 3 monster cards for 3"),
+        LASH("Attack between 1 and 3 monster cards for 3", 3),
         BASH("Use an equipped shield as a weapon. Each attack the shield looses 1 durability"),
         REFLECT("Reflect the damage taken to a random dungeon card"),
         BETRAYAL("Force a monster to attack its neighbour cards"),
@@ -27,15 +27,15 @@ public class Card {
         TRADE("Sell any non monster card for the double of its value"),
         SWAP("Swap the value of the selected dungeon card with a random adjacent card"),
         MORPH("Transform a card into a random new card"),
-        FORTIFY("Increase a cards value by 5"),
+        FORTIFY("Increase a cards value by 5", 5),
         MIDAS("Transform a card into a coin card. Monster cards halve their value, ability cards double it"),
         DEVOUR("Transform a card into a random ability card"),
         TRAP("Trap a dungeon card. This card does not need to be played"),
-        LIFE("Raise the player life by 5. If it exceeds 13 raise the maximum life"),
+        LIFE("Raise the player life by 5. If it exceeds 13 raise the maximum life", 5),
         BLEED("Collect 1 gold for each point of damage taken in one turn"),
         //TODO WORSHIP("Redraw 4 random monster cards and gain their values in gold"),
         BLOODPACT("Swap the player health with a monster card"),
-        BOUNTY("Collect 3 gold for each monster slain bigger or equal to 10"),
+        BOUNTY("Collect 3 gold for each monster slain bigger or equal to 10", 3),
         EQUALIZE("Give the adjacent cards the value of the selected dungeon card"),
         DIGGER("Shuffle 3 randomly selected removed cards back into the deck"),
         MIRROR("Duplicate a dungeon card and shuffle it back into the deck"),
@@ -47,150 +47,118 @@ public class Card {
         TAME("Equip a monster as a sword or shield"),
         FEAST("Raise a dungeon cards value by the values of its adjacent cards"),
         CHAOS("All cards including the player randomly swap their values"),
-        FAITH("Double the value of the next 3 cards form the top of the deck"),
+        FAITH("Double the value of the next 3 cards form the top of the deck", 3),
         CHAMPION("Exit the dungeon victorious");
 
         Ability(String description) {
+            this(description, 0);
+        }
+
+        Ability(String description, int baseValue) {
             this.description = description;
+            this.baseValue = baseValue;
         }
 
         private String description;
+        private int baseValue;
 
         public String getDescription() {
             return description;
         }
+
+        /**
+         * Get value printed on the card with this ability
+         * @return Base value
+         */
+        public int getBaseValue() {
+            return baseValue;
+        }
     }
 
-    private static final String[] mobNames = {"", "", "PLAGUE", "CROW", "FIRELAMB", "SLIME", "INCUBUS", "GOBLIN", "SPIDER", "TROLL", "SOULEATER"};
-    private static final Type[] types = Type.values();
-    private static final Ability[] abilities = Ability.values();
+    private int bits;
+
+    /**
+     * Create view of the packed card
+     * @param bits Packed card (see {@link PackedCard})
+     */
+    public Card(int bits) {
+        this.bits = bits;
+    }
 
-    private Type type;
-    private int value;
-    private int initialValue;
-    private boolean active;
-    private String name;
-    private Ability ability = null;
+    /**
+     * Get packed representation of this card
+     * @return Packed card
+     */
+    public int getBits() {
+        return bits;
+    }
 
     public Type getType() {
-        return type;
+        return PackedCard.getType(bits);
     }
 
     public void setType(Type type) {
-        this.type = type;
+        bits = PackedCard.setType(bits, type);
     }
 
     public int getValue() {
-        return value;
+        return PackedCard.getValue(bits);
     }
 
     public void setValue(int value) {
-        this.value = value;
-        if (type == Type.MONSTER && value >= 10) {
-            setAbility(Ability.BOUNTY);
-        }
+        bits = PackedCard.setValue(bits, value);
     }
 
     public int getInitialValue() {
-        return initialValue;
+        return PackedCard.getInitialValue(bits);
     }
 
     public void setInitialValue(int initialValue) {
-        this.initialValue = initialValue;
+        bits = PackedCard.setInitialValue(bits, initialValue);
     }
 
     public boolean isActive() {
-        return active;
+        return PackedCard.isActive(bits);
     }
 
     public void setActive(boolean active) {
-        this.active = active;
+        bits = PackedCard.setActive(bits, active);
     }
 
     public String getName() {
-        return name;
+        return PackedCard.getName(bits);
     }
 
-    public void setName(String name) {
-        this.name = name;
+    public CardDefinition getDefinition() {
+        return PackedCard.getDefinition(bits);
     }
 
     public Ability getAbility() {
-        return ability;
+        return PackedCard.getAbility(bits);
     }
 
     public void setAbility(Ability ability) {
-        this.ability = ability;
-        if (type == Type.ABILITY && ability != null) {
-            this.setName(this.getAbility().name().toUpperCase());
-            switch (this.getAbility()) {
-                case LEECH:
-                case LASH:
-                case BOUNTY:
-                case FAITH:
-                    this.setValue(3);
-                    break;
-                case FORTIFY:
-                case LIFE:
-                    this.setValue(5);
-                    break;
-                default:
-                    this.setValue(0);
-                    break;
-            }
-        }
-        this.setInitialValue(this.getValue());
+        bits = PackedCard.setAbility(bits, ability);
     }
 
     public static Card getHero() {
-        Card card = new Card();
-        card.setType(Type.HERO);
-        card.setValue(HERO_MAX);
-        card.setInitialValue(HERO_MAX);
-        card.setActive(true);
-        card.setName("");
-        return card;
+        return new Card(PackedCard.getHero());
+    }
+
+    public static Card getSpecial(GameRandom random) {
+        return new Card(PackedCard.getSpecial(random));
     }
 
-    public static Card getSpecial() {
-        Card card = new Card();
-        card.setType(Type.ABILITY);
-        card.setActive(true);
-        card.setAbility(abilities[(int) (Math.random() * abilities.length)]);
-        return card;
+    public static Card getSpecial(Ability ability) {
+        return new Card(PackedCard.getSpecial(ability));
     }
 
     public static Card getOther(Type type, int value) {
-        Card card = new Card();
-        card.setType(type);
-        card.setValue(value);
-        card.setInitialValue(value);
-        card.setActive(true);
-        if (type == Type.MONSTER) {
-            card.setName(mobNames[card.getValue()]);
-        } else {
-            card.setName("");
-        }
-        return card;
-    }
-
-    public static Card random() {
-        Type type = types[(int) (Math.random() * (types.length - 1)) + 1];
-        switch (type) {
-            case HERO:
-                return getHero();
-            case MONSTER:
-            case POTION:
-            case COIN:
-                return getOther(type, (int) (Math.random() * 9) + 2);
-            case WEAPON:
-            case SHIELD:
-                return getOther(type, (int) (Math.random() * 6) + 2);
-            case ABILITY:
-                return getSpecial();
-            default:
-                return null;
-        }
+        return new Card(PackedCard.getOther(type, value));
+    }
+
+    public static Card random(GameRandom random) {
+        return new Card(PackedCard.random(random));
     }
 
     /**
@@ -199,14 +167,7 @@ public class Card {
      * @return Cloned card
      */
     public static Card clone(Card source) {
-        Card card = new Card();
-        card.setType(source.getType());
-        card.setAbility(source.getAbility());
-        card.setName(source.getName());
-        card.setValue(source.getValue());
-        card.setInitialValue(source.getInitialValue());
-        card.setActive(source.isActive());
-        return card;
+        return new Card(source.bits);
     }
 
 
@@ -214,11 +175,7 @@ public class Card {
      * Restore initial card state
      */
     public void restoreState() {
-        this.setValue(this.getInitialValue());
-        this.setActive(true);
-        if (this.getType() != Type.ABILITY) {
-            this.setAbility(null);
-        }
+        bits = PackedCard.restoreState(bits);
     }
 
 
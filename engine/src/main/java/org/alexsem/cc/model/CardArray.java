@@ -0,0 +1,104 @@
+package org.alexsem.cc.model;
+
+/**
+ * Growable list of packed cards (see {@link PackedCard})
+ */
+public class CardArray {
+
+    private int[] cards;
+    private int size = 0;
+    private long hash = 0; //See Zobrist
+    private long power = 1; //Zobrist.MULTIPLIER ^ size
+
+    public CardArray() {
+        this(16);
+    }
+
+    public CardArray(int capacity) {
+        cards = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        return cards[index];
+    }
+
+    /**
+     * Get hash of the list contents (order matters)
+     * @return Polynomial hash (see {@link Zobrist})
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Add card to the end of the list
+     * @param card Packed card
+     */
+    public void add(int card) {
+        if (size == cards.length) {
+            int[] grown = new int[cards.length * 2];
+            System.arraycopy(cards, 0, grown, 0, size);
+            cards = grown;
+        }
+        cards[size++] = card;
+        hash += Zobrist.key(card) * power;
+        power *= Zobrist.MULTIPLIER;
+    }
+
+    /**
+     * Remove card from the specified position (keeping the order of the others)
+     * @param index Position of card to remove
+     * @return Removed card
+     */
+    public int remove(int index) {
+        int card = cards[index];
+        System.arraycopy(cards, index + 1, cards, index, size - index - 1);
+        size--;
+        rehash();
+        return card;
+    }
+
+    public void clear() {
+        size = 0;
+        hash = 0;
+        power = 1;
+    }
+
+    /**
+     * Copy all cards into the array
+     * @param destination Array to copy to
+     * @param offset      Position in array to start from
+     */
+    public void copyTo(int[] destination, int offset) {
+        System.arraycopy(cards, 0, destination, offset, size);
+    }
+
+    /**
+     * Replace contents of the list with cards from the array
+     * @param source Array to copy from
+     * @param offset Position in array to start from
+     * @param count  Number of cards to copy
+     */
+    public void restore(int[] source, int offset, int count) {
+        if (cards.length < count) {
+            cards = new int[Math.max(count, cards.length * 2)];
+        }
+        System.arraycopy(source, offset, cards, 0, count);
+        size = count;
+        rehash();
+    }
+
+    private void rehash() {
+        hash = 0;
+        power = 1;
+        for (int i = 0; i < size; i++) {
+            hash += Zobrist.key(cards[i]) * power;
+            power *= Zobrist.MULTIPLIER;
+        }
+    }
+
+}
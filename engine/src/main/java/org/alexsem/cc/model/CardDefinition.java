@@ -0,0 +1,87 @@
+package org.alexsem.cc.model;
+
+/**
+ * Immutable properties shared by all cards of the same kind (flyweight).
+ * Mutable state of every card is stored separately (see {@link PackedCard})
+ */
+public final class CardDefinition {
+
+    private static final String[] mobNames = {"", "", "PLAGUE", "CROW", "FIRELAMB", "SLIME", "INCUBUS", "GOBLIN", "SPIDER", "TROLL", "SOULEATER"};
+
+    private static final CardDefinition BLANK = new CardDefinition("", 0, null);
+    private static final CardDefinition[] monsters = new CardDefinition[mobNames.length];
+    private static final CardDefinition[] abilities = new CardDefinition[Card.Ability.values().length];
+
+    static {
+        for (int i = 0; i < mobNames.length; i++) {
+            monsters[i] = new CardDefinition(mobNames[i], i, null);
+        }
+        for (Card.Ability ability : Card.Ability.values()) {
+            abilities[ability.ordinal()] = new CardDefinition(ability.name().toUpperCase(), ability.getBaseValue(), ability);
+        }
+    }
+
+    private final String name;
+    private final int baseValue;
+    private final Card.Ability ability;
+
+    private CardDefinition(String name, int baseValue, Card.Ability ability) {
+        this.name = name;
+        this.baseValue = baseValue;
+        this.ability = ability;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBaseValue() {
+        return baseValue;
+    }
+
+    public Card.Ability getAbility() {
+        return ability;
+    }
+
+    public String getDescription() {
+        return ability != null ? ability.getDescription() : "";
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    /**
+     * Get definition of card without any specific properties
+     * @return Shared definition
+     */
+    public static CardDefinition getBlank() {
+        return BLANK;
+    }
+
+    /**
+     * Defines whether there is a separate definition for monster of the specified strength
+     * @param value Initial monster value
+     * @return true if monster definition exists
+     */
+    public static boolean hasMonster(int value) {
+        return value >= 0 && value < monsters.length;
+    }
+
+    /**
+     * Get definition of the monster
+     * @param value Initial monster value
+     * @return Shared definition
+     */
+    public static CardDefinition getMonster(int value) {
+        return hasMonster(value) ? monsters[value] : BLANK;
+    }
+
+    /**
+     * Get definition of the ability card
+     * @param ability Card ability
+     * @return Shared definition
+     */
+    public static CardDefinition getAbility(Card.Ability ability) {
+        return abilities[ability.ordinal()];
+    }
+
+}
@@ -0,0 +1,865 @@
+package org.alexsem.cc.model;
+
+/**
+ * Deck of packed cards (see {@link PackedCard}) stored in a circular array
+ * (position 0 is the bottom of the deck, position size() - 1 is the top).
+ * Cards of every type are linked together, and occupied slots are counted and hashed in a segment tree
+ * (built lazily, when the first card is removed from the middle), so cards are removed from any position
+ * and found by type in logarithmic time
+ */
+public class Deck {
+
+    public static final int TOTAL_CARDS = 54; //Number of cards in a new deck
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int TYPES = Card.Type.values().length;
+    private static final char NIL = Character.MAX_VALUE;
+    private static final int MONSTERS = 19;
+    private static final int OTHERS = TOTAL_CARDS - MONSTERS;
+    private static final int SPECIALS = 5;
+    private static final int PLAINS = OTHERS - SPECIALS;
+    private static final Card.Type[] PLAIN_TYPES = {Card.Type.WEAPON, Card.Type.SHIELD, Card.Type.POTION, Card.Type.COIN};
+    private static final int[] PLAIN_COUNTS = {6, 6, 9, 9};
+    private static final int MAX_RUN = 3; //Maximum number of monster (or non-monster) cards in a row
+    private static final int MAX_TRIPLES = PLAINS / MAX_RUN;
+    private static final int[][] TRIPLES = listTriples();
+    private static final long[] LAYOUTS = buildLayouts();
+    private static final long[] FILLINGS = buildFillings();
+    private static final double[] TRIPLE_WEIGHTS = weighTriples();
+
+    private int[] cards;
+    private int head = 0; //Array index of the bottom slot
+    private int length = 0; //Number of slots in use (including holes left by cards removed from the middle)
+    private int size = 0; //Number of cards
+    private char[] above; //Slot of the next card of the same type closer to the top
+    private char[] below; //Slot of the next card of the same type closer to the bottom
+    private char[] typeTops = new char[TYPES];
+    private char[] typeBottoms = new char[TYPES];
+    private int[] typeCounts = new int[TYPES];
+    private int[] counts; //Segment tree over array indices (node i has children 2i and 2i + 1, slot s is node capacity + s): number of cards
+    private long[] hashes; //Segment tree over array indices: hash of the cards in the order of array indices
+    private long[] powers; //Zobrist.MULTIPLIER ^ i
+    private long[] inversePowers; //Zobrist.MULTIPLIER_INVERSE ^ i
+    private boolean isIndexed; //Segment tree is up to date
+    private long hash; //Sum of Zobrist.key(card) * Zobrist.MULTIPLIER ^ position
+    private long contentHash; //Sum of Zobrist.key(card)
+    private int[] shuffled; //Reusable buffer for shuffle()
+
+    public Deck() {
+        allocate(INITIAL_CAPACITY);
+        clear();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get number of cards of the specified type left in the deck
+     * @param type Type of card to count
+     * @return Number of cards
+     */
+    public int count(Card.Type type) {
+        return typeCounts[type.ordinal()];
+    }
+
+    /**
+     * Get hash of the deck contents (order matters)
+     * @return Polynomial hash (see {@link Zobrist})
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Get hash of the deck contents (order does not matter)
+     * @return Sum of card keys (see {@link Zobrist})
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Remove all cards from the deck
+     */
+    public void clear() {
+        for (int i = 0; i < length; i++) {
+            cards[index(i)] = PackedCard.NONE;
+        }
+        head = 0;
+        length = 0;
+        size = 0;
+        hash = 0;
+        contentHash = 0;
+        isIndexed = false;
+        for (int i = 0; i < TYPES; i++) {
+            typeTops[i] = NIL;
+            typeBottoms[i] = NIL;
+            typeCounts[i] = 0;
+        }
+    }
+
+    /**
+     * Create empty arrays of the specified capacity
+     * @param capacity Number of slots (power of two)
+     */
+    private void allocate(int capacity) {
+        cards = new int[capacity];
+        above = new char[capacity];
+        below = new char[capacity];
+        counts = new int[capacity * 2];
+        hashes = new long[capacity * 2];
+        powers = new long[capacity + 1];
+        inversePowers = new long[capacity + 1];
+        powers[0] = 1;
+        inversePowers[0] = 1;
+        for (int i = 1; i <= capacity; i++) {
+            powers[i] = powers[i - 1] * Zobrist.MULTIPLIER;
+            inversePowers[i] = inversePowers[i - 1] * Zobrist.MULTIPLIER_INVERSE;
+        }
+    }
+
+    /**
+     * Convert slot offset (from the bottom) to array index
+     * @param offset Offset of the slot
+     * @return Index in array
+     */
+    private int index(int offset) {
+        return (head + offset) & (cards.length - 1);
+    }
+
+    /**
+     * Convert deck position to array index
+     * @param position Position in the deck
+     * @return Index in array
+     */
+    private int slotOf(int position) {
+        if (length == size) { //No holes
+            return index(position);
+        }
+        buildIndex();
+        int headCount = countBefore(head);
+        int rank = position < size - headCount ? position + headCount : position - (size - headCount); //Number of cards in lower array indices
+        int node = 1;
+        while (node < cards.length) {
+            node <<= 1;
+            if (counts[node] <= rank) {
+                rank -= counts[node];
+                node++;
+            }
+        }
+        return node - cards.length;
+    }
+
+    /**
+     * Convert array index to deck position
+     * @param slot Index in array
+     * @return Position in the deck
+     */
+    private int positionOf(int slot) {
+        if (length == size) { //No holes
+            return (slot - head) & (cards.length - 1);
+        }
+        buildIndex();
+        int headCount = countBefore(head);
+        return slot >= head ? countBefore(slot) - headCount : size - headCount + countBefore(slot);
+    }
+
+    /**
+     * Count cards in the lower array indices
+     * @param slot Index in array
+     * @return Number of cards in indices [0, slot)
+     */
+    private int countBefore(int slot) {
+        int count = 0;
+        for (int node = cards.length + slot; node > 1; node >>= 1) {
+            if ((node & 1) != 0) { //Right child, everything in the left one comes before
+                count += counts[node - 1];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Calculate hash of cards in the lower array indices
+     * @param slot Index in array
+     * @return Hash of cards in indices [0, slot)
+     */
+    private long hashBefore(int slot) {
+        long result = 0;
+        for (int node = cards.length + slot; node > 1; node >>= 1) {
+            if ((node & 1) != 0) {
+                result = hashes[node - 1] + result * powers[counts[node - 1]];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculate hash of cards below the slot in the deck
+     * @param slot Index in array
+     * @return Hash of cards in positions [0, positionOf(slot))
+     */
+    private long hashBelow(int slot) {
+        buildIndex();
+        int headCount = countBefore(head);
+        long headHash = hashBefore(head);
+        if (slot >= head) {
+            return (hashBefore(slot) - headHash) * inversePowers[headCount];
+        }
+        long upperHash = (hashes[1] - headHash) * inversePowers[headCount]; //Slots from the head to the end of array
+        return upperHash + hashBefore(slot) * powers[size - headCount];
+    }
+
+    /**
+     * Recalculate segment tree node from its children
+     * @param node Index of node
+     */
+    private void pull(int node) {
+        int left = node << 1;
+        counts[node] = counts[left] + counts[left + 1];
+        hashes[node] = hashes[left] + hashes[left + 1] * powers[counts[left]];
+    }
+
+    /**
+     * Update segment tree after the slot is changed
+     * @param slot Index in array
+     */
+    private void update(int slot) {
+        if (!isIndexed) {
+            return;
+        }
+        int node = cards.length + slot;
+        int card = cards[slot];
+        counts[node] = card != PackedCard.NONE ? 1 : 0;
+        hashes[node] = card != PackedCard.NONE ? Zobrist.key(card) : 0;
+        for (node >>= 1; node > 0; node >>= 1) {
+            pull(node);
+        }
+    }
+
+    /**
+     * Build segment tree from scratch (if it is not up to date)
+     */
+    private void buildIndex() {
+        if (isIndexed) {
+            return;
+        }
+        int capacity = cards.length;
+        for (int slot = 0; slot < capacity; slot++) {
+            int card = cards[slot];
+            counts[capacity + slot] = card != PackedCard.NONE ? 1 : 0;
+            hashes[capacity + slot] = card != PackedCard.NONE ? Zobrist.key(card) : 0;
+        }
+        for (int node = capacity - 1; node > 0; node--) {
+            pull(node);
+        }
+        isIndexed = true;
+    }
+
+    /**
+     * Double the capacity of the deck (dropping all holes)
+     */
+    private void grow() {
+        int[] old = new int[size];
+        copyTo(old, 0);
+        allocate(cards.length * 2);
+        clear();
+        for (int card : old) {
+            put(card);
+        }
+    }
+
+    /**
+     * Place card on top of the deck (segment tree is not updated)
+     * @param card Packed card
+     */
+    private void put(int card) {
+        int slot = index(length++);
+        cards[slot] = card;
+        int type = PackedCard.getTypeOrdinal(card);
+        above[slot] = NIL;
+        below[slot] = typeTops[type];
+        if (typeTops[type] != NIL) {
+            above[typeTops[type]] = (char) slot;
+        } else {
+            typeBottoms[type] = (char) slot;
+        }
+        typeTops[type] = (char) slot;
+        typeCounts[type]++;
+        hash += Zobrist.key(card) * powers[size++];
+        contentHash += Zobrist.key(card);
+    }
+
+    /**
+     * Copy all cards into the array (from the bottom to the top)
+     * @param destination Array to copy to
+     * @param offset      Position in array to start from
+     */
+    public void copyTo(int[] destination, int offset) {
+        for (int i = 0; i < length; i++) {
+            int card = cards[index(i)];
+            if (card != PackedCard.NONE) {
+                destination[offset++] = card;
+            }
+        }
+    }
+
+    /**
+     * Replace contents of the deck with cards from the array
+     * @param source Array to copy from (cards go from the bottom to the top)
+     * @param offset Position in array to start from
+     * @param count  Number of cards to copy
+     */
+    public void restore(int[] source, int offset, int count) {
+        clear();
+        if (cards.length < count) {
+            int capacity = cards.length;
+            while (capacity < count) {
+                capacity *= 2;
+            }
+            allocate(capacity);
+        }
+        for (int i = 0; i < count; i++) {
+            put(source[offset + i]);
+        }
+    }
+
+    /**
+     * Shuffle all cards of the deck
+     * @param random Source of randomness
+     */
+    public void shuffle(GameRandom random) {
+        if (shuffled == null || shuffled.length < size) {
+            shuffled = new int[cards.length];
+        }
+        int count = size;
+        copyTo(shuffled, 0);
+        random.shuffle(shuffled, count);
+        restore(shuffled, 0, count);
+    }
+
+    /**
+     * Remove card from the array
+     * @param slot Index of card in array
+     * @return Removed card
+     */
+    private int take(int slot) {
+        boolean isTop = slot == index(length - 1);
+        int position = isTop ? size - 1 : positionOf(slot);
+        long lowerHash = isTop ? 0 : hashBelow(slot);
+        int card = cards[slot];
+        cards[slot] = PackedCard.NONE;
+        update(slot);
+        size--;
+        //Unlink from the cards of the same type
+        int type = PackedCard.getTypeOrdinal(card);
+        if (above[slot] != NIL) {
+            below[above[slot]] = below[slot];
+        } else {
+            typeTops[type] = below[slot];
+        }
+        if (below[slot] != NIL) {
+            above[below[slot]] = above[slot];
+        } else {
+            typeBottoms[type] = above[slot];
+        }
+        typeCounts[type]--;
+        //Drop holes from both ends
+        while (length > 0 && cards[index(length - 1)] == PackedCard.NONE) {
+            length--;
+        }
+        while (length > 0 && cards[head] == PackedCard.NONE) {
+            head = index(1);
+            length--;
+        }
+        if (isTop) {
+            hash -= Zobrist.key(card) * powers[size];
+        } else { //Cards above the removed one move one position down
+            hash = lowerHash + (hash - lowerHash - Zobrist.key(card) * powers[position]) * Zobrist.MULTIPLIER_INVERSE;
+        }
+        contentHash -= Zobrist.key(card);
+        return card;
+    }
+
+    /**
+     * Generate completely new deck
+     * @param random Source of randomness
+     * @return New deck
+     */
+    public static Deck generateFixed(GameRandom random) {
+        //Initialize
+        Deck deck = new Deck();
+        int[] monsters = new int[MONSTERS];
+        int[] specials = new int[SPECIALS];
+        int[][] plains = new int[PLAIN_TYPES.length][];
+        int m = 0;
+        //Generate Monsters
+        for (int i = 2; i <= 10; i++) {
+            monsters[m++] = PackedCard.getOther(Card.Type.MONSTER, i);
+            monsters[m++] = PackedCard.getOther(Card.Type.MONSTER, i);
+        }
+        monsters[m] = PackedCard.getOther(Card.Type.MONSTER, 10);
+        //Generate Swords & Shields & Potions & Coins
+        for (int t = 0; t < PLAIN_TYPES.length; t++) {
+            plains[t] = new int[PLAIN_COUNTS[t]];
+            for (int i = 0; i < PLAIN_COUNTS[t]; i++) {
+                plains[t][i] = PackedCard.getOther(PLAIN_TYPES[t], i + 2);
+            }
+        }
+        //Generate Abilities (all different)
+        Card.Ability[] abilities = Card.Ability.values();
+        for (int i = 0; i < SPECIALS; i++) {
+            int j = i + random.nextInt(abilities.length - i);
+            Card.Ability ability = abilities[j];
+            abilities[j] = abilities[i];
+            abilities[i] = ability;
+            specials[i] = PackedCard.getSpecial(ability);
+        }
+        //Order of monsters does not affect any of the rules
+        for (int i = MONSTERS - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int card = monsters[j];
+            monsters[j] = monsters[i];
+            monsters[i] = card;
+        }
+        //Arrange cards avoiding long sequences of similar cards (every valid deck is equally likely)
+        int[] cards = new int[TOTAL_CARDS];
+        boolean[] isTriple = new boolean[cards.length];
+        int triples = chooseTriples(random);
+        layOut(random, triples, cards, isTriple, monsters, specials);
+        fill(random, triples, cards, isTriple, plains);
+        //Finalize
+        for (int i = cards.length - 1; i >= 0; i--) {
+            deck.put(cards[i]);
+        }
+        return deck;
+    }
+
+    /**
+     * Choose number of triples in proportion to the number of valid decks having it
+     * @param random Source of randomness
+     * @return Number of triples
+     */
+    private static int chooseTriples(GameRandom random) {
+        double total = 0;
+        for (double weight : TRIPLE_WEIGHTS) {
+            total += weight;
+        }
+        double value = random.nextDouble() * total;
+        int triples = 0;
+        while (triples < MAX_TRIPLES && value >= TRIPLE_WEIGHTS[triples]) {
+            value -= TRIPLE_WEIGHTS[triples++];
+        }
+        return triples;
+    }
+
+    /**
+     * Place monsters and abilities, choosing the layout uniformly among all layouts with the specified number of triples
+     * @param random   Source of randomness
+     * @param triples  Number of triples
+     * @param cards    Array to fill with cards (plain card slots are left empty)
+     * @param isTriple Array to fill with positions of triples
+     * @param monsters Monster cards (already shuffled)
+     * @param specials Ability cards (already shuffled)
+     */
+    private static void layOut(GameRandom random, int triples, int[] cards, boolean[] isTriple, int[] monsters, int[] specials) {
+        int m = MONSTERS;
+        int a = SPECIALS;
+        int p = PLAINS;
+        int i = 0;
+        //Deck may start with a run of monsters
+        long choice = random.nextLong(countLayouts(triples));
+        int monsterRun = 0;
+        while (choice >= LAYOUTS[layoutIndex(m - monsterRun, a, p, triples, 0)]) {
+            choice -= LAYOUTS[layoutIndex(m - monsterRun++, a, p, triples, 0)];
+        }
+        while (monsterRun-- > 0) {
+            cards[i++] = monsters[--m];
+        }
+        //Then runs of non-monster and monster cards alternate
+        boolean isSpecialBlocked = false;
+        while (a + p > 0) {
+            choice = random.nextLong(LAYOUTS[layoutIndex(m, a, p, triples, isSpecialBlocked ? 1 : 0)]);
+            int run = 1;
+            int special = -1;
+            monsterRun = 0;
+            search:
+            for (run = 1; run <= MAX_RUN; run++) {
+                for (special = -1; special < run; special++) {
+                    for (monsterRun = 0; monsterRun <= MAX_RUN; monsterRun++) {
+                        long count = countAfterRun(LAYOUTS, m, a, p, triples, isSpecialBlocked, run, special, monsterRun);
+                        if (choice < count) {
+                            break search;
+                        }
+                        choice -= count;
+                    }
+                }
+            }
+            for (int j = 0; j < run; j++, i++) {
+                if (j == special) {
+                    cards[i] = specials[--a];
+                } else {
+                    cards[i] = PackedCard.NONE;
+                    isTriple[i] = special < 0 && run == MAX_RUN;
+                    p--;
+                }
+            }
+            if (special < 0 && run == MAX_RUN) {
+                triples--;
+            }
+            isSpecialBlocked = special == run - 1 && monsterRun == 1;
+            while (monsterRun-- > 0) {
+                cards[i++] = monsters[--m];
+            }
+        }
+    }
+
+    /**
+     * Place plain cards, choosing their types uniformly among all valid ones
+     * @param random   Source of randomness
+     * @param triples  Number of triples
+     * @param cards    Cards with empty plain card slots
+     * @param isTriple Positions of triples
+     * @param plains   Plain cards of every type
+     */
+    private static void fill(GameRandom random, int triples, int[] cards, boolean[] isTriple, int[][] plains) {
+        int[] counts = PLAIN_COUNTS.clone();
+        int[] types = new int[MAX_RUN];
+        //Triples get types first (any mix except three equal ones)
+        for (int i = 0; i < cards.length; i += isTriple[i] ? MAX_RUN : 1) {
+            if (!isTriple[i]) {
+                continue;
+            }
+            long choice = random.nextLong(FILLINGS[fillingIndex(triples, counts)]);
+            int[] triple = TRIPLES[0];
+            for (int[] candidate : TRIPLES) {
+                long count = countAfterTriple(FILLINGS, counts, triples, candidate);
+                triple = candidate;
+                if (choice < count) {
+                    break;
+                }
+                choice -= count;
+            }
+            for (int j = 0; j < MAX_RUN; j++) { //Any order of types
+                int k = random.nextInt(j + 1);
+                types[j] = types[k];
+                types[k] = triple[j];
+            }
+            triples--;
+            for (int j = 0; j < MAX_RUN; j++) {
+                cards[i + j] = takePlain(random, plains, counts, types[j]);
+            }
+        }
+        //Other plain cards are shuffled into the remaining slots
+        int left = 0;
+        for (int count : counts) {
+            left += count;
+        }
+        for (int i = 0; i < cards.length; i++) {
+            if (cards[i] == PackedCard.NONE) {
+                int index = random.nextInt(left--);
+                int type = 0;
+                while (index >= counts[type]) {
+                    index -= counts[type++];
+                }
+                cards[i] = takePlain(random, plains, counts, type);
+            }
+        }
+    }
+
+    /**
+     * Remove random plain card of the specified type from the pool
+     * @param random Source of randomness
+     * @param plains Plain cards of every type
+     * @param counts Number of cards left of every type
+     * @param type   Index of type
+     * @return Card
+     */
+    private static int takePlain(GameRandom random, int[][] plains, int[] counts, int type) {
+        int j = random.nextInt(counts[type]);
+        int card = plains[type][j];
+        plains[type][j] = plains[type][--counts[type]];
+        return card;
+    }
+
+    /**
+     * Count layouts of monsters, abilities and plain cards which satisfy the "in a row" rules and ability placement rules
+     * @param triples Number of triples
+     * @return Number of layouts
+     */
+    private static long countLayouts(int triples) {
+        long count = 0;
+        for (int monsterRun = 0; monsterRun <= MAX_RUN; monsterRun++) {
+            count += LAYOUTS[layoutIndex(MONSTERS - monsterRun, SPECIALS, PLAINS, triples, 0)];
+        }
+        return count;
+    }
+
+    /**
+     * Count valid decks for every number of triples (up to the order of cards of the same type).
+     * Runs are no longer than MAX_RUN, so three plain (weapon, shield, potion, coin) cards of the same type
+     * can only stand in a row within a triple (run of three plain cards), and the number of ways to give types
+     * to plain cards depends on the number of triples only
+     * @return Relative weights (numbers of decks are too large for long)
+     */
+    private static double[] weighTriples() {
+        double[] weights = new double[MAX_TRIPLES + 1];
+        for (int r = 0; r <= MAX_TRIPLES; r++) {
+            weights[r] = (double) countLayouts(r) * FILLINGS[fillingIndex(r, PLAIN_COUNTS)];
+        }
+        return weights;
+    }
+
+    /**
+     * Count layouts for every state
+     * @return Number of layouts which can follow, starting with a run of non-monster cards, see {@link #layoutIndex}
+     */
+    private static long[] buildLayouts() {
+        long[] layouts = new long[layoutIndex(MONSTERS + 1, 0, 0, 0, 0)];
+        for (int total = 1; total <= TOTAL_CARDS; total++) {
+            for (int m = Math.max(0, total - SPECIALS - PLAINS); m <= Math.min(total, MONSTERS); m++) {
+                for (int a = Math.max(0, total - m - PLAINS); a <= Math.min(total - m, SPECIALS); a++) {
+                    int p = total - m - a;
+                    for (int r = 0; r <= p / MAX_RUN; r++) { //Each triple takes three plain cards
+                        for (int b = 0; b < 2; b++) {
+                            long count = 0;
+                            for (int run = 1; run <= MAX_RUN; run++) {
+                                for (int special = -1; special < run; special++) {
+                                    for (int monsterRun = 0; monsterRun <= MAX_RUN; monsterRun++) {
+                                        count += countAfterRun(layouts, m, a, p, r, b == 1, run, special, monsterRun);
+                                    }
+                                }
+                            }
+                            layouts[layoutIndex(m, a, p, r, b)] = count;
+                        }
+                    }
+                }
+            }
+        }
+        return layouts;
+    }
+
+    /**
+     * Count layouts which continue with the specified runs of non-monster and monster cards
+     * @param layouts          Number of layouts for the states counted so far
+     * @param m                Number of monsters left
+     * @param a                Number of abilities left
+     * @param p                Number of plain cards left
+     * @param r                Number of triples left
+     * @param isSpecialBlocked Whether ability cannot go first (because of the ability two cards before)
+     * @param run              Length of the run of non-monster cards
+     * @param special          Position of ability within the run (-1 for no ability)
+     * @param monsterRun       Length of the following run of monsters
+     * @return Number of layouts
+     */
+    private static long countAfterRun(long[] layouts, int m, int a, int p, int r, boolean isSpecialBlocked, int run, int special, int monsterRun) {
+        int s = special < 0 ? 0 : 1;
+        if (s > a || run - s > p || monsterRun > m) {
+            return 0;
+        }
+        if (special >= 0) {
+            int i = TOTAL_CARDS - m - a - p + special;
+            if (i <= 4 || i > TOTAL_CARDS - 4 || (special == 0 && isSpecialBlocked)) {
+                return 0;
+            }
+        }
+        m -= monsterRun;
+        a -= s;
+        p -= run - s;
+        if (s == 0 && run == MAX_RUN && --r < 0) {
+            return 0;
+        }
+        if (a + p == 0) { //Last run
+            return m == 0 && r == 0 ? 1 : 0;
+        }
+        if (monsterRun == 0) {
+            return 0;
+        }
+        return layouts[layoutIndex(m, a, p, r, special == run - 1 && monsterRun == 1 ? 1 : 0)];
+    }
+
+    /**
+     * Get index of state in the table of layouts
+     * @param m Number of monsters left
+     * @param a Number of abilities left
+     * @param p Number of plain cards left
+     * @param r Number of triples left
+     * @param b 1 if ability cannot go first, 0 otherwise
+     * @return Index
+     */
+    private static int layoutIndex(int m, int a, int p, int r, int b) {
+        return (((m * (SPECIALS + 1) + a) * (PLAINS + 1) + p) * (MAX_TRIPLES + 1) + r) * 2 + b;
+    }
+
+    /**
+     * Count ways to give types to plain cards, so that triples (given types first) do not have three equal ones
+     * @return Number of ways for every state, see {@link #fillingIndex}
+     */
+    private static long[] buildFillings() {
+        int[] counts = new int[PLAIN_TYPES.length];
+        int states = fillingIndex(1, counts);
+        long[] fillings = new long[fillingIndex(MAX_TRIPLES + 1, counts)];
+        for (int index = 0; index < states; index++) {
+            int rest = index;
+            int total = 0;
+            for (int t = counts.length - 1; t >= 0; t--) {
+                counts[t] = rest % (PLAIN_COUNTS[t] + 1);
+                rest /= PLAIN_COUNTS[t] + 1;
+                total += counts[t];
+            }
+            if (index == 0) {
+                fillings[index] = 1;
+                continue;
+            }
+            for (int t = 0; t < counts.length; t++) { //Without triples any type can go first
+                if (counts[t] > 0) {
+                    counts[t]--;
+                    fillings[index] += fillings[fillingIndex(0, counts)];
+                    counts[t]++;
+                }
+            }
+            if (total % MAX_RUN != PLAINS % MAX_RUN) { //Never reached with triples left
+                continue;
+            }
+            for (int r = 1; r <= total / MAX_RUN; r++) {
+                for (int[] triple : TRIPLES) {
+                    fillings[r * states + index] += countAfterTriple(fillings, counts, r, triple);
+                }
+            }
+        }
+        return fillings;
+    }
+
+    /**
+     * List types of triples (any except three equal ones), ignoring their order
+     * @return Types of every triple (in ascending order) followed by the number of their distinct orders
+     */
+    private static int[][] listTriples() {
+        int types = PLAIN_TYPES.length;
+        int[][] triples = new int[types * (types - 1) + types * (types - 1) * (types - 2) / 6][];
+        int i = 0;
+        for (int x = 0; x < types; x++) {
+            for (int y = x; y < types; y++) {
+                for (int z = y; z < types; z++) {
+                    if (x != z) {
+                        triples[i++] = new int[]{x, y, z, x == y || y == z ? 3 : 6};
+                    }
+                }
+            }
+        }
+        return triples;
+    }
+
+    /**
+     * Count ways to give types to plain cards which continue with the specified triple (in any order)
+     * @param fillings Number of ways for the states counted so far
+     * @param counts   Number of cards left of every type
+     * @param r        Number of triples left
+     * @param triple   Types of the triple, followed by the number of their distinct orders
+     * @return Number of ways
+     */
+    private static long countAfterTriple(long[] fillings, int[] counts, int r, int[] triple) {
+        long count = 0;
+        int j = 0;
+        while (j < MAX_RUN && counts[triple[j]] > 0) {
+            counts[triple[j++]]--;
+        }
+        if (j == MAX_RUN) {
+            count = triple[MAX_RUN] * fillings[fillingIndex(r - 1, counts)];
+        }
+        while (j > 0) {
+            counts[triple[--j]]++;
+        }
+        return count;
+    }
+
+    /**
+     * Get index of state in the table of fillings
+     * @param r      Number of triples left
+     * @param counts Number of cards left of every type
+     * @return Index
+     */
+    private static int fillingIndex(int r, int[] counts) {
+        int index = r;
+        for (int t = 0; t < counts.length; t++) {
+            index = index * (PLAIN_COUNTS[t] + 1) + counts[t];
+        }
+        return index;
+    }
+
+    /**
+     * Remove card from the top of the deck (if possible)
+     * @return Top card or {@link PackedCard#NONE} if no cards in the deck
+     */
+    public int deal() {
+        if (size == 0) {
+            return PackedCard.NONE;
+        }
+        return take(index(length - 1));
+    }
+
+    /**
+     * Remove card from the specified position in the deck (if possible)
+     * @param position Position of card to deal
+     * @return Requested card or {@link PackedCard#NONE} if no cards in the deck
+     */
+    public int deal(int position) {
+        if (position < 0 || position > size - 1) {
+            return PackedCard.NONE;
+        }
+        return take(slotOf(position));
+    }
+
+    /**
+     * Remove topmost card of the specified type from the deck (if possible), takes logarithmic time
+     * @param type Type of card to deal
+     * @return Requested card or {@link PackedCard#NONE} if no cards of this type in the deck
+     */
+    public int deal(Card.Type type) {
+        if (typeCounts[type.ordinal()] == 0) {
+            return PackedCard.NONE;
+        }
+        return take(typeTops[type.ordinal()]);
+    }
+
+    /**
+     * Return card to the bottom of the deck
+     * @param card Packed card to add to the deck
+     */
+    public void receive(int card) {
+        if (length == cards.length) {
+            grow();
+        }
+        head = index(-1);
+        cards[head] = card;
+        update(head);
+        length++;
+        size++;
+        int type = PackedCard.getTypeOrdinal(card);
+        above[head] = typeBottoms[type];
+        below[head] = NIL;
+        if (typeBottoms[type] != NIL) {
+            below[typeBottoms[type]] = (char) head;
+        } else {
+            typeTops[type] = (char) head;
+        }
+        typeBottoms[type] = (char) head;
+        typeCounts[type]++;
+        hash = hash * Zobrist.MULTIPLIER + Zobrist.key(card);
+        contentHash += Zobrist.key(card);
+    }
+
+    /**
+     * Find card of specified type (from top down to bottom), takes logarithmic time
+     * @param type Type of card to find
+     * @return position of card or -1
+     */
+    public int find(Card.Type type) {
+        if (typeCounts[type.ordinal()] == 0) {
+            return -1;
+        }
+        return positionOf(typeTops[type.ordinal()]);
+    }
+
+}
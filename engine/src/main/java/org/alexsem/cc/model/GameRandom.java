@@ -0,0 +1,128 @@
+package org.alexsem.cc.model;
+
+import java.util.List;
+
+/**
+ * Per-game source of random numbers (SplitMix64).
+ * Instances are not thread-safe and should never be shared between games
+ */
+public class GameRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+
+    public GameRandom(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Create generator with unpredictable seed
+     * @return New generator
+     */
+    public static GameRandom create() {
+        return new GameRandom(mix(System.nanoTime() ^ System.identityHashCode(new Object()) * GOLDEN_GAMMA));
+    }
+
+    /**
+     * Get n-th value of the sequence started with the specified seed (without generating the previous ones)
+     * @param seed  Initial seed
+     * @param index Index of value in sequence
+     * @return Random value
+     */
+    public static long seedAt(long seed, long index) {
+        return mix(seed + (index + 1) * GOLDEN_GAMMA);
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Get current internal state (can be passed to {@link #setSeed} to continue the same sequence)
+     * @return Current seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public long nextLong() {
+        return mix(seed += GOLDEN_GAMMA);
+    }
+
+    /**
+     * Generate random number in range [0, bound)
+     * @param bound Upper bound (exclusive), must be positive
+     * @return Random number
+     */
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Generate random number in range [0, bound) (without modulo bias)
+     * @param bound Upper bound (exclusive), must be positive
+     * @return Random number
+     */
+    public long nextLong(long bound) {
+        long value = nextLong() >>> 1;
+        long result = value % bound;
+        while (value - result + (bound - 1) < 0) { //Value falls into incomplete last range
+            value = nextLong() >>> 1;
+            result = value % bound;
+        }
+        return result;
+    }
+
+    /**
+     * Generate random number in range [0, 1)
+     * @return Random number
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * Create new independent generator seeded from this one
+     * @return New generator
+     */
+    public GameRandom split() {
+        return new GameRandom(nextLong());
+    }
+
+    /**
+     * Shuffle list in place (Fisher-Yates)
+     * @param list List to shuffle
+     */
+    public <T> void shuffle(List<T> list) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = nextInt(i + 1);
+            list.set(j, list.set(i, list.get(j)));
+        }
+    }
+
+    /**
+     * Shuffle beginning of the array in place (Fisher-Yates)
+     * @param array  Array to shuffle
+     * @param length Number of elements to shuffle
+     */
+    public void shuffle(int[] array, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = nextInt(i + 1);
+            int temp = array[i];
+            array[i] = array[j];
+            array[j] = temp;
+        }
+    }
+
+}
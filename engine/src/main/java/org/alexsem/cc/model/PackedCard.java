@@ -0,0 +1,204 @@
+package org.alexsem.cc.model;
+
+/**
+ * Card encoded into a single int, so that game states can be stored and copied without objects.
+ * <pre>
+ * bits  0..3  type ordinal + 1 (0 means no card)
+ * bits  4..9  ability ordinal + 1 (0 means no ability)
+ * bit  10     active flag
+ * bits 11..14 monster definition index (see {@link CardDefinition})
+ * bits 16..23 value
+ * bits 24..31 initial value
+ * </pre>
+ * All modifications return new value, following the rules of the corresponding {@link Card} setters
+ */
+public final class PackedCard {
+
+    public static final int NONE = 0;
+    public static final int MAX_VALUE = 0xFF;
+
+    private static final int TYPE_MASK = 0xF;
+    private static final int ABILITY_SHIFT = 4;
+    private static final int ABILITY_MASK = 0x3F << ABILITY_SHIFT;
+    private static final int ACTIVE_BIT = 1 << 10;
+    private static final int MOB_SHIFT = 11;
+    private static final int MOB_MASK = 0xF << MOB_SHIFT;
+    private static final int VALUE_SHIFT = 16;
+    private static final int VALUE_MASK = MAX_VALUE << VALUE_SHIFT;
+    private static final int INITIAL_SHIFT = 24;
+    private static final int INITIAL_MASK = MAX_VALUE << INITIAL_SHIFT;
+
+    private static final Card.Type[] types = Card.Type.values();
+    private static final Card.Ability[] abilities = Card.Ability.values();
+
+    private PackedCard() {
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    public static Card.Type getType(int card) {
+        return types[(card & TYPE_MASK) - 1];
+    }
+
+    /**
+     * Get type ordinal without dereferencing the enum
+     * @param card Packed card
+     * @return Type ordinal or -1 if there is no card
+     */
+    public static int getTypeOrdinal(int card) {
+        return (card & TYPE_MASK) - 1;
+    }
+
+    public static Card.Ability getAbility(int card) {
+        int ability = (card & ABILITY_MASK) >>> ABILITY_SHIFT;
+        return ability > 0 ? abilities[ability - 1] : null;
+    }
+
+    /**
+     * Get ability ordinal without dereferencing the enum
+     * @param card Packed card
+     * @return Ability ordinal or -1 if card has no ability
+     */
+    public static int getAbilityOrdinal(int card) {
+        return ((card & ABILITY_MASK) >>> ABILITY_SHIFT) - 1;
+    }
+
+    public static int getValue(int card) {
+        return (card & VALUE_MASK) >>> VALUE_SHIFT;
+    }
+
+    public static int getInitialValue(int card) {
+        return (card & INITIAL_MASK) >>> INITIAL_SHIFT;
+    }
+
+    public static boolean isActive(int card) {
+        return (card & ACTIVE_BIT) != 0;
+    }
+
+    /**
+     * Get shared immutable properties of the card
+     * @param card Packed card
+     * @return Card definition
+     */
+    public static CardDefinition getDefinition(int card) {
+        switch (getType(card)) {
+            case MONSTER:
+            case MONSTER_TAMED:
+                return CardDefinition.getMonster((card & MOB_MASK) >>> MOB_SHIFT);
+            case ABILITY:
+                Card.Ability ability = getAbility(card);
+                return ability != null ? CardDefinition.getAbility(ability) : CardDefinition.getBlank();
+            default:
+                return CardDefinition.getBlank();
+        }
+    }
+
+    public static String getName(int card) {
+        return getDefinition(card).getName();
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    public static int setType(int card, Card.Type type) {
+        return (card & ~TYPE_MASK) | (type.ordinal() + 1);
+    }
+
+    /**
+     * Change card value (monsters with value of 10 and more become bounty targets)
+     * @param card  Packed card
+     * @param value New value (will be clamped to [0, MAX_VALUE])
+     * @return Modified card
+     */
+    public static int setValue(int card, int value) {
+        card = (card & ~VALUE_MASK) | (Math.max(0, Math.min(MAX_VALUE, value)) << VALUE_SHIFT);
+        if (getType(card) == Card.Type.MONSTER && value >= 10) {
+            card = setAbility(card, Card.Ability.BOUNTY);
+        }
+        return card;
+    }
+
+    public static int setInitialValue(int card, int initialValue) {
+        return (card & ~INITIAL_MASK) | (Math.max(0, Math.min(MAX_VALUE, initialValue)) << INITIAL_SHIFT);
+    }
+
+    public static int setActive(int card, boolean active) {
+        return active ? card | ACTIVE_BIT : card & ~ACTIVE_BIT;
+    }
+
+    /**
+     * Change card ability (ability cards also get the base value of their ability)
+     * @param card    Packed card
+     * @param ability New ability or null
+     * @return Modified card
+     */
+    public static int setAbility(int card, Card.Ability ability) {
+        card = (card & ~ABILITY_MASK) | (ability != null ? (ability.ordinal() + 1) << ABILITY_SHIFT : 0);
+        if (getType(card) == Card.Type.ABILITY && ability != null) {
+            card = setValue(card, CardDefinition.getAbility(ability).getBaseValue());
+        }
+        return setInitialValue(card, getValue(card));
+    }
+
+    /**
+     * Restore initial card state
+     * @param card Packed card
+     * @return Restored card
+     */
+    public static int restoreState(int card) {
+        card = setValue(card, getInitialValue(card));
+        card = setActive(card, true);
+        if (getType(card) != Card.Type.ABILITY) {
+            card = setAbility(card, null);
+        }
+        return card;
+    }
+
+    //----------------------------------------------------------------------------------------------
+
+    public static int getHero() {
+        int card = setType(NONE, Card.Type.HERO);
+        card = setValue(card, Card.HERO_MAX);
+        card = setInitialValue(card, Card.HERO_MAX);
+        return setActive(card, true);
+    }
+
+    public static int getSpecial(GameRandom random) {
+        return getSpecial(abilities[random.nextInt(abilities.length)]);
+    }
+
+    public static int getSpecial(Card.Ability ability) {
+        int card = setType(NONE, Card.Type.ABILITY);
+        card = setActive(card, true);
+        return setAbility(card, ability);
+    }
+
+    public static int getOther(Card.Type type, int value) {
+        int card = setType(NONE, type);
+        card = setValue(card, value);
+        card = setInitialValue(card, value);
+        card = setActive(card, true);
+        if ((type == Card.Type.MONSTER || type == Card.Type.MONSTER_TAMED) && CardDefinition.hasMonster(value)) {
+            card |= value << MOB_SHIFT;
+        }
+        return card;
+    }
+
+    public static int random(GameRandom random) {
+        Card.Type type = types[random.nextInt(types.length - 1) + 1];
+        switch (type) {
+            case MONSTER:
+            case MONSTER_TAMED:
+            case POTION:
+            case COIN:
+                return getOther(type, random.nextInt(9) + 2);
+            case WEAPON:
+            case SHIELD:
+                return getOther(type, random.nextInt(6) + 2);
+            case ABILITY:
+                return getSpecial(random);
+            default:
+                return getHero();
+        }
+    }
+
+}
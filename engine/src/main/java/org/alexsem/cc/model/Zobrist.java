@@ -0,0 +1,51 @@
+package org.alexsem.cc.model;
+
+/**
+ * Keys used for hashing of game states.
+ * Single values are hashed with a key per (position, value) pair, which are XOR-ed together.
+ * Sequences of cards are hashed polynomially: sum of key(card) * MULTIPLIER^index,
+ * so that cards can be added and removed at the ends without rehashing the rest
+ */
+public final class Zobrist {
+
+    public static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
+    public static final long MULTIPLIER_INVERSE = inverse(MULTIPLIER);
+
+    private static final long CARD_SALT = 0x5851f42d4c957f2dL;
+
+    private Zobrist() {
+    }
+
+    /**
+     * Find multiplicative inverse modulo 2^64 (Newton's iteration)
+     * @param value Odd number
+     * @return Inverse number
+     */
+    private static long inverse(long value) {
+        long result = value;
+        for (int i = 0; i < 5; i++) {
+            result *= 2 - value * result;
+        }
+        return result;
+    }
+
+    /**
+     * Get key of the value stored at the specific position
+     * @param position Position of value (any number which defines the meaning of the value)
+     * @param value    Value
+     * @return Key
+     */
+    public static long key(int position, int value) {
+        return GameRandom.mix(((long) position << 32 | (value & 0xFFFFFFFFL)) + MULTIPLIER);
+    }
+
+    /**
+     * Get key of the card which is a part of the sequence
+     * @param card Packed card
+     * @return Key
+     */
+    public static long key(int card) {
+        return GameRandom.mix((card & 0xFFFFFFFFL) ^ CARD_SALT);
+    }
+
+}
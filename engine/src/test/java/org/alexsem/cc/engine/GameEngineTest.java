@@ -0,0 +1,151 @@
+package org.alexsem.cc.engine;
+
+import org.alexsem.cc.engine.sim.RandomPolicy;
+import org.alexsem.cc.model.Card;
+import org.alexsem.cc.model.GameRandom;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GameEngineTest {
+
+    private static final int GAMES = 100;
+    private static final int MAX_MOVES = 2000;
+
+    /**
+     * Listener which completes every effect in the order it was emitted (as the view does once animations end)
+     */
+    private static class EventPlayer implements GameEngine.Listener {
+
+        private final GameEngine engine;
+        private final List<int[]> pending = new ArrayList<>();
+
+        EventPlayer(GameEngine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public boolean isAnimating() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public void onEvents(EventBuffer events) {
+            for (int i = 0; i < events.size(); i++) {
+                pending.add(new int[]{events.getType(i), events.getLocation(i), events.getCard(i), events.getValue(i)});
+            }
+        }
+
+        /**
+         * Complete all the effects, including the ones emitted while completing
+         */
+        void play() {
+            while (!pending.isEmpty()) {
+                while (!pending.isEmpty()) {
+                    complete(pending.remove(0));
+                }
+                engine.processMove();
+            }
+        }
+
+        private void complete(int[] event) {
+            int location = event[1];
+            int card = event[2];
+            switch (event[0]) {
+                case EventBuffer.DEALT:
+                    engine.completeDeal(new Card(card), location);
+                    break;
+                case EventBuffer.RETURNED_TO_DECK:
+                    engine.completeReceive(new Card(card), event[3] != 0);
+                    break;
+                case EventBuffer.DESTROYED:
+                    engine.completeCrack(location);
+                    break;
+                case EventBuffer.TRANSFORMED:
+                    engine.completeTransform(location, new Card(card));
+                    break;
+                case EventBuffer.DISABLED:
+                    engine.completeDisable(location);
+                    break;
+                case EventBuffer.DISCARDED:
+                    engine.completeDiscard(location);
+                    break;
+                case EventBuffer.HERO_VANISHED:
+                    engine.completeHeroVanish();
+                    break;
+                case EventBuffer.HERO_WON:
+                    engine.completeHeroWin();
+                    break;
+            }
+        }
+    }
+
+    @Test
+    public void instantModeMatchesCompletedEvents() {
+        RandomPolicy policy = new RandomPolicy();
+        GameState animatedState = new GameState();
+        GameState instantState = new GameState();
+        for (int i = 0; i < GAMES; i++) {
+            long seed = GameRandom.seedAt(1, i);
+            GameEngine animated = new GameEngine();
+            EventPlayer player = new EventPlayer(animated);
+            animated.setListener(player);
+            animated.begin(seed);
+            animated.start();
+            player.play();
+            GameEngine instant = new GameEngine();
+            instant.setListener(new GameEngine.Listener() { //Effects are already applied
+                @Override
+                public boolean isAnimating() {
+                    return false;
+                }
+
+                @Override
+                public void onEvents(EventBuffer events) {
+                    events.clear();
+                }
+            });
+            instant.setInstant(true);
+            instant.begin(seed);
+            instant.start();
+            GameRandom random = new GameRandom(~seed);
+            while (!instant.isGameOver() && !instant.isHeroWon() && instant.getMoveCount() < MAX_MOVES) {
+                int move = policy.chooseMove(instant, random);
+                if (move == Move.NONE) {
+                    break;
+                }
+                instant.doMove(move);
+                animated.doMove(move);
+                player.play();
+            }
+            animated.saveState(animatedState);
+            instant.saveState(instantState);
+            assertTrue("game " + i, animatedState.isSamePosition(instantState));
+            assertEquals(instant.isHeroWon(), animated.isHeroWon());
+            assertEquals(instant.isGameOver(), animated.isGameOver());
+            assertEquals(instant.getMoveCount(), animated.getMoveCount());
+        }
+    }
+
+    @Test
+    public void observationHashIgnoresHiddenState() {
+        GameEngine engine = new GameEngine();
+        GameRandom random = new GameRandom(1);
+        for (int i = 0; i < GAMES; i++) {
+            engine.begin(GameRandom.seedAt(1, i));
+            engine.start();
+            long observation = engine.getObservationHash();
+            long state = engine.getStateHash();
+            engine.randomizeHidden(random);
+            assertEquals(observation, engine.getObservationHash());
+            assertNotEquals(state, engine.getStateHash());
+        }
+    }
+
+}
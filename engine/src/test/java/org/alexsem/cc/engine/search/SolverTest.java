@@ -0,0 +1,52 @@
+package org.alexsem.cc.engine.search;
+
+import org.alexsem.cc.engine.GameEngine;
+import org.alexsem.cc.engine.GameState;
+import org.alexsem.cc.model.GameRandom;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SolverTest {
+
+    private static final long SEED = GameRandom.seedAt(1, 15); //Quickly solved game (won within 400k nodes)
+    private static final int MOVES_LEFT = 10;
+    private static final long NODE_LIMIT = 1000000;
+
+    /**
+     * Get position from which the game is won in the specified number of moves
+     * @param movesLeft Number of moves left in the winning line
+     * @return Game state
+     */
+    private GameState positionBeforeWin(int movesLeft) {
+        Solver.Result result = new Solver(1, 20, 4 * NODE_LIMIT).solve(SEED);
+        assertEquals(Solver.Outcome.WIN, result.getOutcome());
+        int[] line = result.getLine();
+        GameEngine engine = new GameEngine();
+        engine.begin(SEED);
+        engine.start();
+        for (int i = 0; i < line.length - movesLeft; i++) {
+            engine.doMove(line[i]);
+        }
+        GameState state = new GameState();
+        engine.saveState(state);
+        return state;
+    }
+
+    @Test
+    public void winIsFoundWithinDepth() {
+        GameState state = positionBeforeWin(MOVES_LEFT);
+        assertEquals(Solver.Outcome.WIN, new Solver(1, 16, NODE_LIMIT, MOVES_LEFT + 2).solve(state).getOutcome());
+    }
+
+    @Test
+    public void depthLimitedSearchIsNotLoss() {
+        GameState state = positionBeforeWin(MOVES_LEFT);
+        Solver.Result result = new Solver(1, 16, NODE_LIMIT, MOVES_LEFT / 2).solve(state);
+        assertTrue(result.getNodes() < NODE_LIMIT); //Stopped by the depth, not by the node limit
+        assertEquals(Solver.Outcome.UNKNOWN, result.getOutcome());
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.alexsem.cc.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class DeckTest {
+
+    private static final int ROUNDS = 200;
+    private static final int OPERATIONS = 500;
+
+    /**
+     * Calculate hash of the cards from scratch
+     * @param cards Cards from the bottom to the top
+     * @return Polynomial hash (see {@link Zobrist})
+     */
+    private static long hash(List<Integer> cards) {
+        long hash = 0;
+        long power = 1;
+        for (int card : cards) {
+            hash += Zobrist.key(card) * power;
+            power *= Zobrist.MULTIPLIER;
+        }
+        return hash;
+    }
+
+    /**
+     * Find topmost card of the specified type
+     * @param cards Cards from the bottom to the top
+     * @param type  Type of card to find
+     * @return Position of card or -1
+     */
+    private static int find(List<Integer> cards, Card.Type type) {
+        for (int i = cards.size() - 1; i >= 0; i--) {
+            if (PackedCard.getType(cards.get(i)) == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check deck against the list of its cards
+     * @param deck  Deck to check
+     * @param cards Expected cards from the bottom to the top
+     */
+    private static void assertSame(Deck deck, List<Integer> cards) {
+        assertEquals(cards.size(), deck.size());
+        assertEquals(hash(cards), deck.getHash());
+        long contentHash = 0;
+        for (int card : cards) {
+            contentHash += Zobrist.key(card);
+        }
+        assertEquals(contentHash, deck.getContentHash());
+        int[] copy = new int[cards.size()];
+        deck.copyTo(copy, 0);
+        for (int i = 0; i < copy.length; i++) {
+            assertEquals((long) cards.get(i), copy[i]);
+        }
+        for (Card.Type type : Card.Type.values()) {
+            assertEquals(find(cards, type), deck.find(type));
+        }
+    }
+
+    @Test
+    public void matchesListOfCards() {
+        Random random = new Random(1);
+        Card.Type[] types = Card.Type.values();
+        for (int round = 0; round < ROUNDS; round++) {
+            Deck deck = Deck.generateFixed(new GameRandom(round));
+            List<Integer> cards = new ArrayList<>();
+            int[] copy = new int[deck.size()];
+            deck.copyTo(copy, 0);
+            for (int card : copy) {
+                cards.add(card);
+            }
+            for (int i = 0; i < OPERATIONS; i++) {
+                switch (random.nextInt(5)) {
+                    case 0: //Bottom
+                        int card = PackedCard.getOther(types[1 + random.nextInt(6)], 2 + random.nextInt(9));
+                        deck.receive(card);
+                        cards.add(0, card);
+                        break;
+                    case 1: //Top
+                        assertEquals(cards.isEmpty() ? PackedCard.NONE : cards.remove(cards.size() - 1), deck.deal());
+                        break;
+                    case 2: //Middle
+                        int position = random.nextInt(cards.size() + 1);
+                        assertEquals(position < cards.size() ? cards.remove(position) : PackedCard.NONE, deck.deal(position));
+                        break;
+                    case 3: //By type
+                        Card.Type type = types[random.nextInt(types.length)];
+                        int found = find(cards, type);
+                        assertEquals(found >= 0 ? cards.remove(found) : PackedCard.NONE, deck.deal(type));
+                        break;
+                    case 4: //Save and restore
+                        int[] saved = new int[cards.size()];
+                        deck.copyTo(saved, 0);
+                        deck.restore(saved, 0, saved.length);
+                        break;
+                }
+                assertSame(deck, cards);
+            }
+        }
+    }
+
+}